@@ -0,0 +1,24 @@
+package com.qmetric.penfold.client;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the client benchmarks with allocation rates reported by the GC profiler. Accepts the usual JMH command line options, e.g. a benchmark
+ * name pattern.
+ */
+public class BenchmarkRunner
+{
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException
+    {
+        new Runner(new OptionsBuilder()
+                           .parent(new CommandLineOptions(args))
+                           .include("com\\.qmetric\\.penfold\\.client\\..*Benchmark")
+                           .addProfiler(GCProfiler.class)
+                           .build()).run();
+    }
+}
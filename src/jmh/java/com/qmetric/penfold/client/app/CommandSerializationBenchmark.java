@@ -0,0 +1,79 @@
+package com.qmetric.penfold.client.app;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qmetric.penfold.client.app.commands.CloseTaskCommand;
+import com.qmetric.penfold.client.app.commands.CreateTaskCommand;
+import com.qmetric.penfold.client.app.support.ObjectMapperFactory;
+import com.qmetric.penfold.client.domain.model.CloseResultType;
+import com.qmetric.penfold.client.domain.model.NewTask;
+import com.qmetric.penfold.client.domain.model.Payload;
+import com.qmetric.penfold.client.domain.model.QueueId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class CommandSerializationBenchmark
+{
+    @Param({"1", "10", "100"})
+    public int payloadFields;
+
+    private ObjectMapper objectMapper;
+
+    private CreateTaskCommand createTaskCommand;
+
+    private CreateTaskCommand createTaskCommandWithRawPayload;
+
+    private CloseTaskCommand closeTaskCommand;
+
+    @Setup public void setup() throws JsonProcessingException
+    {
+        objectMapper = ObjectMapperFactory.create();
+
+        final Map<String, Object> payload = new HashMap<>();
+        for (int i = 0; i < payloadFields; i++)
+        {
+            payload.put("field" + i, "value " + i);
+        }
+
+        createTaskCommand = new CreateTaskCommand(new NewTask(new QueueId("q1"), new Payload(payload), Optional.of(LocalDateTime.of(2015, 4, 15, 10, 35, 5))));
+        createTaskCommandWithRawPayload = new CreateTaskCommand(new NewTask(new QueueId("q1"), Payload.fromJson(objectMapper.writeValueAsBytes(payload)),
+                                                                            Optional.of(LocalDateTime.of(2015, 4, 15, 10, 35, 5))));
+        closeTaskCommand = new CloseTaskCommand(Optional.of(CloseResultType.success), Optional.of("reason"));
+    }
+
+    @Benchmark public String serializeCreateTaskCommand() throws JsonProcessingException
+    {
+        return objectMapper.writeValueAsString(createTaskCommand);
+    }
+
+    @Benchmark public byte[] serializeCreateTaskCommandWithRawPayload() throws JsonProcessingException
+    {
+        return objectMapper.writeValueAsBytes(createTaskCommandWithRawPayload);
+    }
+
+    @Benchmark public String serializeCloseTaskCommand() throws JsonProcessingException
+    {
+        return objectMapper.writeValueAsString(closeTaskCommand);
+    }
+}
@@ -0,0 +1,92 @@
+package com.qmetric.penfold.client.app;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.qmetric.penfold.client.app.support.ObjectMapperFactory;
+import com.qmetric.penfold.client.domain.model.Task;
+import com.qmetric.penfold.client.domain.model.TasksPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class TaskResourceDecoderBenchmark
+{
+    @Param({"1", "10", "100"})
+    public int pageSize;
+
+    @Param({"1", "10", "100"})
+    public int payloadFields;
+
+    private TaskResourceDecoder decoder;
+
+    private byte[] task;
+
+    private byte[] page;
+
+    @Setup public void setup()
+    {
+        decoder = new TaskResourceDecoder(ObjectMapperFactory.create());
+        task = TaskResources.task(payloadFields);
+        page = TaskResources.page(pageSize, payloadFields);
+    }
+
+    @Benchmark public Task readTask() throws IOException
+    {
+        return decoder.readTask(new ByteArrayInputStream(task));
+    }
+
+    @Benchmark public TasksPage readPage() throws IOException
+    {
+        return decoder.readPage(new ByteArrayInputStream(page));
+    }
+
+    @Benchmark public List<Map<String, Object>> readPageAsMaps() throws IOException
+    {
+        final List<Map<String, Object>> payloads = new ArrayList<>();
+
+        for (final Task task : decoder.readPage(new ByteArrayInputStream(page)).tasks)
+        {
+            payloads.add(task.payload.getAsMap());
+        }
+
+        return payloads;
+    }
+
+    @Benchmark public List<FirstField> readPageAsTypedPayloads() throws IOException
+    {
+        final List<FirstField> payloads = new ArrayList<>();
+
+        for (final Task task : decoder.readPage(new ByteArrayInputStream(page)).tasks)
+        {
+            payloads.add(task.payload.as(FirstField.class));
+        }
+
+        return payloads;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class FirstField
+    {
+        public String field0;
+    }
+}
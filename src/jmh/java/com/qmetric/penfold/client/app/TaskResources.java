@@ -0,0 +1,51 @@
+package com.qmetric.penfold.client.app;
+
+import com.google.common.base.Charsets;
+
+import static java.lang.String.format;
+
+/**
+ * Generates HAL task resources of a given size, as served by penfold.
+ */
+class TaskResources
+{
+    private static final String TASK_TEMPLATE = "{" +
+            "\"_links\":{\"self\":{\"href\":\"http://localhost/tasks/%1$d\"},\"StartTask\":{\"href\":\"http://localhost/tasks/%1$d/1\"}}," +
+            "\"id\":\"%1$d\",\"version\":1,\"payload\":%2$s,\"queue\":\"q1\",\"status\":\"ready\",\"created\":\"2014-02-25 12:00:00\"," +
+            "\"attempts\":0,\"triggerDate\":\"2014-04-15 10:35:05\"}";
+
+    private static final String PAGE_TEMPLATE = "{" +
+            "\"_links\":{\"self\":{\"href\":\"http://localhost/queues/q1/ready?page=2\"}," +
+            "\"previous\":{\"href\":\"http://localhost/queues/q1/ready?page=1\",\"name\":\"1\"}," +
+            "\"next\":{\"href\":\"http://localhost/queues/q1/ready?page=3\",\"name\":\"3\"}}," +
+            "\"_embedded\":{\"tasks\":[%s]}}";
+
+    static byte[] task(final int payloadFields)
+    {
+        return taskJson(1, payloadFields).getBytes(Charsets.UTF_8);
+    }
+
+    static byte[] page(final int pageSize, final int payloadFields)
+    {
+        final StringBuilder tasks = new StringBuilder();
+
+        for (int i = 1; i <= pageSize; i++)
+        {
+            tasks.append(i > 1 ? "," : "").append(taskJson(i, payloadFields));
+        }
+
+        return format(PAGE_TEMPLATE, tasks).getBytes(Charsets.UTF_8);
+    }
+
+    private static String taskJson(final int id, final int payloadFields)
+    {
+        final StringBuilder payload = new StringBuilder("{");
+
+        for (int i = 0; i < payloadFields; i++)
+        {
+            payload.append(i > 0 ? "," : "").append(format("\"field%d\":\"value %d\"", i, i));
+        }
+
+        return format(TASK_TEMPLATE, id, payload.append("}"));
+    }
+}
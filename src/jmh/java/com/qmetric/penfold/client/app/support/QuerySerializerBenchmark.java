@@ -0,0 +1,52 @@
+package com.qmetric.penfold.client.app.support;
+
+import com.qmetric.penfold.client.app.commands.filter.EqualsFilter;
+import com.qmetric.penfold.client.app.commands.filter.Filter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class QuerySerializerBenchmark
+{
+    @Param({"1", "5"})
+    public int filterCount;
+
+    private QuerySerializer querySerializer;
+
+    private List<Filter> filters;
+
+    @Setup public void setup()
+    {
+        querySerializer = new QuerySerializer(ObjectMapperFactory.create());
+
+        filters = new ArrayList<>();
+        for (int i = 0; i < filterCount; i++)
+        {
+            filters.add(EqualsFilter.of("key" + i, "value " + i));
+        }
+    }
+
+    @Benchmark public Optional<String> serialize()
+    {
+        return querySerializer.serialize(filters);
+    }
+}
@@ -0,0 +1,37 @@
+package com.qmetric.penfold.client.app.support;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class TaskDateTimeFormatterBenchmark
+{
+    private final String text = "2014-02-25 12:00:00";
+
+    private final LocalDateTime dateTime = LocalDateTime.of(2014, 2, 25, 12, 0, 0);
+
+    @Benchmark public LocalDateTime parse()
+    {
+        return TaskDateTimeFormatter.parse(text);
+    }
+
+    @Benchmark public String print()
+    {
+        return TaskDateTimeFormatter.print(dateTime);
+    }
+}
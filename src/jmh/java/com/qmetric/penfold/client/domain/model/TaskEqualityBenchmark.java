@@ -0,0 +1,101 @@
+package com.qmetric.penfold.client.domain.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class TaskEqualityBenchmark
+{
+    @Param({"1", "10", "100"})
+    public int payloadFields;
+
+    private Task task;
+
+    private Task equalTask;
+
+    private TaskStatus status;
+
+    private TaskStatus uninternedStatus;
+
+    @Setup public void setup()
+    {
+        task = createTask();
+        equalTask = createTask();
+        // as decoded from a response
+        status = TaskStatus.of("ready");
+        uninternedStatus = new TaskStatus("ready");
+    }
+
+    @Benchmark public boolean taskEquals()
+    {
+        return task.equals(equalTask);
+    }
+
+    @Benchmark public int taskHashCode()
+    {
+        return task.hashCode();
+    }
+
+    @Benchmark public boolean statusEquals()
+    {
+        return status.equals(TaskStatus.READY);
+    }
+
+    @Benchmark public boolean statusIsReady()
+    {
+        return status.isReady();
+    }
+
+    @Benchmark public boolean uninternedStatusIsReady()
+    {
+        return uninternedStatus.isReady();
+    }
+
+    @Benchmark public TaskStatus statusOf()
+    {
+        return TaskStatus.of("started");
+    }
+
+    @Benchmark public int taskIdHashCode()
+    {
+        return task.id.hashCode();
+    }
+
+    // as each task is logged when consumed, run with -prof gc to compare allocation per task
+    @Benchmark public String taskToString()
+    {
+        return task.toString();
+    }
+
+    private Task createTask()
+    {
+        final Map<String, Object> payload = new HashMap<>();
+        for (int i = 0; i < payloadFields; i++)
+        {
+            payload.put("field" + i, "value " + i);
+        }
+
+        final LocalDateTime created = LocalDateTime.of(2014, 2, 25, 12, 0, 0);
+
+        return new Task(new TaskId("1"), 1, new QueueId("q1"), TaskStatus.of("ready"), created, created, 0, new Payload(payload));
+    }
+}
@@ -0,0 +1,67 @@
+package com.qmetric.penfold.client.app;
+
+import com.codahale.metrics.Timer;
+import com.qmetric.penfold.client.app.transport.ApacheHttpTransport;
+import com.qmetric.penfold.client.app.transport.ResponseHandler;
+import com.qmetric.penfold.client.app.transport.TransportRequest;
+import com.qmetric.penfold.client.app.transport.TransportResponse;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.nio.client.HttpAsyncClient;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends requests with the async http client, completing the returned future from the client's callback. Requests go straight to the client rather
+ * than through a {@link com.qmetric.penfold.client.app.transport.Transport}, as the transports block the calling thread, so the non-blocking
+ * services are neither held to an adaptive concurrency limit nor failed fast by a circuit breaker.
+ */
+class AsyncRequestExecutor
+{
+    private final HttpAsyncClient httpClient;
+
+    AsyncRequestExecutor(final HttpAsyncClient httpClient)
+    {
+        this.httpClient = httpClient;
+    }
+
+    <T> CompletableFuture<T> execute(final TransportRequest request, final ResponseHandler<T> responseHandler, final Timer timer)
+    {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final Timer.Context timing = timer.time();
+
+        httpClient.execute(ApacheHttpTransport.httpRequestOf(request), new FutureCallback<HttpResponse>()
+        {
+            @Override public void completed(final HttpResponse httpResponse)
+            {
+                try (final TransportResponse response = ApacheHttpTransport.responseOf(httpResponse))
+                {
+                    result.complete(responseHandler.handle(response));
+                }
+                catch (final IOException | RuntimeException e)
+                {
+                    result.completeExceptionally(e);
+                }
+                finally
+                {
+                    timing.stop();
+                }
+            }
+
+            @Override public void failed(final Exception e)
+            {
+                timing.stop();
+                result.completeExceptionally(e);
+            }
+
+            @Override public void cancelled()
+            {
+                timing.stop();
+                result.cancel(false);
+            }
+        });
+
+        return result;
+    }
+}
@@ -0,0 +1,77 @@
+package com.qmetric.penfold.client.app;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qmetric.penfold.client.app.commands.filter.Filter;
+import com.qmetric.penfold.client.domain.model.PageReference;
+import com.qmetric.penfold.client.domain.model.QueueId;
+import com.qmetric.penfold.client.domain.model.Task;
+import com.qmetric.penfold.client.domain.model.TaskId;
+import com.qmetric.penfold.client.domain.model.TaskStatus;
+import com.qmetric.penfold.client.domain.model.TasksPage;
+import com.qmetric.penfold.client.domain.services.AsyncTaskQueryService;
+import org.apache.http.nio.client.HttpAsyncClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+public class AsyncTaskQueryServiceImpl implements AsyncTaskQueryService
+{
+    private final HttpAsyncClient httpClient;
+
+    private final AsyncRequestExecutor requestExecutor;
+
+    private final TaskQueryProtocol protocol;
+
+    private final Timer findTaskRequests;
+
+    private final Timer retrievePageRequests;
+
+    public AsyncTaskQueryServiceImpl(final String baseUri, final HttpAsyncClient httpClient, final ObjectMapper objectMapper)
+    {
+        this(baseUri, httpClient, objectMapper, new MetricRegistry());
+    }
+
+    /**
+     * @param httpClient Client to send requests with, closed along with the service when closeable
+     */
+    public AsyncTaskQueryServiceImpl(final String baseUri, final HttpAsyncClient httpClient, final ObjectMapper objectMapper, final MetricRegistry metricRegistry)
+    {
+        this.httpClient = httpClient;
+        this.requestExecutor = new AsyncRequestExecutor(httpClient);
+        this.protocol = new TaskQueryProtocol(baseUri, objectMapper);
+        this.findTaskRequests = metricRegistry.timer(name("penfold.query", "find-task"));
+        this.retrievePageRequests = metricRegistry.timer(name("penfold.query", "retrieve-page"));
+    }
+
+    @Override public CompletableFuture<Optional<Task>> find(final TaskId id)
+    {
+        return requestExecutor.execute(protocol.retrieveTaskRequest(id), protocol::taskFrom, findTaskRequests);
+    }
+
+    @Override public CompletableFuture<TasksPage> retrieve(final QueueId queue, final TaskStatus status, final List<Filter> filters,
+                                                           final Optional<PageReference> pageRequest)
+    {
+        return requestExecutor.execute(protocol.retrieveTasksRequest(queue, status, filters, pageRequest), protocol::tasksPageFrom, retrievePageRequests);
+    }
+
+    @Override public CompletableFuture<TasksPage> retrieve(final List<Filter> filters, final Optional<PageReference> pageRequest)
+    {
+        return requestExecutor.execute(protocol.retrieveTasksRequest(filters, pageRequest), protocol::tasksPageFrom, retrievePageRequests);
+    }
+
+    @Override public void close() throws IOException
+    {
+        // stops the I/O reactor threads of the client, which would otherwise keep the JVM from exiting
+        if (httpClient instanceof Closeable)
+        {
+            ((Closeable) httpClient).close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.qmetric.penfold.client.app;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qmetric.penfold.client.app.support.ClientFactory;
+import com.qmetric.penfold.client.app.support.Credentials;
+import com.qmetric.penfold.client.app.support.ObjectMapperFactory;
+import com.qmetric.penfold.client.domain.services.AsyncTaskStoreService;
+import org.apache.http.nio.client.HttpAsyncClient;
+
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+public class AsyncTaskStoreServiceBuilder
+{
+    private String url;
+
+    private Credentials credentials;
+
+    private Optional<MetricRegistry> metricRegistry = Optional.empty();
+
+    /**
+     * Penfold server url
+     *
+     * @param url Url
+     * @return Updated builder
+     */
+    public AsyncTaskStoreServiceBuilder forServer(final String url)
+    {
+        this.url = url;
+        return this;
+    }
+
+    /**
+     * Penfold server credentials
+     *
+     * @param username Username
+     * @param password Password
+     * @return Updated builder
+     */
+    public AsyncTaskStoreServiceBuilder withCredentials(final String username, final String password)
+    {
+        this.credentials = new Credentials(username, password);
+        return this;
+    }
+
+    /**
+     * Registry to record timings and counts of the service's requests in (default none).
+     *
+     * @param metricRegistry Metric registry
+     * @return Updated builder
+     */
+    public AsyncTaskStoreServiceBuilder withMetrics(final MetricRegistry metricRegistry)
+    {
+        this.metricRegistry = Optional.of(metricRegistry);
+        return this;
+    }
+
+    public AsyncTaskStoreService build()
+    {
+        checkValid();
+
+        // owned by the service, closed along with it
+        final HttpAsyncClient httpClient = ClientFactory.createAsyncHttpClient(credentials);
+
+        final ObjectMapper objectMapper = ObjectMapperFactory.create();
+
+        return new AsyncTaskStoreServiceImpl(url, httpClient, objectMapper, metricRegistryOrDefault());
+    }
+
+    private MetricRegistry metricRegistryOrDefault()
+    {
+        return metricRegistry.orElseGet(MetricRegistry::new);
+    }
+
+    private void checkValid()
+    {
+        checkArgument(url != null, "missing url");
+    }
+}
@@ -0,0 +1,126 @@
+package com.qmetric.penfold.client.app;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qmetric.penfold.client.app.commands.CancelTaskCommand;
+import com.qmetric.penfold.client.app.commands.CloseTaskCommand;
+import com.qmetric.penfold.client.app.commands.RequeueTaskCommand;
+import com.qmetric.penfold.client.app.commands.RescheduleTaskCommand;
+import com.qmetric.penfold.client.app.commands.StartTaskCommand;
+import com.qmetric.penfold.client.domain.model.CloseResultType;
+import com.qmetric.penfold.client.domain.model.CommandType;
+import com.qmetric.penfold.client.domain.model.NewTask;
+import com.qmetric.penfold.client.domain.model.Task;
+import com.qmetric.penfold.client.domain.services.AsyncTaskStoreService;
+import org.apache.http.nio.client.HttpAsyncClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+public class AsyncTaskStoreServiceImpl implements AsyncTaskStoreService
+{
+    private final HttpAsyncClient httpClient;
+
+    private final AsyncRequestExecutor requestExecutor;
+
+    private final TaskStoreProtocol protocol;
+
+    private final Timer createRequests;
+
+    private final Timer retrieveTaskRequests;
+
+    private final Map<CommandType, Timer> commandRequests = new EnumMap<>(CommandType.class);
+
+    public AsyncTaskStoreServiceImpl(final String baseUri, final HttpAsyncClient httpClient, final ObjectMapper objectMapper)
+    {
+        this(baseUri, httpClient, objectMapper, new MetricRegistry());
+    }
+
+    /**
+     * @param httpClient Client to send requests with, closed along with the service when closeable
+     */
+    public AsyncTaskStoreServiceImpl(final String baseUri, final HttpAsyncClient httpClient, final ObjectMapper objectMapper, final MetricRegistry metricRegistry)
+    {
+        this.httpClient = httpClient;
+        this.requestExecutor = new AsyncRequestExecutor(httpClient);
+        this.protocol = new TaskStoreProtocol(baseUri, objectMapper);
+        this.createRequests = metricRegistry.timer(name("penfold.store", "create"));
+        this.retrieveTaskRequests = metricRegistry.timer(name("penfold.store", "retrieve-task"));
+
+        for (final CommandType commandType : CommandType.values())
+        {
+            commandRequests.put(commandType, metricRegistry.timer(name("penfold.store", commandType.name())));
+        }
+    }
+
+    @Override public CompletableFuture<Task> create(final NewTask task)
+    {
+        return requestExecutor.execute(protocol.createRequest(task), protocol::createdTaskFrom, createRequests);
+    }
+
+    @Override public CompletableFuture<Task> start(final Task task)
+    {
+        return update(task, new StartTaskCommand(), CommandType.StartTask);
+    }
+
+    @Override public CompletableFuture<Task> requeue(final Task task, final Optional<String> reason)
+    {
+        return update(task, new RequeueTaskCommand(reason), CommandType.RequeueTask);
+    }
+
+    @Override public CompletableFuture<Task> reschedule(final Task task, final LocalDateTime triggerDate, final Optional<String> reason)
+    {
+        return update(task, new RescheduleTaskCommand(triggerDate, reason), CommandType.RescheduleTask);
+    }
+
+    @Override public CompletableFuture<Task> cancel(final Task task, final Optional<String> reason)
+    {
+        return update(task, new CancelTaskCommand(reason), CommandType.CancelTask);
+    }
+
+    @Override public CompletableFuture<Task> close(final Task task, final Optional<CloseResultType> resultType, final Optional<String> reason)
+    {
+        return update(task, new CloseTaskCommand(resultType, reason), CommandType.CloseTask);
+    }
+
+    @Override public void close() throws IOException
+    {
+        // stops the I/O reactor threads of the client, which would otherwise keep the JVM from exiting
+        if (httpClient instanceof Closeable)
+        {
+            ((Closeable) httpClient).close();
+        }
+    }
+
+    private CompletableFuture<Task> update(final Task task, final Object command, final CommandType commandType)
+    {
+        final CompletableFuture<String> commandLink;
+        try
+        {
+            final Optional<String> knownCommandLink = protocol.knownCommandLink(task, commandType);
+
+            commandLink = knownCommandLink.isPresent() ?
+                    CompletableFuture.completedFuture(knownCommandLink.get()) :
+                    requestExecutor.execute(protocol.retrieveTaskRequest(task.id), response -> protocol.commandLinkFrom(response, task, commandType),
+                                            retrieveTaskRequests);
+        }
+        catch (final RuntimeException e)
+        {
+            final CompletableFuture<Task> conflict = new CompletableFuture<>();
+            conflict.completeExceptionally(e);
+            return conflict;
+        }
+
+        return commandLink.thenCompose(link -> requestExecutor.execute(protocol.commandRequest(link, command, commandType),
+                                                                       response -> protocol.updatedTaskFrom(response, task, commandType),
+                                                                       commandRequests.get(commandType)));
+    }
+}
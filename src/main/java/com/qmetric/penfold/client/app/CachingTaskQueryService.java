@@ -0,0 +1,44 @@
+package com.qmetric.penfold.client.app;
+
+import com.google.common.collect.Iterators;
+import com.qmetric.penfold.client.app.commands.filter.Filter;
+import com.qmetric.penfold.client.domain.model.QueueId;
+import com.qmetric.penfold.client.domain.model.Task;
+import com.qmetric.penfold.client.domain.model.TaskId;
+import com.qmetric.penfold.client.domain.model.TaskStatus;
+import com.qmetric.penfold.client.domain.services.TaskQueryService;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Finds tasks by id from the task cache, loading from the server only those not cached. Tasks iterated over are cached as they are seen.
+ */
+public class CachingTaskQueryService implements TaskQueryService
+{
+    private final TaskQueryService taskQueryService;
+
+    private final TaskCache taskCache;
+
+    public CachingTaskQueryService(final TaskQueryService taskQueryService, final TaskCache taskCache)
+    {
+        this.taskQueryService = taskQueryService;
+        this.taskCache = taskCache;
+    }
+
+    @Override public Optional<Task> find(final TaskId id)
+    {
+        return taskCache.find(id, taskQueryService::find);
+    }
+
+    @Override public Iterator<Task> find(final QueueId queue, final TaskStatus status, final List<Filter> filters)
+    {
+        return Iterators.transform(taskQueryService.find(queue, status, filters), taskCache::observe);
+    }
+
+    @Override public Iterator<Task> find(final List<Filter> filters)
+    {
+        return Iterators.transform(taskQueryService.find(filters), taskCache::observe);
+    }
+}
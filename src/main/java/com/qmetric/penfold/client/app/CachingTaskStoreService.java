@@ -0,0 +1,91 @@
+package com.qmetric.penfold.client.app;
+
+import com.qmetric.penfold.client.domain.exceptions.ConflictException;
+import com.qmetric.penfold.client.domain.model.BulkCreateResult;
+import com.qmetric.penfold.client.domain.model.CloseResultType;
+import com.qmetric.penfold.client.domain.model.NewTask;
+import com.qmetric.penfold.client.domain.model.Task;
+import com.qmetric.penfold.client.domain.services.TaskStoreService;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Caches the tasks returned from each command in the task cache, and forgets tasks found to have changed by a conflicting command.
+ */
+public class CachingTaskStoreService implements TaskStoreService
+{
+    private final TaskStoreService taskStoreService;
+
+    private final TaskCache taskCache;
+
+    public CachingTaskStoreService(final TaskStoreService taskStoreService, final TaskCache taskCache)
+    {
+        this.taskStoreService = taskStoreService;
+        this.taskCache = taskCache;
+    }
+
+    @Override public Task create(final NewTask task)
+    {
+        return taskCache.observe(taskStoreService.create(task));
+    }
+
+    @Override public BulkCreateResult createAll(final Collection<NewTask> tasks)
+    {
+        return observeCreated(taskStoreService.createAll(tasks));
+    }
+
+    @Override public BulkCreateResult createAll(final Iterator<NewTask> tasks)
+    {
+        return observeCreated(taskStoreService.createAll(tasks));
+    }
+
+    @Override public Task start(final Task task) throws ConflictException
+    {
+        return update(task, () -> taskStoreService.start(task));
+    }
+
+    @Override public Task requeue(final Task task, final Optional<String> reason) throws ConflictException
+    {
+        return update(task, () -> taskStoreService.requeue(task, reason));
+    }
+
+    @Override public Task reschedule(final Task task, final LocalDateTime triggerDate, final Optional<String> reason) throws ConflictException
+    {
+        return update(task, () -> taskStoreService.reschedule(task, triggerDate, reason));
+    }
+
+    @Override public Task cancel(final Task task, final Optional<String> reason) throws ConflictException
+    {
+        return update(task, () -> taskStoreService.cancel(task, reason));
+    }
+
+    @Override public Task close(final Task task, final Optional<CloseResultType> resultType, final Optional<String> reason) throws ConflictException
+    {
+        return update(task, () -> taskStoreService.close(task, resultType, reason));
+    }
+
+    private BulkCreateResult observeCreated(final BulkCreateResult result)
+    {
+        result.created.forEach(taskCache::observe);
+
+        return result;
+    }
+
+    private Task update(final Task task, final Supplier<Task> command) throws ConflictException
+    {
+        try
+        {
+            return taskCache.observe(command.get());
+        }
+        catch (final ConflictException e)
+        {
+            // whatever version is cached may be no later than the version the command conflicted on
+            taskCache.invalidate(task.id);
+            throw e;
+        }
+    }
+}
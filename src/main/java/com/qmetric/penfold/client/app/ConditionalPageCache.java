@@ -0,0 +1,109 @@
+package com.qmetric.penfold.client.app;
+
+import com.codahale.metrics.Meter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.qmetric.penfold.client.app.transport.ResponseHandler;
+import com.qmetric.penfold.client.app.transport.TransportRequest;
+import com.qmetric.penfold.client.app.transport.TransportResponse;
+import com.qmetric.penfold.client.domain.model.TasksPage;
+import org.apache.http.HttpHeaders;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+
+/**
+ * Last page retrieved from each page url, along with the validators the server sent with it, so that requesting a page that has not changed
+ * since costs a 304 rather than downloading and decoding the page again. Bounded to the most recently retrieved page urls.
+ */
+class ConditionalPageCache
+{
+    private final Cache<URI, CachedPage> pages;
+
+    private final Meter notModified;
+
+    ConditionalPageCache(final int maximumSize, final Meter notModified)
+    {
+        checkArgument(maximumSize >= 0, "negative page cache size");
+        this.pages = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+        this.notModified = notModified;
+    }
+
+    /**
+     * @return Request made conditional on the page having changed since it was cached, or the request as is when the page is not cached
+     */
+    TransportRequest conditional(final TransportRequest request)
+    {
+        final CachedPage cached = pages.getIfPresent(request.uri);
+
+        return cached != null ? request.withHeaders(cached.validators) : request;
+    }
+
+    /**
+     * @return Cached page when not modified, otherwise the page decoded from the response, cached when the server sent validators with it
+     */
+    TasksPage pageFrom(final TransportRequest request, final TransportResponse response, final ResponseHandler<TasksPage> decoder) throws IOException
+    {
+        if (response.status() == HTTP_NOT_MODIFIED)
+        {
+            final CachedPage cached = pages.getIfPresent(request.uri);
+            checkState(cached != null, "unexpected response %s", HTTP_NOT_MODIFIED);
+
+            notModified.mark();
+            return cached.page;
+        }
+
+        final TasksPage page = decoder.handle(response);
+        final Map<String, String> validators = validatorsFrom(response);
+
+        if (validators.isEmpty())
+        {
+            pages.invalidate(request.uri);
+        }
+        else
+        {
+            pages.put(request.uri, new CachedPage(page, validators));
+        }
+
+        return page;
+    }
+
+    private Map<String, String> validatorsFrom(final TransportResponse response)
+    {
+        final ImmutableMap.Builder<String, String> validators = ImmutableMap.builder();
+
+        final Optional<String> entityTag = response.header(HttpHeaders.ETAG);
+        if (entityTag.isPresent())
+        {
+            validators.put(HttpHeaders.IF_NONE_MATCH, entityTag.get());
+        }
+
+        final Optional<String> lastModified = response.header(HttpHeaders.LAST_MODIFIED);
+        if (lastModified.isPresent())
+        {
+            validators.put(HttpHeaders.IF_MODIFIED_SINCE, lastModified.get());
+        }
+
+        return validators.build();
+    }
+
+    private static class CachedPage
+    {
+        final TasksPage page;
+
+        final Map<String, String> validators;
+
+        CachedPage(final TasksPage page, final Map<String, String> validators)
+        {
+            this.page = page;
+            this.validators = validators;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.qmetric.penfold.client.app;
+
+import com.codahale.metrics.MetricRegistry;
+import com.qmetric.penfold.client.app.support.HttpConnectionPool;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+public class HttpConnectionPoolBuilder
+{
+    private int maxTotal = 20;
+
+    private int maxPerRoute = 10;
+
+    private Duration connectTimeout = Duration.ofSeconds(60);
+
+    private Duration readTimeout = Duration.ofSeconds(60);
+
+    private Duration maxKeepAlive = Duration.ofSeconds(30);
+
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+
+    private Optional<MetricRegistry> metricRegistry = Optional.empty();
+
+    private String poolName;
+
+    /**
+     * Maximum number of connections across all servers (default 20).
+     *
+     * @param maxTotal Maximum connections
+     * @return Updated builder
+     */
+    public HttpConnectionPoolBuilder withMaxTotal(final int maxTotal)
+    {
+        this.maxTotal = maxTotal;
+        return this;
+    }
+
+    /**
+     * Maximum number of connections to each server (default 10).
+     *
+     * @param maxPerRoute Maximum connections per server
+     * @return Updated builder
+     */
+    public HttpConnectionPoolBuilder withMaxPerRoute(final int maxPerRoute)
+    {
+        this.maxPerRoute = maxPerRoute;
+        return this;
+    }
+
+    /**
+     * Connect and read timeouts (default 60 seconds each).
+     *
+     * @param connectTimeout Connect timeout
+     * @param readTimeout Read timeout
+     * @return Updated builder
+     */
+    public HttpConnectionPoolBuilder withTimeouts(final Duration connectTimeout, final Duration readTimeout)
+    {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    /**
+     * Longest time to keep a connection alive for reuse, shortened by any keep-alive advertised by the server (default 30 seconds).
+     *
+     * @param maxKeepAlive Maximum keep-alive
+     * @return Updated builder
+     */
+    public HttpConnectionPoolBuilder withMaxKeepAlive(final Duration maxKeepAlive)
+    {
+        this.maxKeepAlive = maxKeepAlive;
+        return this;
+    }
+
+    /**
+     * How long a pooled connection may be inactive before it is checked for staleness on reuse (default 2 seconds).
+     *
+     * @param validateAfterInactivity Inactivity period
+     * @return Updated builder
+     */
+    public HttpConnectionPoolBuilder withValidateAfterInactivity(final Duration validateAfterInactivity)
+    {
+        this.validateAfterInactivity = validateAfterInactivity;
+        return this;
+    }
+
+    /**
+     * How long a pooled connection may be idle before it is closed by the background evictor (default 30 seconds).
+     *
+     * @param maxIdleTime Maximum idle time
+     * @return Updated builder
+     */
+    public HttpConnectionPoolBuilder withMaxIdleTime(final Duration maxIdleTime)
+    {
+        this.maxIdleTime = maxIdleTime;
+        return this;
+    }
+
+    /**
+     * Expose leased, available and pending connection gauges.
+     *
+     * @param metricRegistry Existing metric registry
+     * @param poolName Name distinguishing this pool's gauges
+     * @return Updated builder
+     */
+    public HttpConnectionPoolBuilder withMetrics(final MetricRegistry metricRegistry, final String poolName)
+    {
+        this.metricRegistry = Optional.of(metricRegistry);
+        this.poolName = poolName;
+        return this;
+    }
+
+    public HttpConnectionPool build()
+    {
+        checkValid();
+
+        final HttpConnectionPool connectionPool =
+                new HttpConnectionPool(maxTotal, maxPerRoute, connectTimeout, readTimeout, maxKeepAlive, validateAfterInactivity, maxIdleTime);
+
+        if (metricRegistry.isPresent())
+        {
+            connectionPool.registerMetrics(metricRegistry.get(), poolName);
+        }
+
+        return connectionPool;
+    }
+
+    private void checkValid()
+    {
+        checkArgument(maxTotal > 0, "max total must be positive");
+        checkArgument(maxPerRoute > 0 && maxPerRoute <= maxTotal, "max per route must be positive and no more than max total");
+        checkArgument(connectTimeout != null, "missing connect timeout");
+        checkArgument(readTimeout != null, "missing read timeout");
+        checkArgument(maxKeepAlive != null, "missing max keep-alive");
+        checkArgument(validateAfterInactivity != null, "missing validate after inactivity");
+        checkArgument(maxIdleTime != null && !maxIdleTime.isNegative() && !maxIdleTime.isZero(), "max idle time must be positive");
+        checkArgument(!metricRegistry.isPresent() || poolName != null, "missing pool name");
+    }
+}
@@ -0,0 +1,60 @@
+package com.qmetric.penfold.client.app;
+
+import com.google.common.collect.ImmutableList;
+import com.qmetric.penfold.client.app.support.PollingBackoff;
+import com.qmetric.penfold.client.app.support.ShutdownProcedure;
+import com.qmetric.penfold.client.app.transport.CircuitBreakerTransport;
+import com.qmetric.penfold.client.domain.services.Consumer;
+import com.qmetric.penfold.client.domain.services.ReplyRetryScheduler;
+import com.qmetric.penfold.client.domain.services.TaskConsumer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Consumes from several queues, polling each of them on one shared scheduler and consuming their tasks on one shared worker pool.
+ */
+public class MultiQueueConsumer implements TaskConsumer
+{
+    private final List<QueuePoller> pollers;
+
+    private final ShutdownProcedure shutdownProcedure;
+
+    /**
+     * @param circuitBreaker Circuit to the server, polling of every queue being paused whilst open
+     */
+    MultiQueueConsumer(final List<Consumer> consumers, final Duration interval, final Optional<Duration> adaptivePollingMinimumDelay,
+                       final ScheduledExecutorService scheduler, final ExecutorService workerPool, final List<ReplyRetryScheduler> replyRetrySchedulers,
+                       final Optional<CircuitBreakerTransport> circuitBreaker)
+    {
+        final ImmutableList.Builder<QueuePoller> pollers = ImmutableList.builder();
+
+        for (final Consumer consumer : consumers)
+        {
+            // backoff is tracked separately for each queue
+            final Optional<PollingBackoff> adaptivePolling = adaptivePollingMinimumDelay.isPresent() ?
+                    Optional.of(new PollingBackoff(adaptivePollingMinimumDelay.get(), interval)) :
+                    Optional.empty();
+
+            pollers.add(new QueuePoller(consumer, interval, scheduler, adaptivePolling, circuitBreaker));
+        }
+
+        this.pollers = pollers.build();
+        // replies still pending once the workers are done are flushed last
+        this.shutdownProcedure = new ShutdownProcedure(ImmutableList.of(scheduler, workerPool), replyRetrySchedulers);
+    }
+
+    @Override public void start()
+    {
+        pollers.forEach(QueuePoller::start);
+        shutdownProcedure.registerShutdownHook();
+    }
+
+    @Override public void stop()
+    {
+        shutdownProcedure.runAndRemoveHook();
+    }
+}
@@ -0,0 +1,536 @@
+package com.qmetric.penfold.client.app;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheckRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qmetric.penfold.client.app.support.Credentials;
+import com.qmetric.penfold.client.app.support.ExecutorFactory;
+import com.qmetric.penfold.client.app.support.HttpConnectionPool;
+import com.qmetric.penfold.client.app.support.LocalDateTimeSource;
+import com.qmetric.penfold.client.app.support.ObjectMapperFactory;
+import com.qmetric.penfold.client.app.transport.CircuitBreakerTransport;
+import com.qmetric.penfold.client.app.transport.Transport;
+import com.qmetric.penfold.client.app.transport.UrlConnectionTransport;
+import com.qmetric.penfold.client.domain.model.QueueId;
+import com.qmetric.penfold.client.domain.services.ClaimStrategy;
+import com.qmetric.penfold.client.domain.services.Consumer;
+import com.qmetric.penfold.client.domain.services.ConsumerFunction;
+import com.qmetric.penfold.client.domain.services.PartitionedClaimStrategy;
+import com.qmetric.penfold.client.domain.services.ReplyRetryScheduler;
+import com.qmetric.penfold.client.domain.services.ShuffledClaimStrategy;
+import com.qmetric.penfold.client.domain.services.TaskQueryService;
+import com.qmetric.penfold.client.domain.services.TaskStoreService;
+import com.qmetric.penfold.client.domain.services.events.Notifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.stream.Collectors.toSet;
+
+public class MultiQueueConsumerBuilder
+{
+    private static final int DEFAULT_MAX_POLLING_THREADS = 4;
+
+    private String url;
+
+    private final TransportConfiguration transportConfiguration = new TransportConfiguration();
+
+    private final List<QueueRegistration> registrations = new ArrayList<>();
+
+    private Duration pollingFrequency = Duration.ofMinutes(1);
+
+    private Optional<Duration> adaptivePollingMinimumDelay = Optional.empty();
+
+    private Optional<Duration> retryDelay = Optional.empty();
+
+    private Optional<Duration> minimumTimeBetweenConsumingForHealthCheck = Optional.empty();
+
+    private Optional<HealthCheckRegistry> healthCheckRegistry = Optional.empty();
+
+    private ClaimStrategy claimStrategy = ClaimStrategy.PAGE_ORDER;
+
+    private int claimShuffleMinimumWindow = 0;
+
+    private int claimShuffleMaximumWindow = 0;
+
+    private int maxPendingReplyRetries = 0;
+
+    private Duration replyRetryInitialBackoff = Duration.ofSeconds(1);
+
+    private Duration replyRetryMaxBackoff = Duration.ofMinutes(5);
+
+    private int taskCacheSize = 0;
+
+    private Optional<Duration> taskCacheTimeToLive = Optional.empty();
+
+    private Optional<MetricRegistry> metricRegistry = Optional.empty();
+
+    private String metricsName = "multi-queue";
+
+    private Optional<Integer> workerThreads = Optional.empty();
+
+    private Optional<Integer> pollingThreads = Optional.empty();
+
+    /**
+     * Penfold server url
+     *
+     * @param url Url
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder fromServer(final String url)
+    {
+        this.url = url;
+        return this;
+    }
+
+    /**
+     * Penfold server credentials
+     *
+     * @param username Username
+     * @param password Password
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withCredentials(final String username, final String password)
+    {
+        transportConfiguration.setCredentials(new Credentials(username, password));
+        return this;
+    }
+
+    /**
+     * Shared http connections to use instead of connections dedicated to this consumer. The pool is not closed along with the consumer.
+     *
+     * @param connectionPool Existing connection pool
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withConnectionPool(final HttpConnectionPool connectionPool)
+    {
+        transportConfiguration.setConnectionPool(connectionPool);
+        return this;
+    }
+
+    /**
+     * Transport to send requests to the server with instead of a dedicated Apache http client, such as {@link UrlConnectionTransport}. Credentials
+     * and connection pool are then left to the transport.
+     *
+     * @param transport Transport
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withTransport(final Transport transport)
+    {
+        transportConfiguration.setTransport(transport);
+        return this;
+    }
+
+    /**
+     * Limit the requests in flight to the server from every queue, adapting the limit to the server's response times, conflicts and server errors
+     * rather than sending ever more requests to a server that is struggling (default unlimited). Workers hold off starting and replying to tasks
+     * whilst the limit is reached.
+     *
+     * @param initialLimit Requests in flight to start with
+     * @param maxLimit Most requests in flight the limit grows to
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withAdaptiveConcurrencyLimit(final int initialLimit, final int maxLimit)
+    {
+        transportConfiguration.setAdaptiveConcurrencyLimit(initialLimit, maxLimit);
+        return this;
+    }
+
+    /**
+     * Fail requests fast whilst the server is failing, rather than each request waiting out the connection timeouts (default disabled). The circuit
+     * opens once the share of failed requests among the most recent reaches the threshold, and after the open duration lets a few trial requests
+     * through, closing once they succeed. Polling of every queue is paused whilst the circuit is open.
+     *
+     * @param failureRateThreshold Share of requests failed, between 0 and 1, that opens the circuit
+     * @param windowSize Number of most recent requests the share is taken over
+     * @param openDuration Time to fail requests fast for before trying the server again
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withCircuitBreaker(final double failureRateThreshold, final int windowSize, final Duration openDuration)
+    {
+        transportConfiguration.setCircuitBreaker(failureRateThreshold, windowSize, openDuration);
+        return this;
+    }
+
+    /**
+     * As {@link #withCircuitBreaker(double, int, Duration)}, with a health check reporting the server unhealthy whilst the circuit is not closed, named
+     * {@code <name> penfold server circuit breaker} after the name given with {@link #withMetrics(MetricRegistry, String)}.
+     *
+     * @param failureRateThreshold Share of requests failed, between 0 and 1, that opens the circuit
+     * @param windowSize Number of most recent requests the share is taken over
+     * @param openDuration Time to fail requests fast for before trying the server again
+     * @param healthCheckRegistry Existing health check registry
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withCircuitBreaker(final double failureRateThreshold, final int windowSize, final Duration openDuration,
+                                                        final HealthCheckRegistry healthCheckRegistry)
+    {
+        transportConfiguration.setCircuitBreakerHealthCheckRegistry(healthCheckRegistry);
+        return withCircuitBreaker(failureRateThreshold, windowSize, openDuration);
+    }
+
+    /**
+     * Penfold queue to consume from, with an equal share of the workers.
+     *
+     * @param queue Queue id
+     * @param function Custom function defining how to consume each received task
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder consumeFrom(final String queue, final ConsumerFunction function)
+    {
+        return consumeFrom(queue, function, 1);
+    }
+
+    /**
+     * Penfold queue to consume from, with a share of the workers in proportion to its weight.
+     *
+     * @param queue Queue id
+     * @param function Custom function defining how to consume each received task
+     * @param weight Relative share of the workers
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder consumeFrom(final String queue, final ConsumerFunction function, final int weight)
+    {
+        registrations.add(new QueueRegistration(new QueueId(queue), function, weight, Optional.empty()));
+        return this;
+    }
+
+    /**
+     * Penfold queue to consume from, with a share of the workers in proportion to its weight and never more than the given concurrency.
+     *
+     * @param queue Queue id
+     * @param function Custom function defining how to consume each received task
+     * @param weight Relative share of the workers
+     * @param maxConcurrency Maximum number of tasks from this queue consumed in parallel
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder consumeFrom(final String queue, final ConsumerFunction function, final int weight, final int maxConcurrency)
+    {
+        registrations.add(new QueueRegistration(new QueueId(queue), function, weight, Optional.of(maxConcurrency)));
+        return this;
+    }
+
+    /**
+     * How often to check each queue for new entries to consume (default 1 minute).
+     *
+     * @param interval Polling interval.
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withPollingFrequency(final Duration interval)
+    {
+        this.pollingFrequency = interval;
+        return this;
+    }
+
+    /**
+     * Poll a queue again straight away whilst ready tasks are being started, otherwise back off exponentially from the minimum delay up to the
+     * polling frequency (default disabled, polling at a fixed rate).
+     *
+     * @param minimumDelay Delay after the first poll to start no tasks
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withAdaptivePolling(final Duration minimumDelay)
+    {
+        this.adaptivePollingMinimumDelay = Optional.of(minimumDelay);
+        return this;
+    }
+
+    /**
+     * How long to wait before retying after a task fails to be consumed (default no delay).
+     *
+     * @param interval Polling interval.
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder delayBetweenEachRetryOf(final Duration interval)
+    {
+        this.retryDelay = Optional.of(interval);
+        return this;
+    }
+
+    /**
+     * How long between consuming from a queue before the queue's consumer is marked as unhealthy.
+     *
+     * @param minimumTimeBetweenConsumingForHealthCheck Time between consuming.
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withActivityHealthCheck(final Duration minimumTimeBetweenConsumingForHealthCheck, final HealthCheckRegistry healthCheckRegistry)
+    {
+        this.minimumTimeBetweenConsumingForHealthCheck = Optional.of(minimumTimeBetweenConsumingForHealthCheck);
+        this.healthCheckRegistry = Optional.of(healthCheckRegistry);
+        return this;
+    }
+
+    /**
+     * Number of worker threads shared by all queues (default one per unit of weight, so one per queue when all queues are weighted equally).
+     *
+     * @param workerThreads Number of worker threads
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withWorkerThreads(final int workerThreads)
+    {
+        this.workerThreads = Optional.of(workerThreads);
+        return this;
+    }
+
+    /**
+     * Number of threads polling the queues and feeding the workers (default one per queue, up to 4). A queue being drained holds a polling thread.
+     *
+     * @param pollingThreads Number of polling threads
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withPollingThreads(final int pollingThreads)
+    {
+        this.pollingThreads = Optional.of(pollingThreads);
+        return this;
+    }
+
+    /**
+     * Share the tasks of the queues between a group of consumers, this one being the given member of the group, so that members attempt their own
+     * tasks rather than all racing to start the same ones (default disabled, attempting every task). Tasks of other members are only attempted once
+     * ready for longer than the steal threshold, after this member's own tasks.
+     *
+     * @param member Member of the group, from 0
+     * @param groupSize Number of members in the group
+     * @param stealAfter How long a task of another member is left ready before this member attempts it
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withPartitionedClaiming(final int member, final int groupSize, final Duration stealAfter)
+    {
+        this.claimStrategy = new PartitionedClaimStrategy(member, groupSize, stealAfter, new LocalDateTimeSource());
+        return this;
+    }
+
+    /**
+     * Share the tasks of the queues between a group of consumers identified by name, this one being the given member of the group (default
+     * disabled, attempting every task). Adding or removing a member only moves the tasks that member gains or loses.
+     *
+     * @param member Member of the group
+     * @param members Every member of the group, including this one
+     * @param stealAfter How long a task of another member is left ready before this member attempts it
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withPartitionedClaiming(final String member, final Collection<String> members, final Duration stealAfter)
+    {
+        this.claimStrategy = new PartitionedClaimStrategy(member, members, stealAfter, new LocalDateTimeSource());
+        return this;
+    }
+
+    /**
+     * Attempt ready tasks in a random order within a window sliding over the queue, for each queue, rather than in the order of the queue, so that competing
+     * consumers do not collide on the same tasks (default disabled). The window widens from the minimum towards the maximum number of tasks as the
+     * rate of tasks started first by another consumer rises.
+     *
+     * @param minimumWindow Number of tasks shuffled whilst there are no conflicts
+     * @param maximumWindow Number of tasks shuffled whilst every attempt conflicts
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withShuffledClaiming(final int minimumWindow, final int maximumWindow)
+    {
+        this.claimShuffleMinimumWindow = minimumWindow;
+        this.claimShuffleMaximumWindow = maximumWindow;
+        return this;
+    }
+
+    /**
+     * Retry replies that fail to be applied in the background, backing off exponentially with jitter, rather than holding up the consumer of each queue until
+     * the reply is applied (default disabled, retrying every 10 seconds). Replies still pending on shutdown are attempted once more.
+     *
+     * @param maxPending Number of replies retried in the background, beyond which the consumer waits on its replies again
+     * @param initialBackoff Delay before the first retry, doubled for each retry after
+     * @param maxBackoff Longest delay between retries
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withBackgroundReplyRetries(final int maxPending, final Duration initialBackoff, final Duration maxBackoff)
+    {
+        this.maxPendingReplyRetries = maxPending;
+        this.replyRetryInitialBackoff = initialBackoff;
+        this.replyRetryMaxBackoff = maxBackoff;
+        return this;
+    }
+
+    /**
+     * Keep the latest version seen of up to the given number of tasks, from the tasks polled and the commands sent, so that replying to a task
+     * found to have changed since it was started does not always go back to the server for it (default disabled). Tasks found to have changed by a
+     * conflicting command are no longer kept.
+     *
+     * @param size Number of tasks to keep
+     * @param timeToLive How long to keep each task for
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withTaskCache(final int size, final Duration timeToLive)
+    {
+        this.taskCacheSize = size;
+        this.taskCacheTimeToLive = Optional.of(timeToLive);
+        return this;
+    }
+
+    /**
+     * Registry to record timings and counts of the consumer's requests and of the tasks consumed and replies for each queue in (default none).
+     *
+     * @param metricRegistry Metric registry
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withMetrics(final MetricRegistry metricRegistry)
+    {
+        this.metricRegistry = Optional.of(metricRegistry);
+        return this;
+    }
+
+    /**
+     * As {@link #withMetrics(MetricRegistry)}, with the given name in the names of metrics that would otherwise clash with those of another consumer
+     * recording in the same registry, such as gauges of the task cache or of the concurrency limit (default multi-queue).
+     *
+     * @param metricRegistry Metric registry
+     * @param name Name telling the consumer's metrics apart
+     * @return Updated builder
+     */
+    public MultiQueueConsumerBuilder withMetrics(final MetricRegistry metricRegistry, final String name)
+    {
+        this.metricsName = name;
+        return withMetrics(metricRegistry);
+    }
+
+    public MultiQueueConsumer build()
+    {
+        checkValid();
+
+        final ObjectMapper objectMapper = ObjectMapperFactory.create();
+
+        final MetricRegistry metrics = metricRegistry.orElseGet(MetricRegistry::new);
+
+        final Transport limitedTransport = transportConfiguration.concurrencyLimited(metricsName, metrics);
+        final Optional<CircuitBreakerTransport> circuitBreaker = transportConfiguration.circuitBreakerAround(limitedTransport, metricsName, metrics);
+        final Transport transport = circuitBreaker.isPresent() ? circuitBreaker.get() : limitedTransport;
+
+        final TaskQueryService queryService = new TaskQueryServiceImpl(url, transport, objectMapper, 0, Runnable::run, metrics, TaskQueryServiceImpl.DEFAULT_PAGE_CACHE_SIZE);
+        final TaskStoreService storeService = new TaskStoreServiceImpl(url, transport, objectMapper, 1, Runnable::run, metrics);
+
+        final TaskQueryService taskQueryService;
+        final TaskStoreService taskStoreService;
+
+        if (taskCacheTimeToLive.isPresent())
+        {
+            final TaskCache taskCache = new TaskCache(metricsName, taskCacheSize, taskCacheTimeToLive.get(), metrics);
+
+            taskQueryService = new CachingTaskQueryService(queryService, taskCache);
+            taskStoreService = new CachingTaskStoreService(storeService, taskCache);
+        }
+        else
+        {
+            taskQueryService = queryService;
+            taskStoreService = storeService;
+        }
+
+        final LocalDateTimeSource dateTimeSource = new LocalDateTimeSource();
+
+        final int totalWeight = registrations.stream().mapToInt(registration -> registration.weight).sum();
+
+        final int workers = workerThreads.orElse(totalWeight);
+        final ExecutorService workerPool = ExecutorFactory.createWorkerPool("multi-queue-consumer", workers);
+        final ScheduledExecutorService scheduler =
+                ExecutorFactory.createScheduler("multi-queue-poller", pollingThreads.orElse(Math.min(registrations.size(), DEFAULT_MAX_POLLING_THREADS)));
+
+        final List<Consumer> consumers = new ArrayList<>();
+        final List<ReplyRetryScheduler> replyRetrySchedulers = new ArrayList<>();
+
+        for (final QueueRegistration registration : registrations)
+        {
+            final int concurrency = registration.concurrencyWithin(workers, totalWeight);
+
+            // replies are retried on a thread of each queue's own, as flushing a queue's retries on stop shuts its thread down
+            final Optional<ReplyRetryScheduler> replyRetryScheduler = maxPendingReplyRetries > 0 ?
+                    Optional.of(new ReplyRetryScheduler(registration.queue,
+                                                        ExecutorFactory.createScheduler(String.format("multi-queue-reply-retries-%s", registration.queue.value), 1),
+                                                        maxPendingReplyRetries, replyRetryInitialBackoff, replyRetryMaxBackoff, metrics)) :
+                    Optional.empty();
+            replyRetryScheduler.ifPresent(replyRetrySchedulers::add);
+
+            final Notifier notifier = notifierFor(registration.queue, dateTimeSource);
+
+            consumers.add(new Consumer.Builder(registration.queue, registration.function, retryDelay, taskQueryService, taskStoreService, dateTimeSource, notifier) //
+                    .withWorkers(workerPool, concurrency) //
+                    .withMetrics(metrics) //
+                    .withClaimStrategy(claimStrategyForConsumer()) //
+                    .withReplyRetryScheduler(replyRetryScheduler) //
+                    .build());
+        }
+
+        return new MultiQueueConsumer(consumers, pollingFrequency, adaptivePollingMinimumDelay, scheduler, workerPool, replyRetrySchedulers, circuitBreaker);
+    }
+
+    private Notifier notifierFor(final QueueId queue, final LocalDateTimeSource dateTimeSource)
+    {
+        if (minimumTimeBetweenConsumingForHealthCheck.isPresent())
+        {
+            final ActivityHealthCheckListener activityHealthCheck = new ActivityHealthCheckListener(dateTimeSource, minimumTimeBetweenConsumingForHealthCheck.get());
+            healthCheckRegistry.get().register(String.format("%s scheduling consumer", queue.value), activityHealthCheck);
+
+            return new Notifier(activityHealthCheck);
+        }
+        else
+        {
+            return Notifier.EMPTY;
+        }
+    }
+
+    private ClaimStrategy claimStrategyForConsumer()
+    {
+        // a shuffled claim order for each queue, as it tracks the conflict rate of the queue
+        return claimShuffleMaximumWindow > 0 ? new ShuffledClaimStrategy(claimStrategy, claimShuffleMinimumWindow, claimShuffleMaximumWindow) : claimStrategy;
+    }
+
+    private void checkValid()
+    {
+        checkArgument(url != null, "missing url");
+        checkArgument(!registrations.isEmpty(), "missing queues");
+        checkArgument(registrations.stream().map(registration -> registration.queue).collect(toSet()).size() == registrations.size(), "duplicate queue");
+        checkArgument(registrations.stream().allMatch(registration -> registration.weight > 0), "queue weight must be positive");
+        checkArgument(registrations.stream().allMatch(registration -> registration.maxConcurrency.orElse(1) > 0), "queue max concurrency must be positive");
+        checkArgument(registrations.stream().allMatch(registration -> registration.function != null), "missing function");
+        checkArgument(pollingFrequency != null, "missing polling frequency");
+        checkArgument(retryDelay != null, "missing retry delay");
+        checkArgument(!adaptivePollingMinimumDelay.isPresent() || adaptivePollingMinimumDelay.get().compareTo(pollingFrequency) <= 0,
+                      "adaptive polling minimum delay exceeds polling frequency");
+        checkArgument(workerThreads.orElse(1) > 0, "worker threads must be positive");
+        checkArgument(pollingThreads.orElse(1) > 0, "polling threads must be positive");
+        checkArgument(!taskCacheTimeToLive.isPresent() || taskCacheSize > 0, "task cache size must be positive");
+        checkArgument(claimShuffleMinimumWindow >= 0, "negative claim shuffle window");
+        checkArgument(claimShuffleMaximumWindow == 0 || claimShuffleMinimumWindow > 0, "claim shuffle window must be positive");
+        checkArgument(claimShuffleMaximumWindow >= claimShuffleMinimumWindow, "maximum claim shuffle window less than minimum");
+        checkArgument(maxPendingReplyRetries >= 0, "negative max pending reply retries");
+        transportConfiguration.checkValid();
+    }
+
+    private static class QueueRegistration
+    {
+        final QueueId queue;
+
+        final ConsumerFunction function;
+
+        final int weight;
+
+        final Optional<Integer> maxConcurrency;
+
+        QueueRegistration(final QueueId queue, final ConsumerFunction function, final int weight, final Optional<Integer> maxConcurrency)
+        {
+            this.queue = queue;
+            this.function = function;
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        int concurrencyWithin(final int workers, final int totalWeight)
+        {
+            // share of the workers in proportion to weight, but never none
+            final int share = Math.max(1, workers * weight / totalWeight);
+
+            return maxConcurrency.isPresent() ? Math.min(share, maxConcurrency.get()) : share;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.qmetric.penfold.client.app;
+
+import com.qmetric.penfold.client.app.support.PollingBackoff;
+import com.qmetric.penfold.client.app.transport.CircuitBreakerTransport;
+import com.qmetric.penfold.client.domain.services.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the polls of a single queue, either at a fixed rate or adaptively. Polls are skipped whilst the circuit to the server is open.
+ */
+class QueuePoller
+{
+    private static final Logger LOG = LoggerFactory.getLogger(QueuePoller.class);
+
+    private final Consumer consumer;
+
+    private final Duration interval;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Optional<PollingBackoff> adaptivePolling;
+
+    private final Optional<CircuitBreakerTransport> circuitBreaker;
+
+    QueuePoller(final Consumer consumer, final Duration interval, final ScheduledExecutorService scheduler, final Optional<PollingBackoff> adaptivePolling)
+    {
+        this(consumer, interval, scheduler, adaptivePolling, Optional.empty());
+    }
+
+    QueuePoller(final Consumer consumer, final Duration interval, final ScheduledExecutorService scheduler, final Optional<PollingBackoff> adaptivePolling,
+                final Optional<CircuitBreakerTransport> circuitBreaker)
+    {
+        this.consumer = consumer;
+        this.interval = interval;
+        this.scheduler = scheduler;
+        this.adaptivePolling = adaptivePolling;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    void start()
+    {
+        if (adaptivePolling.isPresent())
+        {
+            scheduler.schedule(this::consumeAndReschedule, randomInitialDelay(), TimeUnit.MILLISECONDS);
+        }
+        else
+        {
+            scheduler.scheduleAtFixedRate(this::consume, randomInitialDelay(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private long randomInitialDelay()
+    {
+        // spread consumers started together across the polling interval
+        return ThreadLocalRandom.current().nextLong(Math.max(interval.toMillis(), 1));
+    }
+
+    private void consumeAndReschedule()
+    {
+        final Duration delay = adaptivePolling.get().nextDelay(consume());
+
+        try
+        {
+            scheduler.schedule(this::consumeAndReschedule, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        catch (final RejectedExecutionException e)
+        {
+            LOG.info(String.format("stopped polling %s queue", consumer.getQueue()));
+        }
+    }
+
+    private int consume()
+    {
+        if (circuitBreaker.isPresent() && !circuitBreaker.get().allowsRequests())
+        {
+            LOG.info(String.format("penfold server circuit open - not polling %s queue", consumer.getQueue()));
+
+            return 0;
+        }
+
+        try
+        {
+            LOG.info(String.format("consuming from %s queue", consumer.getQueue()));
+
+            final int tasksStarted = consumer.consume();
+
+            LOG.info(String.format("successfully consumed from %s queue", consumer.getQueue()));
+
+            return tasksStarted;
+        }
+        catch (final Exception | Error e)
+        {
+            LOG.error(String.format("failed to consume from queue %s", consumer.getQueue()), e);
+
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.qmetric.penfold.client.app;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.qmetric.penfold.client.domain.model.Task;
+import com.qmetric.penfold.client.domain.model.TaskId;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Latest version seen of each task, whether found by id, on a page of tasks or returned from a command. Bounded in size and in how long a task is
+ * kept, as changes made by other clients are only seen once the task is loaded again.
+ */
+public class TaskCache
+{
+    private final Cache<TaskId, Task> tasks;
+
+    public TaskCache(final int maximumSize, final Duration timeToLive)
+    {
+        this("default", maximumSize, timeToLive, new MetricRegistry());
+    }
+
+    /**
+     * @param name Name of the cache in its metrics, telling it apart from other caches recording in the same registry
+     */
+    public TaskCache(final String name, final int maximumSize, final Duration timeToLive, final MetricRegistry metricRegistry)
+    {
+        checkArgument(maximumSize > 0, "task cache size must be positive");
+        checkArgument(!timeToLive.isNegative() && !timeToLive.isZero(), "task cache time to live must be positive");
+        this.tasks = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS).recordStats().build();
+
+        metricRegistry.register(name("penfold.query", "task-cache", name, "hits"), (Gauge<Long>) () -> tasks.stats().hitCount());
+        metricRegistry.register(name("penfold.query", "task-cache", name, "misses"), (Gauge<Long>) () -> tasks.stats().missCount());
+        metricRegistry.register(name("penfold.query", "task-cache", name, "evictions"), (Gauge<Long>) () -> tasks.stats().evictionCount());
+    }
+
+    /**
+     * @return Cached task, otherwise the task loaded and cached. Concurrent lookups of the same uncached task wait on the one load
+     */
+    Optional<Task> find(final TaskId id, final Function<TaskId, Optional<Task>> loader)
+    {
+        try
+        {
+            return Optional.of(tasks.get(id, () -> loader.apply(id).orElseThrow(TaskNotFoundException::new)));
+        }
+        catch (final ExecutionException e)
+        {
+            // not found is not cached, so that the task is found once created
+            return Optional.empty();
+        }
+        catch (final UncheckedExecutionException e)
+        {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * @return Task observed, cached unless a later version of the task is already cached
+     */
+    Task observe(final Task task)
+    {
+        tasks.asMap().merge(task.id, task, (cached, observed) -> observed.version >= cached.version ? observed : cached);
+
+        return task;
+    }
+
+    /**
+     * Forget the task, known to have changed since cached.
+     */
+    void invalidate(final TaskId id)
+    {
+        tasks.invalidate(id);
+    }
+
+    private static class TaskNotFoundException extends Exception
+    {
+        TaskNotFoundException()
+        {
+            super(null, null, false, false);
+        }
+    }
+}
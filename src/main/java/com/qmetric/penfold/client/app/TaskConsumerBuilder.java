@@ -1,21 +1,36 @@
 package com.qmetric.penfold.client.app;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.health.HealthCheckRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.qmetric.penfold.client.app.support.ClientFactory;
+import com.google.common.collect.ImmutableList;
 import com.qmetric.penfold.client.app.support.Credentials;
+import com.qmetric.penfold.client.app.support.ExecutorFactory;
+import com.qmetric.penfold.client.app.support.HttpConnectionPool;
 import com.qmetric.penfold.client.app.support.LocalDateTimeSource;
 import com.qmetric.penfold.client.app.support.ObjectMapperFactory;
+import com.qmetric.penfold.client.app.support.PollingBackoff;
+import com.qmetric.penfold.client.app.transport.CircuitBreakerTransport;
+import com.qmetric.penfold.client.app.transport.Transport;
+import com.qmetric.penfold.client.app.transport.UrlConnectionTransport;
 import com.qmetric.penfold.client.domain.model.QueueId;
 import com.qmetric.penfold.client.domain.services.ConsumerFunction;
+import com.qmetric.penfold.client.domain.services.ClaimStrategy;
 import com.qmetric.penfold.client.domain.services.Consumer;
+import com.qmetric.penfold.client.domain.services.ConsumerPipeline;
+import com.qmetric.penfold.client.domain.services.PartitionedClaimStrategy;
+import com.qmetric.penfold.client.domain.services.ReplyRetryScheduler;
+import com.qmetric.penfold.client.domain.services.ShuffledClaimStrategy;
 import com.qmetric.penfold.client.domain.services.TaskConsumer;
 import com.qmetric.penfold.client.domain.services.TaskQueryService;
 import com.qmetric.penfold.client.domain.services.TaskStoreService;
 import com.qmetric.penfold.client.domain.services.events.Notifier;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -27,16 +42,44 @@ public class TaskConsumerBuilder
 
     private ConsumerFunction function;
 
-    private Credentials credentials;
+    private final TransportConfiguration transportConfiguration = new TransportConfiguration();
 
     private Duration pollingFrequency = Duration.ofMinutes(1);
 
     private Optional<Duration> retryDelay = Optional.empty();
 
+    private Optional<Duration> adaptivePollingMinimumDelay = Optional.empty();
+
     private Optional<Duration> minimumTimeBetweenConsumingForHealthCheck = Optional.empty();
 
     private Optional<HealthCheckRegistry> healthCheckRegistry = Optional.empty();
 
+    private ClaimStrategy claimStrategy = ClaimStrategy.PAGE_ORDER;
+
+    private int claimShuffleMinimumWindow = 0;
+
+    private int claimShuffleMaximumWindow = 0;
+
+    private int maxPendingReplyRetries = 0;
+
+    private Duration replyRetryInitialBackoff = Duration.ofSeconds(1);
+
+    private Duration replyRetryMaxBackoff = Duration.ofMinutes(5);
+
+    private int taskCacheSize = 0;
+
+    private Optional<Duration> taskCacheTimeToLive = Optional.empty();
+
+    private Optional<MetricRegistry> metricRegistry = Optional.empty();
+
+    private int concurrency = 1;
+
+    private int pagePrefetchDepth = 0;
+
+    private int pipelineRequestConcurrency = 0;
+
+    private int pipelineQueueCapacity = 0;
+
     /**
      * Penfold server url
      *
@@ -58,7 +101,7 @@ public class TaskConsumerBuilder
      */
     public TaskConsumerBuilder withCredentials(final String username, final String password)
     {
-        this.credentials = new Credentials(username, password);
+        transportConfiguration.setCredentials(new Credentials(username, password));
         return this;
     }
 
@@ -98,6 +141,19 @@ public class TaskConsumerBuilder
         return this;
     }
 
+    /**
+     * Poll again straight away whilst ready tasks are being started, otherwise back off exponentially from the minimum delay up to the polling
+     * frequency (default disabled, polling at a fixed rate).
+     *
+     * @param minimumDelay Delay after the first poll to start no tasks
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withAdaptivePolling(final Duration minimumDelay)
+    {
+        this.adaptivePollingMinimumDelay = Optional.of(minimumDelay);
+        return this;
+    }
+
     /**
      * How long to wait before retying after a task fails to be consumed (default no delay).
      *
@@ -124,14 +180,247 @@ public class TaskConsumerBuilder
         return this;
     }
 
+    /**
+     * Number of tasks to consume in parallel (default 1). Tasks are only pulled from the queue as workers become free.
+     *
+     * @param concurrency Number of worker threads
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withConcurrency(final int concurrency)
+    {
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Number of pages of tasks to load in the background ahead of the page being consumed (default 0, no prefetching).
+     *
+     * @param depth Number of pages to prefetch
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withPagePrefetching(final int depth)
+    {
+        this.pagePrefetchDepth = depth;
+        return this;
+    }
+
+    /**
+     * Consume tasks in stages rather than each task start to finish on one worker, so that waiting on the server overlaps with executing the
+     * consumer function (default disabled). Tasks are started ahead of need and replied to on separate request workers, and executed on the workers
+     * set by the concurrency, with each stage held up whilst the queue to the next stage is full.
+     *
+     * @param requestConcurrency Number of request worker threads, starting and replying to tasks
+     * @param queueCapacity Number of tasks waiting to be executed, and of replies waiting to be applied, beyond those being worked on
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withPipelining(final int requestConcurrency, final int queueCapacity)
+    {
+        this.pipelineRequestConcurrency = requestConcurrency;
+        this.pipelineQueueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Shared http connections to use instead of connections dedicated to this consumer. The pool is not closed along with the consumer.
+     *
+     * @param connectionPool Existing connection pool
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withConnectionPool(final HttpConnectionPool connectionPool)
+    {
+        transportConfiguration.setConnectionPool(connectionPool);
+        return this;
+    }
+
+    /**
+     * Transport to send requests to the server with instead of a dedicated Apache http client, such as {@link UrlConnectionTransport}. Credentials
+     * and connection pool are then left to the transport.
+     *
+     * @param transport Transport
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withTransport(final Transport transport)
+    {
+        transportConfiguration.setTransport(transport);
+        return this;
+    }
+
+    /**
+     * Limit the requests in flight to the server, adapting the limit to the server's response times, conflicts and server errors rather than
+     * sending ever more requests to a server that is struggling (default unlimited). Workers hold off starting and replying to tasks whilst the
+     * limit is reached.
+     *
+     * @param initialLimit Requests in flight to start with
+     * @param maxLimit Most requests in flight the limit grows to
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withAdaptiveConcurrencyLimit(final int initialLimit, final int maxLimit)
+    {
+        transportConfiguration.setAdaptiveConcurrencyLimit(initialLimit, maxLimit);
+        return this;
+    }
+
+    /**
+     * Fail requests fast whilst the server is failing, rather than each request waiting out the connection timeouts (default disabled). The circuit
+     * opens once the share of failed requests among the most recent reaches the threshold, and after the open duration lets a few trial requests
+     * through, closing once they succeed. Polling is paused whilst the circuit is open.
+     *
+     * @param failureRateThreshold Share of requests failed, between 0 and 1, that opens the circuit
+     * @param windowSize Number of most recent requests the share is taken over
+     * @param openDuration Time to fail requests fast for before trying the server again
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withCircuitBreaker(final double failureRateThreshold, final int windowSize, final Duration openDuration)
+    {
+        transportConfiguration.setCircuitBreaker(failureRateThreshold, windowSize, openDuration);
+        return this;
+    }
+
+    /**
+     * As {@link #withCircuitBreaker(double, int, Duration)}, with a health check reporting the server unhealthy whilst the circuit is not closed, named
+     * {@code <queue> penfold server circuit breaker}.
+     *
+     * @param failureRateThreshold Share of requests failed, between 0 and 1, that opens the circuit
+     * @param windowSize Number of most recent requests the share is taken over
+     * @param openDuration Time to fail requests fast for before trying the server again
+     * @param healthCheckRegistry Existing health check registry
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withCircuitBreaker(final double failureRateThreshold, final int windowSize, final Duration openDuration,
+                                                  final HealthCheckRegistry healthCheckRegistry)
+    {
+        transportConfiguration.setCircuitBreakerHealthCheckRegistry(healthCheckRegistry);
+        return withCircuitBreaker(failureRateThreshold, windowSize, openDuration);
+    }
+
+    /**
+     * Share the tasks of the queue between a group of consumers, this one being the given member of the group, so that members attempt their own
+     * tasks rather than all racing to start the same ones (default disabled, attempting every task). Tasks of other members are only attempted once
+     * ready for longer than the steal threshold, after this member's own tasks.
+     *
+     * @param member Member of the group, from 0
+     * @param groupSize Number of members in the group
+     * @param stealAfter How long a task of another member is left ready before this member attempts it
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withPartitionedClaiming(final int member, final int groupSize, final Duration stealAfter)
+    {
+        this.claimStrategy = new PartitionedClaimStrategy(member, groupSize, stealAfter, new LocalDateTimeSource());
+        return this;
+    }
+
+    /**
+     * Share the tasks of the queue between a group of consumers identified by name, this one being the given member of the group (default
+     * disabled, attempting every task). Adding or removing a member only moves the tasks that member gains or loses.
+     *
+     * @param member Member of the group
+     * @param members Every member of the group, including this one
+     * @param stealAfter How long a task of another member is left ready before this member attempts it
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withPartitionedClaiming(final String member, final Collection<String> members, final Duration stealAfter)
+    {
+        this.claimStrategy = new PartitionedClaimStrategy(member, members, stealAfter, new LocalDateTimeSource());
+        return this;
+    }
+
+    /**
+     * Attempt ready tasks in a random order within a window sliding over the queue rather than in the order of the queue, so that competing
+     * consumers do not collide on the same tasks (default disabled). The window widens from the minimum towards the maximum number of tasks as the
+     * rate of tasks started first by another consumer rises.
+     *
+     * @param minimumWindow Number of tasks shuffled whilst there are no conflicts
+     * @param maximumWindow Number of tasks shuffled whilst every attempt conflicts
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withShuffledClaiming(final int minimumWindow, final int maximumWindow)
+    {
+        this.claimShuffleMinimumWindow = minimumWindow;
+        this.claimShuffleMaximumWindow = maximumWindow;
+        return this;
+    }
+
+    /**
+     * Retry replies that fail to be applied in the background, backing off exponentially with jitter, rather than holding up the consumer until
+     * the reply is applied (default disabled, retrying every 10 seconds). Replies still pending on shutdown are attempted once more.
+     *
+     * @param maxPending Number of replies retried in the background, beyond which the consumer waits on its replies again
+     * @param initialBackoff Delay before the first retry, doubled for each retry after
+     * @param maxBackoff Longest delay between retries
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withBackgroundReplyRetries(final int maxPending, final Duration initialBackoff, final Duration maxBackoff)
+    {
+        this.maxPendingReplyRetries = maxPending;
+        this.replyRetryInitialBackoff = initialBackoff;
+        this.replyRetryMaxBackoff = maxBackoff;
+        return this;
+    }
+
+    /**
+     * Keep the latest version seen of up to the given number of tasks, from the tasks polled and the commands sent, so that replying to a task
+     * found to have changed since it was started does not always go back to the server for it (default disabled). Tasks found to have changed by a
+     * conflicting command are no longer kept.
+     *
+     * @param size Number of tasks to keep
+     * @param timeToLive How long to keep each task for
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withTaskCache(final int size, final Duration timeToLive)
+    {
+        this.taskCacheSize = size;
+        this.taskCacheTimeToLive = Optional.of(timeToLive);
+        return this;
+    }
+
+    /**
+     * Registry to record timings and counts of the consumer's requests, tasks consumed and replies in (default none).
+     *
+     * @param metricRegistry Metric registry
+     * @return Updated builder
+     */
+    public TaskConsumerBuilder withMetrics(final MetricRegistry metricRegistry)
+    {
+        this.metricRegistry = Optional.of(metricRegistry);
+        return this;
+    }
+
     public TaskConsumer build()
     {
         checkValid();
 
         final ObjectMapper objectMapper = ObjectMapperFactory.create();
 
-        final TaskQueryService taskQueryService = new TaskQueryServiceImpl(url, ClientFactory.createHttpClient(credentials), objectMapper);
-        final TaskStoreService taskStoreService = new TaskStoreServiceImpl(url, ClientFactory.createHttpClient(credentials), objectMapper);
+        final MetricRegistry metrics = metricRegistry.orElseGet(MetricRegistry::new);
+
+        // query and store share connections, the concurrency limit and the circuit breaker
+        final Transport limitedTransport = transportConfiguration.concurrencyLimited(queue.value, metrics);
+        final Optional<CircuitBreakerTransport> circuitBreaker = transportConfiguration.circuitBreakerAround(limitedTransport, queue.value, metrics);
+        final Transport transport = circuitBreaker.isPresent() ? circuitBreaker.get() : limitedTransport;
+
+        final Optional<ExecutorService> prefetchExecutor = pagePrefetchDepth > 0 ? Optional.of(ExecutorFactory.createPrefetchExecutor()) : Optional.empty();
+
+        final TaskQueryService queryService = prefetchExecutor.isPresent() ?
+                new TaskQueryServiceImpl(url, transport, objectMapper, pagePrefetchDepth, prefetchExecutor.get(), metrics, TaskQueryServiceImpl.DEFAULT_PAGE_CACHE_SIZE) :
+                new TaskQueryServiceImpl(url, transport, objectMapper, 0, Runnable::run, metrics, TaskQueryServiceImpl.DEFAULT_PAGE_CACHE_SIZE);
+        final TaskStoreService storeService = new TaskStoreServiceImpl(url, transport, objectMapper, 1, Runnable::run, metrics);
+
+        final TaskQueryService taskQueryService;
+        final TaskStoreService taskStoreService;
+
+        if (taskCacheTimeToLive.isPresent())
+        {
+            // query and store share the task cache, so that tasks returned from commands are found without a request
+            final TaskCache taskCache = new TaskCache(queue.value, taskCacheSize, taskCacheTimeToLive.get(), metrics);
+
+            taskQueryService = new CachingTaskQueryService(queryService, taskCache);
+            taskStoreService = new CachingTaskStoreService(storeService, taskCache);
+        }
+        else
+        {
+            taskQueryService = queryService;
+            taskStoreService = storeService;
+        }
 
         final LocalDateTimeSource dateTimeSource = new LocalDateTimeSource();
 
@@ -149,9 +438,59 @@ public class TaskConsumerBuilder
             eventNotifier = Notifier.EMPTY;
         }
 
-        final Consumer consumer = new Consumer(queue, function, retryDelay, taskQueryService, taskStoreService, dateTimeSource, eventNotifier);
+        final Optional<PollingBackoff> adaptivePolling = adaptivePollingMinimumDelay.isPresent() ?
+                Optional.of(new PollingBackoff(adaptivePollingMinimumDelay.get(), pollingFrequency)) :
+                Optional.empty();
+
+        final Optional<ReplyRetryScheduler> replyRetryScheduler = maxPendingReplyRetries > 0 ?
+                Optional.of(new ReplyRetryScheduler(queue, ExecutorFactory.createScheduler(String.format("reply-retries-%s", queue.value), 1), maxPendingReplyRetries,
+                                                    replyRetryInitialBackoff, replyRetryMaxBackoff, metrics)) :
+                Optional.empty();
+
+        final Consumer.Builder consumerBuilder = new Consumer.Builder(queue, function, retryDelay, taskQueryService, taskStoreService, dateTimeSource, eventNotifier) //
+                .withMetrics(metrics) //
+                .withClaimStrategy(claimStrategyForConsumer()) //
+                .withReplyRetryScheduler(replyRetryScheduler);
+
+        // pages still loading once the workers are done are abandoned last
+        final List<ExecutorService> prefetchExecutors = prefetchExecutor.map(ImmutableList::<ExecutorService>of).orElse(ImmutableList.of());
+
+        if (pipelineRequestConcurrency > 0)
+        {
+            final ExecutorService workerPool = ExecutorFactory.createWorkerPool(String.format("consumer-%s", queue.value), concurrency);
+            final ExecutorService requestPool =
+                    ExecutorFactory.createWorkerPool(String.format("consumer-requests-%s", queue.value), pipelineRequestConcurrency);
+
+            final ConsumerPipeline pipeline =
+                    new ConsumerPipeline(queue, workerPool, concurrency, requestPool, pipelineRequestConcurrency, pipelineQueueCapacity, metrics);
+
+            final Consumer consumer = consumerBuilder.withWorkers(workerPool, concurrency).withPipeline(pipeline).build();
+
+            // polling stops once every stage of the pipeline is drained, before the pools are terminated
+            return new TaskConsumerImpl(consumer, pollingFrequency,
+                                        ImmutableList.<ExecutorService>builder().add(workerPool, requestPool).addAll(prefetchExecutors).build(),
+                                        adaptivePolling, replyRetryScheduler, circuitBreaker);
+        }
+        else if (concurrency > 1)
+        {
+            final ExecutorService workerPool = ExecutorFactory.createWorkerPool(String.format("consumer-%s", queue.value), concurrency);
+
+            final Consumer consumer = consumerBuilder.withWorkers(workerPool, concurrency).build();
+
+            return new TaskConsumerImpl(consumer, pollingFrequency, ImmutableList.<ExecutorService>builder().add(workerPool).addAll(prefetchExecutors).build(),
+                                        adaptivePolling, replyRetryScheduler, circuitBreaker);
+        }
+        else
+        {
+            final Consumer consumer = consumerBuilder.build();
+
+            return new TaskConsumerImpl(consumer, pollingFrequency, prefetchExecutors, adaptivePolling, replyRetryScheduler, circuitBreaker);
+        }
+    }
 
-        return new TaskConsumerImpl(consumer, pollingFrequency);
+    private ClaimStrategy claimStrategyForConsumer()
+    {
+        return claimShuffleMaximumWindow > 0 ? new ShuffledClaimStrategy(claimStrategy, claimShuffleMinimumWindow, claimShuffleMaximumWindow) : claimStrategy;
     }
 
     private void checkValid()
@@ -161,7 +500,19 @@ public class TaskConsumerBuilder
         checkArgument(function != null, "missing function");
         checkArgument(pollingFrequency != null, "missing polling frequency");
         checkArgument(retryDelay != null, "missing retry delay");
+        checkArgument(!adaptivePollingMinimumDelay.isPresent() || adaptivePollingMinimumDelay.get().compareTo(pollingFrequency) <= 0,
+                      "adaptive polling minimum delay exceeds polling frequency");
         checkArgument(minimumTimeBetweenConsumingForHealthCheck != null, "missing minimumTimeBetweenConsumingForHealthCheck");
         checkArgument(healthCheckRegistry != null, "missing healthCheckRegistry");
+        checkArgument(concurrency > 0, "concurrency must be positive");
+        checkArgument(pagePrefetchDepth >= 0, "negative page prefetch depth");
+        checkArgument(!taskCacheTimeToLive.isPresent() || taskCacheSize > 0, "task cache size must be positive");
+        checkArgument(claimShuffleMinimumWindow >= 0, "negative claim shuffle window");
+        checkArgument(claimShuffleMaximumWindow == 0 || claimShuffleMinimumWindow > 0, "claim shuffle window must be positive");
+        checkArgument(claimShuffleMaximumWindow >= claimShuffleMinimumWindow, "maximum claim shuffle window less than minimum");
+        checkArgument(maxPendingReplyRetries >= 0, "negative max pending reply retries");
+        checkArgument(pipelineRequestConcurrency >= 0, "negative pipeline request concurrency");
+        checkArgument(pipelineQueueCapacity >= 0, "negative pipeline queue capacity");
+        transportConfiguration.checkValid();
     }
 }
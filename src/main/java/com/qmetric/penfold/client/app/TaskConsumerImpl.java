@@ -1,69 +1,55 @@
 package com.qmetric.penfold.client.app;
 
+import com.google.common.collect.ImmutableList;
+import com.qmetric.penfold.client.app.support.ExecutorFactory;
+import com.qmetric.penfold.client.app.support.PollingBackoff;
 import com.qmetric.penfold.client.app.support.ShutdownProcedure;
+import com.qmetric.penfold.client.app.transport.CircuitBreakerTransport;
 import com.qmetric.penfold.client.domain.services.Consumer;
+import com.qmetric.penfold.client.domain.services.ReplyRetryScheduler;
 import com.qmetric.penfold.client.domain.services.TaskConsumer;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
-import java.util.Random;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-
-import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
 
 public class TaskConsumerImpl implements TaskConsumer
 {
-    private static final Logger LOG = LoggerFactory.getLogger(TaskConsumerImpl.class);
-
-    private static final int RANDOM_INITIAL_DELAY = 60;
-
-    private final Consumer consumer;
-
-    private final Duration interval;
-
-    private final ScheduledExecutorService scheduledExecutorService;
+    private final QueuePoller poller;
 
     private final ShutdownProcedure shutdownProcedure;
 
     public TaskConsumerImpl(final Consumer consumer, final Duration interval)
     {
-        this.consumer = consumer;
-        this.interval = interval;
-        this.scheduledExecutorService = newSingleThreadScheduledExecutor();
-        this.shutdownProcedure = new ShutdownProcedure(scheduledExecutorService);
+        this(consumer, interval, ImmutableList.of(), Optional.empty(), Optional.empty(), Optional.empty());
     }
 
-    @Override public void start()
+    /**
+     * @param workerPools Pools the consumer hands tasks to, terminated in turn after polling stops
+     * @param circuitBreaker Circuit to the server, polling being paused whilst open
+     */
+    TaskConsumerImpl(final Consumer consumer, final Duration interval, final List<ExecutorService> workerPools, final Optional<PollingBackoff> adaptivePolling,
+                     final Optional<ReplyRetryScheduler> replyRetryScheduler, final Optional<CircuitBreakerTransport> circuitBreaker)
     {
-        scheduledExecutorService.scheduleAtFixedRate(this::consume, randomInitialDelay(), interval.getSeconds(), TimeUnit.SECONDS);
-        shutdownProcedure.registerShutdownHook();
-    }
+        final ScheduledExecutorService scheduledExecutorService = ExecutorFactory.createScheduler(String.format("poller-%s", consumer.getQueue()), 1);
+        this.poller = new QueuePoller(consumer, interval, scheduledExecutorService, adaptivePolling, circuitBreaker);
 
-    public void stop()
-    {
-        shutdownProcedure.runAndRemoveHook();
+        final List<ExecutorService> executorServices = ImmutableList.<ExecutorService>builder().add(scheduledExecutorService).addAll(workerPools).build();
+
+        // replies still pending once the workers are done are flushed last
+        this.shutdownProcedure = new ShutdownProcedure(executorServices, replyRetryScheduler.map(ImmutableList::of).orElse(ImmutableList.of()));
     }
 
-    private int randomInitialDelay()
+    @Override public void start()
     {
-        return new Random().nextInt(RANDOM_INITIAL_DELAY);
+        poller.start();
+        shutdownProcedure.registerShutdownHook();
     }
 
-    private void consume()
+    @Override public void stop()
     {
-        try
-        {
-            LOG.info(String.format("consuming from %s queue", consumer.getQueue()));
-
-            consumer.consume();
-
-            LOG.info(String.format("successfully consumed from %s queue", consumer.getQueue()));
-        }
-        catch (final Exception | Error e)
-        {
-            LOG.error(String.format("failed to consume from queue %s", consumer.getQueue()), e);
-        }
+        shutdownProcedure.runAndRemoveHook();
     }
 }
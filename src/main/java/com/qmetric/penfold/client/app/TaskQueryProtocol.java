@@ -0,0 +1,160 @@
+package com.qmetric.penfold.client.app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Multimap;
+import com.qmetric.penfold.client.app.commands.filter.Filter;
+import com.qmetric.penfold.client.app.support.QuerySerializer;
+import com.qmetric.penfold.client.app.transport.TransportRequest;
+import com.qmetric.penfold.client.app.transport.TransportResponse;
+import com.qmetric.penfold.client.domain.model.PageReference;
+import com.qmetric.penfold.client.domain.model.QueueId;
+import com.qmetric.penfold.client.domain.model.Task;
+import com.qmetric.penfold.client.domain.model.TaskId;
+import com.qmetric.penfold.client.domain.model.TaskStatus;
+import com.qmetric.penfold.client.domain.model.TasksPage;
+import org.apache.http.HttpHeaders;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.message.BasicNameValuePair;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+
+/**
+ * Requests and responses of the penfold query api, shared by the blocking and asynchronous query services.
+ */
+class TaskQueryProtocol
+{
+    private static final String HAL_JSON = "application/hal+json";
+
+    private static final Map<String, String> ACCEPT_HEADERS = ImmutableMap.of(HttpHeaders.ACCEPT, HAL_JSON);
+
+    private static final String RETRIEVE_TASKS_BY_QUEUE_URI_TEMPLATE = "%s/queues/%s/%s";
+
+    private static final String RETRIEVE_TASK_URI_TEMPLATE = "%s/tasks/%s";
+
+    private static final String RETRIEVE_TASKS_TEMPLATE = "%s/tasks";
+
+    private final String baseUri;
+
+    private final TaskResourceDecoder resourceDecoder;
+
+    private final QuerySerializer querySerializer;
+
+    TaskQueryProtocol(final String baseUri, final ObjectMapper objectMapper)
+    {
+        this.baseUri = baseUri;
+        this.resourceDecoder = new TaskResourceDecoder(objectMapper);
+        this.querySerializer = new QuerySerializer(objectMapper);
+    }
+
+    TransportRequest retrieveTaskRequest(final TaskId id)
+    {
+        return get(format(RETRIEVE_TASK_URI_TEMPLATE, baseUri, id.value), HashMultimap.create());
+    }
+
+    TransportRequest retrieveTasksRequest(final QueueId queue, final TaskStatus status, final List<Filter> filters, final Optional<PageReference> pageRequest)
+    {
+        return retrieveTasksRequest(format(RETRIEVE_TASKS_BY_QUEUE_URI_TEMPLATE, baseUri, queue.value, status), filters, pageRequest);
+    }
+
+    TransportRequest retrieveTasksRequest(final List<Filter> filters, final Optional<PageReference> pageRequest)
+    {
+        return retrieveTasksRequest(format(RETRIEVE_TASKS_TEMPLATE, baseUri), filters, pageRequest);
+    }
+
+    Optional<Task> taskFrom(final TransportResponse response) throws IOException
+    {
+        final int statusCode = response.status();
+        if (statusCode == HTTP_NOT_FOUND)
+        {
+            return Optional.empty();
+        }
+        checkResponseStatus(statusCode, 200);
+
+        try (final InputStream body = response.body())
+        {
+            return Optional.of(resourceDecoder.readTask(body));
+        }
+    }
+
+    TasksPage tasksPageFrom(final TransportResponse response) throws IOException
+    {
+        checkResponseStatus(response.status(), 200);
+
+        try (final InputStream body = response.body())
+        {
+            return resourceDecoder.readPage(body);
+        }
+    }
+
+    private TransportRequest retrieveTasksRequest(final String url, final List<Filter> filters, final Optional<PageReference> pageRequest)
+    {
+        final Multimap<String, String> queryString = queryString(filters);
+        appendPageParamToRequestIfPresent(pageRequest, queryString);
+
+        return get(url, queryString);
+    }
+
+    private void appendFiltersParamToRequestIfPresent(final Multimap<String, String> queryParams, final List<Filter> filters)
+    {
+        final Optional<String> queryValueAsString = querySerializer.serialize(filters);
+
+        if (queryValueAsString.isPresent())
+        {
+            queryParams.put("q", queryValueAsString.get());
+        }
+    }
+
+    private void appendPageParamToRequestIfPresent(final Optional<PageReference> pageRequest, final Multimap<String, String> queryParams)
+    {
+        if (pageRequest.isPresent())
+        {
+            queryParams.put("page", pageRequest.get().value);
+        }
+    }
+
+    private Multimap<String, String> queryString(final List<Filter> filters)
+    {
+        final Multimap<String, String> queryParams = HashMultimap.create();
+
+        appendFiltersParamToRequestIfPresent(queryParams, filters);
+
+        return queryParams;
+    }
+
+    private TransportRequest get(final String url, final Multimap<String, String> params)
+    {
+        try
+        {
+            final List<NameValuePair> nameValuePairs = params.entries().stream()
+                    .map((entry) -> new BasicNameValuePair(entry.getKey(), entry.getValue()))
+                    .collect(Collectors.toList());
+
+            final URI uri = new URIBuilder(url).addParameters(nameValuePairs).build();
+
+            return TransportRequest.get(uri, ACCEPT_HEADERS);
+        }
+        catch (URISyntaxException e)
+        {
+            throw new RuntimeException("Invalid URL for penfold client:", e);
+        }
+    }
+
+    private void checkResponseStatus(final int actualStatusCode, final int expectedStatusCode)
+    {
+        checkState(actualStatusCode == expectedStatusCode, "unexpected response %s", actualStatusCode);
+    }
+}
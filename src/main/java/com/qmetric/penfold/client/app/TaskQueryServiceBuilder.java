@@ -1,11 +1,19 @@
 package com.qmetric.penfold.client.app;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheckRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.qmetric.penfold.client.app.support.ClientFactory;
 import com.qmetric.penfold.client.app.support.Credentials;
+import com.qmetric.penfold.client.app.support.ExecutorFactory;
+import com.qmetric.penfold.client.app.support.HttpConnectionPool;
 import com.qmetric.penfold.client.app.support.ObjectMapperFactory;
+import com.qmetric.penfold.client.app.transport.CircuitBreakerTransport;
+import com.qmetric.penfold.client.app.transport.Transport;
+import com.qmetric.penfold.client.app.transport.UrlConnectionTransport;
 import com.qmetric.penfold.client.domain.services.TaskQueryService;
-import org.apache.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -13,7 +21,19 @@ public class TaskQueryServiceBuilder
 {
     private String url;
 
-    private Credentials credentials;
+    private final TransportConfiguration transportConfiguration = new TransportConfiguration();
+
+    private int pagePrefetchDepth = 0;
+
+    private int pageCacheSize = TaskQueryServiceImpl.DEFAULT_PAGE_CACHE_SIZE;
+
+    private int taskCacheSize = 0;
+
+    private Optional<Duration> taskCacheTimeToLive = Optional.empty();
+
+    private Optional<MetricRegistry> metricRegistry = Optional.empty();
+
+    private String metricsName = "query";
 
     /**
      * Penfold server url
@@ -36,23 +56,180 @@ public class TaskQueryServiceBuilder
      */
     public TaskQueryServiceBuilder withCredentials(final String username, final String password)
     {
-        this.credentials = new Credentials(username, password);
+        transportConfiguration.setCredentials(new Credentials(username, password));
+        return this;
+    }
+
+    /**
+     * Number of pages of tasks to load in the background ahead of the page being iterated (default 0, no prefetching).
+     *
+     * @param depth Number of pages to prefetch
+     * @return Updated builder
+     */
+    public TaskQueryServiceBuilder withPagePrefetching(final int depth)
+    {
+        this.pagePrefetchDepth = depth;
+        return this;
+    }
+
+    /**
+     * Number of most recently retrieved pages to keep along with the validators (ETag, Last-Modified) the server sent with them, so that pages
+     * unchanged since are not downloaded and decoded again (default 100, 0 to disable).
+     *
+     * @param size Number of pages to keep
+     * @return Updated builder
+     */
+    public TaskQueryServiceBuilder withPageCacheSize(final int size)
+    {
+        this.pageCacheSize = size;
+        return this;
+    }
+
+    /**
+     * Keep the latest version seen of up to the given number of tasks, whether found by id, iterated over or returned from a command, so that
+     * finding a task by id again within the time to live does not go to the server (default disabled).
+     *
+     * @param size Number of tasks to keep
+     * @param timeToLive How long to keep each task for
+     * @return Updated builder
+     */
+    public TaskQueryServiceBuilder withTaskCache(final int size, final Duration timeToLive)
+    {
+        this.taskCacheSize = size;
+        this.taskCacheTimeToLive = Optional.of(timeToLive);
+        return this;
+    }
+
+    /**
+     * Shared http connections to use instead of connections dedicated to this service. The pool is not closed along with the service.
+     *
+     * @param connectionPool Existing connection pool
+     * @return Updated builder
+     */
+    public TaskQueryServiceBuilder withConnectionPool(final HttpConnectionPool connectionPool)
+    {
+        transportConfiguration.setConnectionPool(connectionPool);
+        return this;
+    }
+
+    /**
+     * Transport to send requests to the server with instead of a dedicated Apache http client, such as {@link UrlConnectionTransport}. Credentials
+     * and connection pool are then left to the transport.
+     *
+     * @param transport Transport
+     * @return Updated builder
+     */
+    public TaskQueryServiceBuilder withTransport(final Transport transport)
+    {
+        transportConfiguration.setTransport(transport);
+        return this;
+    }
+
+    /**
+     * Limit the requests in flight to the server, adapting the limit to the server's response times, conflicts and server errors rather than
+     * sending ever more requests to a server that is struggling (default unlimited). Requests beyond the limit wait for one in flight to complete.
+     *
+     * @param initialLimit Requests in flight to start with
+     * @param maxLimit Most requests in flight the limit grows to
+     * @return Updated builder
+     */
+    public TaskQueryServiceBuilder withAdaptiveConcurrencyLimit(final int initialLimit, final int maxLimit)
+    {
+        transportConfiguration.setAdaptiveConcurrencyLimit(initialLimit, maxLimit);
         return this;
     }
 
+    /**
+     * Fail requests fast whilst the server is failing, rather than each request waiting out the connection timeouts (default disabled). The circuit
+     * opens once the share of failed requests among the most recent reaches the threshold, and after the open duration lets a few trial requests
+     * through, closing once they succeed.
+     *
+     * @param failureRateThreshold Share of requests failed, between 0 and 1, that opens the circuit
+     * @param windowSize Number of most recent requests the share is taken over
+     * @param openDuration Time to fail requests fast for before trying the server again
+     * @return Updated builder
+     */
+    public TaskQueryServiceBuilder withCircuitBreaker(final double failureRateThreshold, final int windowSize, final Duration openDuration)
+    {
+        transportConfiguration.setCircuitBreaker(failureRateThreshold, windowSize, openDuration);
+        return this;
+    }
+
+    /**
+     * As {@link #withCircuitBreaker(double, int, Duration)}, with a health check reporting the server unhealthy whilst the circuit is not closed, named
+     * {@code <name> penfold server circuit breaker} after the name given with {@link #withMetrics(MetricRegistry, String)}.
+     *
+     * @param failureRateThreshold Share of requests failed, between 0 and 1, that opens the circuit
+     * @param windowSize Number of most recent requests the share is taken over
+     * @param openDuration Time to fail requests fast for before trying the server again
+     * @param healthCheckRegistry Existing health check registry
+     * @return Updated builder
+     */
+    public TaskQueryServiceBuilder withCircuitBreaker(final double failureRateThreshold, final int windowSize, final Duration openDuration,
+                                                      final HealthCheckRegistry healthCheckRegistry)
+    {
+        transportConfiguration.setCircuitBreakerHealthCheckRegistry(healthCheckRegistry);
+        return withCircuitBreaker(failureRateThreshold, windowSize, openDuration);
+    }
+
+    /**
+     * Registry to record timings and counts of the service's requests and pages iterated in (default none).
+     *
+     * @param metricRegistry Metric registry
+     * @return Updated builder
+     */
+    public TaskQueryServiceBuilder withMetrics(final MetricRegistry metricRegistry)
+    {
+        this.metricRegistry = Optional.of(metricRegistry);
+        return this;
+    }
+
+    /**
+     * As {@link #withMetrics(MetricRegistry)}, with the given name in the names of metrics that would otherwise clash with those of another service
+     * recording in the same registry, such as gauges of the task cache or of the concurrency limit (default query).
+     *
+     * @param metricRegistry Metric registry
+     * @param name Name telling the service's metrics apart
+     * @return Updated builder
+     */
+    public TaskQueryServiceBuilder withMetrics(final MetricRegistry metricRegistry, final String name)
+    {
+        this.metricsName = name;
+        return withMetrics(metricRegistry);
+    }
+
     public TaskQueryService build()
     {
         checkValid();
 
-        final HttpClient httpClient = ClientFactory.createHttpClient(credentials);
+        final MetricRegistry metrics = metricRegistryOrDefault();
+
+        final Transport limitedTransport = transportConfiguration.concurrencyLimited(metricsName, metrics);
+        final Optional<CircuitBreakerTransport> circuitBreaker = transportConfiguration.circuitBreakerAround(limitedTransport, metricsName, metrics);
+        final Transport transport = circuitBreaker.isPresent() ? circuitBreaker.get() : limitedTransport;
 
         final ObjectMapper objectMapper = ObjectMapperFactory.create();
 
-        return new TaskQueryServiceImpl(url, httpClient, objectMapper);
+        final TaskQueryService taskQueryService = pagePrefetchDepth > 0 ?
+                new TaskQueryServiceImpl(url, transport, objectMapper, pagePrefetchDepth, ExecutorFactory.createPrefetchExecutor(), metrics, pageCacheSize) :
+                new TaskQueryServiceImpl(url, transport, objectMapper, 0, Runnable::run, metrics, pageCacheSize);
+
+        return taskCacheTimeToLive.isPresent() ?
+                new CachingTaskQueryService(taskQueryService, new TaskCache(metricsName, taskCacheSize, taskCacheTimeToLive.get(), metrics)) :
+                taskQueryService;
+    }
+
+    private MetricRegistry metricRegistryOrDefault()
+    {
+        return metricRegistry.orElseGet(MetricRegistry::new);
     }
 
     private void checkValid()
     {
         checkArgument(url != null, "missing url");
+        checkArgument(pagePrefetchDepth >= 0, "negative page prefetch depth");
+        checkArgument(pageCacheSize >= 0, "negative page cache size");
+        checkArgument(!taskCacheTimeToLive.isPresent() || taskCacheSize > 0, "task cache size must be positive");
+        transportConfiguration.checkValid();
     }
 }
@@ -0,0 +1,305 @@
+package com.qmetric.penfold.client.app;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.qmetric.penfold.client.app.support.PayloadReader;
+import com.qmetric.penfold.client.app.support.TaskDateTimeFormatter;
+import com.qmetric.penfold.client.domain.model.CommandType;
+import com.qmetric.penfold.client.domain.model.PageReference;
+import com.qmetric.penfold.client.domain.model.Payload;
+import com.qmetric.penfold.client.domain.model.QueueId;
+import com.qmetric.penfold.client.domain.model.Task;
+import com.qmetric.penfold.client.domain.model.TaskId;
+import com.qmetric.penfold.client.domain.model.TaskStatus;
+import com.qmetric.penfold.client.domain.model.TasksPage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Decodes HAL task resources straight from a response stream, one task at a time, without buffering the response or building a HAL tree. Payloads
+ * are copied out as raw json as they stream past, to be bound on demand.
+ */
+class TaskResourceDecoder
+{
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<Map<String, Object>>() {};
+
+    private static final String LINKS = "_links";
+
+    private static final String EMBEDDED = "_embedded";
+
+    private static final String TASK_ENTRIES_REL = "tasks";
+
+    private static final String PREVIOUS_LINK_REL = "previous";
+
+    private static final String NEXT_LINK_REL = "next";
+
+    private final ObjectMapper objectMapper;
+
+    private final PayloadReader payloadReader;
+
+    TaskResourceDecoder(final ObjectMapper objectMapper)
+    {
+        this.objectMapper = objectMapper;
+        this.payloadReader = new PayloadReader(objectMapper);
+    }
+
+    public Task readTask(final InputStream input) throws IOException
+    {
+        try (final JsonParser parser = objectMapper.getFactory().createParser(input))
+        {
+            expect(parser.nextToken(), START_OBJECT);
+
+            return readTask(parser);
+        }
+    }
+
+    public TasksPage readPage(final InputStream input) throws IOException
+    {
+        try (final JsonParser parser = objectMapper.getFactory().createParser(input))
+        {
+            expect(parser.nextToken(), START_OBJECT);
+
+            final List<Task> tasks = new ArrayList<>();
+            Map<String, Link> links = ImmutableMap.of();
+
+            while (parser.nextToken() == FIELD_NAME)
+            {
+                final String field = parser.getCurrentName();
+                parser.nextToken();
+
+                if (LINKS.equals(field))
+                {
+                    links = readLinks(parser);
+                }
+                else if (EMBEDDED.equals(field))
+                {
+                    readEmbeddedTasks(parser, tasks);
+                }
+                else
+                {
+                    parser.skipChildren();
+                }
+            }
+
+            return new TasksPage(tasks, pageReferenceFrom(links.get(PREVIOUS_LINK_REL)), pageReferenceFrom(links.get(NEXT_LINK_REL)));
+        }
+    }
+
+    private void readEmbeddedTasks(final JsonParser parser, final List<Task> tasks) throws IOException
+    {
+        expect(parser.getCurrentToken(), START_OBJECT);
+
+        while (parser.nextToken() == FIELD_NAME)
+        {
+            final String rel = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+
+            if (TASK_ENTRIES_REL.equals(rel) && value == START_ARRAY)
+            {
+                while (parser.nextToken() == START_OBJECT)
+                {
+                    tasks.add(readTask(parser));
+                }
+            }
+            else if (TASK_ENTRIES_REL.equals(rel) && value == START_OBJECT)
+            {
+                // a single embedded resource need not be wrapped in an array
+                tasks.add(readTask(parser));
+            }
+            else
+            {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private Task readTask(final JsonParser parser) throws IOException
+    {
+        String id = null;
+        Integer version = null;
+        Integer attempts = null;
+        String queue = null;
+        String status = null;
+        LocalDateTime created = null;
+        LocalDateTime triggerDate = null;
+        Payload payload = null;
+        Map<String, Link> links = ImmutableMap.of();
+
+        while (parser.nextToken() == FIELD_NAME)
+        {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+
+            switch (field)
+            {
+                case "id":
+                    id = parser.getText();
+                    break;
+                case "version":
+                    version = parser.getValueAsInt();
+                    break;
+                case "attempts":
+                    attempts = parser.getValueAsInt();
+                    break;
+                case "queue":
+                    queue = parser.getText();
+                    break;
+                case "status":
+                    status = parser.getText();
+                    break;
+                case "created":
+                    created = TaskDateTimeFormatter.parse(parser.getText());
+                    break;
+                case "triggerDate":
+                    triggerDate = TaskDateTimeFormatter.parse(parser.getText());
+                    break;
+                case "payload":
+                    payload = readPayload(parser);
+                    break;
+                case LINKS:
+                    links = readLinks(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        checkArgument(id != null && queue != null && status != null, "incomplete task resource %s", id);
+        checkArgument(version != null && attempts != null && created != null && triggerDate != null && payload != null, "incomplete task resource %s", id);
+
+        return new Task(new TaskId(id), version, new QueueId(queue), TaskStatus.of(status), created, triggerDate, attempts, payload, commandLinksFrom(links));
+    }
+
+    private Payload readPayload(final JsonParser parser) throws IOException
+    {
+        if (parser.getCurrentToken() != START_OBJECT)
+        {
+            return new Payload(objectMapper.readValue(parser, PAYLOAD_TYPE));
+        }
+
+        // copied token by token without decoding, and only bound when the consumer asks for it, as the type it asks for
+        final ByteArrayBuilder json = new ByteArrayBuilder();
+
+        try (final JsonGenerator generator = objectMapper.getFactory().createGenerator(json))
+        {
+            generator.copyCurrentStructure(parser);
+        }
+
+        return new Payload(json.toByteArray(), payloadReader);
+    }
+
+    private Map<String, Link> readLinks(final JsonParser parser) throws IOException
+    {
+        expect(parser.getCurrentToken(), START_OBJECT);
+
+        final Map<String, Link> links = new HashMap<>();
+
+        while (parser.nextToken() == FIELD_NAME)
+        {
+            final String rel = parser.getCurrentName();
+
+            if (parser.nextToken() == START_ARRAY)
+            {
+                // multiple links with the same rel, of which only the first is of interest
+                while (parser.nextToken() != END_ARRAY)
+                {
+                    final Link link = readLink(parser);
+                    links.putIfAbsent(rel, link);
+                }
+            }
+            else
+            {
+                links.put(rel, readLink(parser));
+            }
+        }
+
+        return links;
+    }
+
+    private Link readLink(final JsonParser parser) throws IOException
+    {
+        expect(parser.getCurrentToken(), START_OBJECT);
+
+        String href = null;
+        String name = null;
+
+        while (parser.nextToken() == FIELD_NAME)
+        {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+
+            if ("href".equals(field))
+            {
+                href = parser.getText();
+            }
+            else if ("name".equals(field))
+            {
+                name = parser.getText();
+            }
+            else
+            {
+                parser.skipChildren();
+            }
+        }
+
+        return new Link(href, name);
+    }
+
+    private Map<CommandType, String> commandLinksFrom(final Map<String, Link> links)
+    {
+        final ImmutableMap.Builder<CommandType, String> commandLinks = ImmutableMap.builder();
+
+        for (final CommandType commandType : CommandType.values())
+        {
+            final Link link = links.get(commandType.name());
+
+            if (link != null)
+            {
+                commandLinks.put(commandType, link.href);
+            }
+        }
+
+        return commandLinks.build();
+    }
+
+    private Optional<PageReference> pageReferenceFrom(final Link link)
+    {
+        return link != null ? Optional.of(new PageReference(link.name)) : Optional.empty();
+    }
+
+    private void expect(final JsonToken actual, final JsonToken expected)
+    {
+        checkArgument(actual == expected, "invalid task resource, expected %s but was %s", expected, actual);
+    }
+
+    private static class Link
+    {
+        final String href;
+
+        final String name;
+
+        Link(final String href, final String name)
+        {
+            this.href = href;
+            this.name = name;
+        }
+    }
+}
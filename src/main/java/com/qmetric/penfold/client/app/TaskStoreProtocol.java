@@ -0,0 +1,193 @@
+package com.qmetric.penfold.client.app;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.qmetric.penfold.client.app.commands.CreateTaskCommand;
+import com.qmetric.penfold.client.app.transport.RequestBody;
+import com.qmetric.penfold.client.app.transport.TransportRequest;
+import com.qmetric.penfold.client.app.transport.TransportResponse;
+import com.qmetric.penfold.client.domain.exceptions.ConflictException;
+import com.qmetric.penfold.client.domain.model.CommandType;
+import com.qmetric.penfold.client.domain.model.NewTask;
+import com.qmetric.penfold.client.domain.model.Task;
+import com.qmetric.penfold.client.domain.model.TaskId;
+import org.apache.http.HttpHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+/**
+ * Requests and responses of the penfold command api, shared by the blocking and asynchronous store services.
+ */
+class TaskStoreProtocol
+{
+    private static final Logger LOG = LoggerFactory.getLogger(TaskStoreProtocol.class);
+
+    private static final String HAL_JSON = "application/hal+json";
+
+    private static final Map<String, String> ACCEPT_HEADERS = ImmutableMap.of(HttpHeaders.ACCEPT, HAL_JSON);
+
+    private static final String CREATE_TASK_URI_TEMPLATE = "%s/tasks";
+
+    private static final String RETRIEVE_TASK_URI_TEMPLATE = "%s/tasks/%s";
+
+    private static final String CONTENT_TYPE_TEMPLATE = "application/json;domain-command=%s";
+
+    private static final Map<CommandType, Map<String, String>> COMMAND_HEADERS = commandHeaders();
+
+    private final String baseUri;
+
+    private final URI createTaskUri;
+
+    private final ObjectMapper objectMapper;
+
+    private final TaskResourceDecoder resourceDecoder;
+
+    TaskStoreProtocol(final String baseUri, final ObjectMapper objectMapper)
+    {
+        this.baseUri = baseUri;
+        this.createTaskUri = URI.create(format(CREATE_TASK_URI_TEMPLATE, baseUri));
+        this.objectMapper = objectMapper;
+        this.resourceDecoder = new TaskResourceDecoder(objectMapper);
+    }
+
+    TransportRequest createRequest(final NewTask task)
+    {
+        final CommandType commandType = task.triggerDate.isPresent() ? CommandType.CreateFutureTask : CommandType.CreateTask;
+
+        return TransportRequest.post(createTaskUri, COMMAND_HEADERS.get(commandType), streamed(new CreateTaskCommand(task)));
+    }
+
+    Task createdTaskFrom(final TransportResponse response) throws IOException
+    {
+        checkResponseStatus(response.status(), 201);
+        return taskFrom(response);
+    }
+
+    /**
+     * @return Link for the command from the task's known command links, or empty when the task has none and the link must be retrieved from the server.
+     */
+    Optional<String> knownCommandLink(final Task task, final CommandType commandType)
+    {
+        if (!task.commandLinks.isEmpty() && !task.commandLinks.containsKey(commandType))
+        {
+            throw conflict(task, commandType);
+        }
+
+        return Optional.ofNullable(task.commandLinks.get(commandType));
+    }
+
+    TransportRequest retrieveTaskRequest(final TaskId id)
+    {
+        return TransportRequest.get(URI.create(format(RETRIEVE_TASK_URI_TEMPLATE, baseUri, id)), ACCEPT_HEADERS);
+    }
+
+    /**
+     * @return Link for the command from the stored version of the task, provided the stored version is the version being updated.
+     */
+    String commandLinkFrom(final TransportResponse storedTaskResponse, final Task task, final CommandType commandType) throws IOException
+    {
+        checkResponseStatus(storedTaskResponse.status(), 200);
+
+        final Task storedTask = taskFrom(storedTaskResponse);
+
+        if (!task.version.equals(storedTask.version))
+        {
+            throw new ConflictException(String.format("Task merge conflict %s", task.id));
+        }
+        else if (!storedTask.commandLinks.containsKey(commandType))
+        {
+            throw conflict(task, commandType);
+        }
+
+        return storedTask.commandLinks.get(commandType);
+    }
+
+    TransportRequest commandRequest(final String commandLink, final Object command, final CommandType commandType)
+    {
+        return TransportRequest.post(URI.create(commandLink), COMMAND_HEADERS.get(commandType), RequestBody.of(toJson(command)));
+    }
+
+    Task updatedTaskFrom(final TransportResponse response, final Task task, final CommandType commandType) throws IOException
+    {
+        final int responseStatus = response.status();
+        if (responseStatus == 409)
+        {
+            throw new ConflictException(String.format("conflict when attempting to %s task %s", commandType, task.id));
+        }
+        checkResponseStatus(responseStatus, 200);
+        return taskFrom(response);
+    }
+
+    private ConflictException conflict(final Task task, final CommandType commandType)
+    {
+        return new ConflictException(String.format("conflict when attempting to %s %s", commandType, task.id));
+    }
+
+    private void checkResponseStatus(final int actualStatusCode, final int expectedStatusCode)
+    {
+        checkState(actualStatusCode == expectedStatusCode, "Unexpected response %s", actualStatusCode);
+    }
+
+    private byte[] toJson(final Object object)
+    {
+        try
+        {
+            return objectMapper.writeValueAsBytes(object);
+        }
+        catch (final JsonProcessingException e)
+        {
+            LOG.error(String.format("failed to parse command %s", object), e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return Body serialized as json straight into the request, rather than into a string first
+     */
+    private RequestBody streamed(final Object object)
+    {
+        return output -> {
+            try (final JsonGenerator generator = objectMapper.getFactory().createGenerator(output))
+            {
+                // the request's stream is left for the transport to close
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                objectMapper.writeValue(generator, object);
+            }
+        };
+    }
+
+    private Task taskFrom(final TransportResponse response) throws IOException
+    {
+        try (final InputStream body = response.body())
+        {
+            return resourceDecoder.readTask(body);
+        }
+    }
+
+    private static Map<CommandType, Map<String, String>> commandHeaders()
+    {
+        final Map<CommandType, Map<String, String>> headers = new EnumMap<>(CommandType.class);
+
+        for (final CommandType commandType : CommandType.values())
+        {
+            headers.put(commandType, ImmutableMap.<String, String>builder()
+                    .putAll(ACCEPT_HEADERS)
+                    .put(HttpHeaders.CONTENT_TYPE, format(CONTENT_TYPE_TEMPLATE, commandType.name()))
+                    .build());
+        }
+
+        return headers;
+    }
+}
@@ -1,11 +1,19 @@
 package com.qmetric.penfold.client.app;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheckRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.qmetric.penfold.client.app.support.ClientFactory;
 import com.qmetric.penfold.client.app.support.Credentials;
+import com.qmetric.penfold.client.app.support.ExecutorFactory;
+import com.qmetric.penfold.client.app.support.HttpConnectionPool;
 import com.qmetric.penfold.client.app.support.ObjectMapperFactory;
+import com.qmetric.penfold.client.app.transport.CircuitBreakerTransport;
+import com.qmetric.penfold.client.app.transport.Transport;
+import com.qmetric.penfold.client.app.transport.UrlConnectionTransport;
 import com.qmetric.penfold.client.domain.services.TaskStoreService;
-import org.apache.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -13,7 +21,13 @@ public class TaskStoreServiceBuilder
 {
     private String url;
 
-    private Credentials credentials;
+    private final TransportConfiguration transportConfiguration = new TransportConfiguration();
+
+    private int bulkCreateConcurrency = 10;
+
+    private Optional<MetricRegistry> metricRegistry = Optional.empty();
+
+    private String metricsName = "store";
 
     /**
      * Penfold server url
@@ -36,23 +50,145 @@ public class TaskStoreServiceBuilder
      */
     public TaskStoreServiceBuilder withCredentials(final String username, final String password)
     {
-        this.credentials = new Credentials(username, password);
+        transportConfiguration.setCredentials(new Credentials(username, password));
+        return this;
+    }
+
+    /**
+     * Maximum number of creates in flight when creating tasks in bulk (default 10, matching the connections available per server).
+     *
+     * @param concurrency Maximum number of concurrent creates
+     * @return Updated builder
+     */
+    public TaskStoreServiceBuilder withBulkCreateConcurrency(final int concurrency)
+    {
+        this.bulkCreateConcurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Shared http connections to use instead of connections dedicated to this service. The pool is not closed along with the service.
+     *
+     * @param connectionPool Existing connection pool
+     * @return Updated builder
+     */
+    public TaskStoreServiceBuilder withConnectionPool(final HttpConnectionPool connectionPool)
+    {
+        transportConfiguration.setConnectionPool(connectionPool);
+        return this;
+    }
+
+    /**
+     * Transport to send requests to the server with instead of a dedicated Apache http client, such as {@link UrlConnectionTransport}. Credentials
+     * and connection pool are then left to the transport.
+     *
+     * @param transport Transport
+     * @return Updated builder
+     */
+    public TaskStoreServiceBuilder withTransport(final Transport transport)
+    {
+        transportConfiguration.setTransport(transport);
+        return this;
+    }
+
+    /**
+     * Limit the requests in flight to the server, adapting the limit to the server's response times, conflicts and server errors rather than
+     * sending ever more requests to a server that is struggling (default unlimited). Creates in bulk are held to the limit as well as to the bulk
+     * create concurrency.
+     *
+     * @param initialLimit Requests in flight to start with
+     * @param maxLimit Most requests in flight the limit grows to
+     * @return Updated builder
+     */
+    public TaskStoreServiceBuilder withAdaptiveConcurrencyLimit(final int initialLimit, final int maxLimit)
+    {
+        transportConfiguration.setAdaptiveConcurrencyLimit(initialLimit, maxLimit);
+        return this;
+    }
+
+    /**
+     * Fail requests fast whilst the server is failing, rather than each request waiting out the connection timeouts (default disabled). The circuit
+     * opens once the share of failed requests among the most recent reaches the threshold, and after the open duration lets a few trial requests
+     * through, closing once they succeed.
+     *
+     * @param failureRateThreshold Share of requests failed, between 0 and 1, that opens the circuit
+     * @param windowSize Number of most recent requests the share is taken over
+     * @param openDuration Time to fail requests fast for before trying the server again
+     * @return Updated builder
+     */
+    public TaskStoreServiceBuilder withCircuitBreaker(final double failureRateThreshold, final int windowSize, final Duration openDuration)
+    {
+        transportConfiguration.setCircuitBreaker(failureRateThreshold, windowSize, openDuration);
         return this;
     }
 
+    /**
+     * As {@link #withCircuitBreaker(double, int, Duration)}, with a health check reporting the server unhealthy whilst the circuit is not closed, named
+     * {@code <name> penfold server circuit breaker} after the name given with {@link #withMetrics(MetricRegistry, String)}.
+     *
+     * @param failureRateThreshold Share of requests failed, between 0 and 1, that opens the circuit
+     * @param windowSize Number of most recent requests the share is taken over
+     * @param openDuration Time to fail requests fast for before trying the server again
+     * @param healthCheckRegistry Existing health check registry
+     * @return Updated builder
+     */
+    public TaskStoreServiceBuilder withCircuitBreaker(final double failureRateThreshold, final int windowSize, final Duration openDuration,
+                                                      final HealthCheckRegistry healthCheckRegistry)
+    {
+        transportConfiguration.setCircuitBreakerHealthCheckRegistry(healthCheckRegistry);
+        return withCircuitBreaker(failureRateThreshold, windowSize, openDuration);
+    }
+
+    /**
+     * Registry to record timings and counts of the service's requests in (default none).
+     *
+     * @param metricRegistry Metric registry
+     * @return Updated builder
+     */
+    public TaskStoreServiceBuilder withMetrics(final MetricRegistry metricRegistry)
+    {
+        this.metricRegistry = Optional.of(metricRegistry);
+        return this;
+    }
+
+    /**
+     * As {@link #withMetrics(MetricRegistry)}, with the given name in the names of metrics that would otherwise clash with those of another service
+     * recording in the same registry, such as gauges of the concurrency limit (default store).
+     *
+     * @param metricRegistry Metric registry
+     * @param name Name telling the service's metrics apart
+     * @return Updated builder
+     */
+    public TaskStoreServiceBuilder withMetrics(final MetricRegistry metricRegistry, final String name)
+    {
+        this.metricsName = name;
+        return withMetrics(metricRegistry);
+    }
+
     public TaskStoreService build()
     {
         checkValid();
 
-        final HttpClient httpClient = ClientFactory.createHttpClient(credentials);
+        final MetricRegistry metrics = metricRegistryOrDefault();
+
+        final Transport limitedTransport = transportConfiguration.concurrencyLimited(metricsName, metrics);
+        final Optional<CircuitBreakerTransport> circuitBreaker = transportConfiguration.circuitBreakerAround(limitedTransport, metricsName, metrics);
+        final Transport transport = circuitBreaker.isPresent() ? circuitBreaker.get() : limitedTransport;
 
         final ObjectMapper objectMapper = ObjectMapperFactory.create();
 
-        return new TaskStoreServiceImpl(url, httpClient, objectMapper);
+        return new TaskStoreServiceImpl(url, transport, objectMapper, bulkCreateConcurrency, ExecutorFactory.createBulkCreateExecutor(), metrics);
+    }
+
+    private MetricRegistry metricRegistryOrDefault()
+    {
+        return metricRegistry.orElseGet(MetricRegistry::new);
     }
 
     private void checkValid()
     {
         checkArgument(url != null, "missing url");
+        checkArgument(bulkCreateConcurrency > 0, "bulk create concurrency must be positive");
+        transportConfiguration.checkValid();
     }
 }
@@ -1,103 +1,140 @@
 package com.qmetric.penfold.client.app;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.base.Charsets;
-import com.qmetric.hal.reader.HalReader;
-import com.qmetric.hal.reader.HalResource;
 import com.qmetric.penfold.client.app.commands.CancelTaskCommand;
 import com.qmetric.penfold.client.app.commands.CloseTaskCommand;
-import com.qmetric.penfold.client.app.commands.CreateTaskCommand;
 import com.qmetric.penfold.client.app.commands.RequeueTaskCommand;
 import com.qmetric.penfold.client.app.commands.RescheduleTaskCommand;
 import com.qmetric.penfold.client.app.commands.StartTaskCommand;
+import com.qmetric.penfold.client.app.transport.ApacheHttpTransport;
+import com.qmetric.penfold.client.app.transport.ResponseHandler;
+import com.qmetric.penfold.client.app.transport.Transport;
+import com.qmetric.penfold.client.app.transport.TransportRequest;
+import com.qmetric.penfold.client.app.transport.TransportResponse;
 import com.qmetric.penfold.client.domain.exceptions.ConflictException;
+import com.qmetric.penfold.client.domain.model.BulkCreateResult;
 import com.qmetric.penfold.client.domain.model.CloseResultType;
 import com.qmetric.penfold.client.domain.model.CommandType;
+import com.qmetric.penfold.client.domain.model.CreateFailure;
 import com.qmetric.penfold.client.domain.model.NewTask;
 import com.qmetric.penfold.client.domain.model.Task;
-import com.qmetric.penfold.client.domain.model.TaskId;
 import com.qmetric.penfold.client.domain.services.TaskStoreService;
-import com.theoryinpractise.halbuilder.api.Link;
-import com.theoryinpractise.halbuilder.api.RepresentationFactory;
-import org.apache.http.HttpHeaders;
-import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.message.BasicHeader;
-import org.apache.http.util.EntityUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.StringReader;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 
-import static com.google.common.base.Preconditions.checkState;
-import static java.lang.String.format;
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
 
 public class TaskStoreServiceImpl implements TaskStoreService
 {
-    private static final Logger LOG = LoggerFactory.getLogger(TaskStoreServiceImpl.class);
+    private final Transport transport;
 
-    private static final String ACCEPT = RepresentationFactory.HAL_JSON;
+    private final TaskStoreProtocol protocol;
 
-    private static final String CREATE_TASK_URI_TEMPLATE = "%s/tasks";
+    private final int maxCreatesInFlight;
 
-    private static final String RETRIEVE_TASK_URI_TEMPLATE = "%s/tasks/%s";
+    private final Executor bulkCreateExecutor;
 
-    private static final String CONTENT_TYPE_TEMPLATE = "application/json;domain-command=%s";
+    private final Timer createRequests;
 
-    private final String baseUri;
+    private final Timer retrieveTaskRequests;
 
-    private final HttpClient httpClient;
-
-    private final ObjectMapper objectMapper;
-
-    private final HalReader halReader;
-
-    private final TaskResourceMapper resourceMapper = new TaskResourceMapper();
+    private final Map<CommandType, Timer> commandRequests = new EnumMap<>(CommandType.class);
 
     public TaskStoreServiceImpl(final String baseUri, final HttpClient httpClient, final ObjectMapper objectMapper)
     {
-        this.baseUri = baseUri;
-        this.httpClient = httpClient;
-        this.objectMapper = objectMapper;
-        this.halReader = new HalReader(objectMapper);
+        this(baseUri, new ApacheHttpTransport(httpClient), objectMapper, 1, Runnable::run, new MetricRegistry());
     }
 
-    @Override public Task create(final NewTask task)
+    TaskStoreServiceImpl(final String baseUri, final Transport transport, final ObjectMapper objectMapper, final int maxCreatesInFlight,
+                         final Executor bulkCreateExecutor, final MetricRegistry metricRegistry)
     {
-        final String taskJson = toJson(new CreateTaskCommand(task));
+        checkArgument(maxCreatesInFlight > 0, "max creates in flight must be positive");
+        this.transport = transport;
+        this.protocol = new TaskStoreProtocol(baseUri, objectMapper);
+        this.maxCreatesInFlight = maxCreatesInFlight;
+        this.bulkCreateExecutor = bulkCreateExecutor;
+        this.createRequests = metricRegistry.timer(name("penfold.store", "create"));
+        this.retrieveTaskRequests = metricRegistry.timer(name("penfold.store", "retrieve-task"));
+
+        for (final CommandType commandType : CommandType.values())
+        {
+            commandRequests.put(commandType, metricRegistry.timer(name("penfold.store", commandType.name())));
+        }
+    }
 
-        final CommandType commandType = task.triggerDate.isPresent() ? CommandType.CreateFutureTask : CommandType.CreateTask;
+    @Override public Task create(final NewTask task)
+    {
+        return execute(protocol.createRequest(task), protocol::createdTaskFrom, createRequests);
+    }
 
-        HttpPost httpPost = new HttpPost(format(CREATE_TASK_URI_TEMPLATE, baseUri));
-        httpPost.addHeader(HttpHeaders.ACCEPT, ACCEPT);
-        httpPost.addHeader(HttpHeaders.CONTENT_TYPE, contentTypeHeaderFor(commandType));
-        final StringEntity requestEntity = new StringEntity(taskJson, Charsets.UTF_8);
-        httpPost.setEntity(requestEntity);
+    @Override public BulkCreateResult createAll(final Iterator<NewTask> tasks)
+    {
+        final Semaphore inFlight = new Semaphore(maxCreatesInFlight);
+        final Map<Integer, Task> created = new ConcurrentSkipListMap<>();
+        final Map<Integer, CreateFailure> failures = new ConcurrentSkipListMap<>();
 
-        HttpResponse response = null;
         try
         {
-            response = httpClient.execute(httpPost);
-            checkResponseStatus(response.getStatusLine().getStatusCode(), 201);
-            return taskFromResponse(response);
+            int index = 0;
+
+            while (tasks.hasNext())
+            {
+                final NewTask task = tasks.next();
+                final int position = index++;
+
+                inFlight.acquire();
+                dispatchCreate(position, task, inFlight, created, failures);
+            }
+
+            // wait for outstanding creates
+            inFlight.acquire(maxCreatesInFlight);
         }
-        catch (IOException e)
+        catch (final InterruptedException e)
         {
-            throw new RuntimeException("Error getting HAL feed: ", e);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted whilst creating tasks", e);
         }
-        finally
+
+        return new BulkCreateResult(new ArrayList<>(created.values()), new ArrayList<>(failures.values()));
+    }
+
+    private void dispatchCreate(final int position, final NewTask task, final Semaphore inFlight, final Map<Integer, Task> created,
+                                final Map<Integer, CreateFailure> failures)
+    {
+        try
         {
-            if (response != null)
-            {
-                EntityUtils.consumeQuietly(response.getEntity());
-            }
+            bulkCreateExecutor.execute(() -> {
+                try
+                {
+                    created.put(position, create(task));
+                }
+                catch (final RuntimeException e)
+                {
+                    failures.put(position, new CreateFailure(position, task, e));
+                }
+                finally
+                {
+                    inFlight.release();
+                }
+            });
+        }
+        catch (final RuntimeException e)
+        {
+            inFlight.release();
+            throw e;
         }
     }
 
@@ -128,119 +165,33 @@ public class TaskStoreServiceImpl implements TaskStoreService
 
     private Task update(final Task task, final Object command, final CommandType commandType) throws ConflictException
     {
-        final HalResource taskResource = getTaskResourceWithExpectedVersion(task.id, task.version);
-
-        final com.google.common.base.Optional<Link> updateTaskLink = taskResource.getLinkByRel(commandType.name());
-
-        if (updateTaskLink.isPresent())
-        {
-            final String json = toJson(command);
+        final Optional<String> knownCommandLink = protocol.knownCommandLink(task, commandType);
 
-            final HttpPost httpPost = new HttpPost(updateTaskLink.get().getHref());
-            httpPost.addHeader(HttpHeaders.ACCEPT, ACCEPT);
-            httpPost.addHeader(HttpHeaders.CONTENT_TYPE, contentTypeHeaderFor(commandType));
-            httpPost.setEntity(new StringEntity(format(json, task.id), Charsets.UTF_8));
+        // fallback for tasks without known command links, costing an extra round trip
+        final String commandLink = knownCommandLink.isPresent() ?
+                knownCommandLink.get() :
+                execute(protocol.retrieveTaskRequest(task.id), response -> protocol.commandLinkFrom(response, task, commandType),
+                        retrieveTaskRequests);
 
-            HttpResponse response = null;
-            try
-            {
-                response = httpClient.execute(httpPost);
-                final int responseStatus = response.getStatusLine().getStatusCode();
-                if (responseStatus == 409)
-                {
-                    throw new ConflictException(String.format("conflict when attempting to %s task %s", commandType, task.id));
-                }
-                checkResponseStatus(response.getStatusLine().getStatusCode(), 200);
-                return taskFromResponse(response);
-            }
-            catch (IOException e)
-            {
-                throw new RuntimeException("Error getting HAL feed: ", e);
-            }
-            finally
-            {
-                if (response != null)
-                {
-                    EntityUtils.consumeQuietly(response.getEntity());
-                }
-            }
-        }
-        else
-        {
-            throw new ConflictException(String.format("conflict when attempting to %s %s", commandType, task.id));
-        }
+        return execute(protocol.commandRequest(commandLink, command, commandType), response -> protocol.updatedTaskFrom(response, task, commandType),
+                       commandRequests.get(commandType));
     }
 
-    private HalResource getTaskResource(final TaskId taskId)
+    private <T> T execute(final TransportRequest request, final ResponseHandler<T> responseHandler, final Timer timer)
     {
-        final HttpGet httpGet = new HttpGet(format(RETRIEVE_TASK_URI_TEMPLATE, baseUri, taskId));
-        httpGet.addHeader(new BasicHeader(HttpHeaders.ACCEPT, ACCEPT));
+        final Timer.Context timing = timer.time();
 
-        HttpResponse response = null;
-        try
+        try (final TransportResponse response = transport.execute(request))
         {
-            response = httpClient.execute(httpGet);
-
-            final int statusCode = response.getStatusLine().getStatusCode();
-            checkResponseStatus(statusCode, 200);
-            String entity = EntityUtils.toString(response.getEntity(), Charsets.UTF_8);
-            return halReader.read(new StringReader(entity));
+            return responseHandler.handle(response);
         }
         catch (IOException e)
         {
-            throw new RuntimeException("Error getting task with id: " + taskId, e);
+            throw new RuntimeException("Error getting HAL feed: ", e);
         }
         finally
         {
-            if (response != null)
-            {
-                EntityUtils.consumeQuietly(response.getEntity());
-            }
-        }
-    }
-
-    private HalResource getTaskResourceWithExpectedVersion(final TaskId id, final Integer expectedVersion)
-    {
-        final HalResource halResource = getTaskResource(id);
-
-        if (expectedVersion.equals(Integer.valueOf(halResource.getValueAsString("version").orNull())))
-        {
-            return halResource;
+            timing.stop();
         }
-        else
-        {
-            throw new ConflictException(String.format("Task merge conflict %s", id));
-        }
-    }
-
-    private void checkResponseStatus(final int actualStatusCode, final int expectedStatusCode)
-    {
-        checkState(actualStatusCode == expectedStatusCode, "Unexpected response %s", actualStatusCode);
-    }
-
-    private String toJson(final Object object)
-    {
-        try
-        {
-            return objectMapper.writeValueAsString(object);
-        }
-        catch (final JsonProcessingException e)
-        {
-            LOG.error(String.format("failed to parse command %s", object), e);
-            throw new RuntimeException(e);
-        }
-    }
-
-    private Task taskFromResponse(final HttpResponse response) throws IOException
-    {
-        final String reponseString = EntityUtils.toString(response.getEntity());
-        final HalResource taskHalResource = halReader.read(new StringReader(reponseString));
-
-        return resourceMapper.getTaskFromResource(taskHalResource);
-    }
-
-    private String contentTypeHeaderFor(final CommandType commandType)
-    {
-        return String.format(CONTENT_TYPE_TEMPLATE, commandType.name());
     }
 }
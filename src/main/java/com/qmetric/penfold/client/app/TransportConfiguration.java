@@ -0,0 +1,130 @@
+package com.qmetric.penfold.client.app;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheckRegistry;
+import com.qmetric.penfold.client.app.support.CircuitBreakerHealthCheck;
+import com.qmetric.penfold.client.app.support.ClientFactory;
+import com.qmetric.penfold.client.app.support.Credentials;
+import com.qmetric.penfold.client.app.support.HttpConnectionPool;
+import com.qmetric.penfold.client.app.transport.AdaptiveConcurrencyLimitTransport;
+import com.qmetric.penfold.client.app.transport.ApacheHttpTransport;
+import com.qmetric.penfold.client.app.transport.CircuitBreakerTransport;
+import com.qmetric.penfold.client.app.transport.Transport;
+import org.apache.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * How the requests of the query, store and consumer builders are sent to the penfold server: with the given transport, or else a dedicated Apache
+ * http client, held to an adaptive concurrency limit and failed fast by a circuit breaker where either is configured.
+ */
+class TransportConfiguration
+{
+    private Credentials credentials;
+
+    private Optional<HttpConnectionPool> connectionPool = Optional.empty();
+
+    private Optional<Transport> transport = Optional.empty();
+
+    private int initialConcurrencyLimit = 0;
+
+    private int maxConcurrencyLimit = 0;
+
+    private double circuitBreakerFailureRateThreshold = 0;
+
+    private int circuitBreakerWindowSize = 0;
+
+    private Duration circuitBreakerOpenDuration = Duration.ofSeconds(30);
+
+    private Optional<HealthCheckRegistry> circuitBreakerHealthCheckRegistry = Optional.empty();
+
+    void setCredentials(final Credentials credentials)
+    {
+        this.credentials = credentials;
+    }
+
+    void setConnectionPool(final HttpConnectionPool connectionPool)
+    {
+        this.connectionPool = Optional.of(connectionPool);
+    }
+
+    void setTransport(final Transport transport)
+    {
+        this.transport = Optional.of(transport);
+    }
+
+    void setAdaptiveConcurrencyLimit(final int initialLimit, final int maxLimit)
+    {
+        this.initialConcurrencyLimit = initialLimit;
+        this.maxConcurrencyLimit = maxLimit;
+    }
+
+    void setCircuitBreaker(final double failureRateThreshold, final int windowSize, final Duration openDuration)
+    {
+        this.circuitBreakerFailureRateThreshold = failureRateThreshold;
+        this.circuitBreakerWindowSize = windowSize;
+        this.circuitBreakerOpenDuration = openDuration;
+    }
+
+    void setCircuitBreakerHealthCheckRegistry(final HealthCheckRegistry healthCheckRegistry)
+    {
+        this.circuitBreakerHealthCheckRegistry = Optional.of(healthCheckRegistry);
+    }
+
+    /**
+     * @param name Name telling the metrics of the limit apart from those of other services and consumers
+     * @return Transport held to the concurrency limit, if configured
+     */
+    Transport concurrencyLimited(final String name, final MetricRegistry metrics)
+    {
+        final Transport transport = transportOrDefault();
+
+        return initialConcurrencyLimit > 0 ? new AdaptiveConcurrencyLimitTransport(transport, initialConcurrencyLimit, maxConcurrencyLimit, name, metrics) : transport;
+    }
+
+    /**
+     * @param name Name telling the metrics and health check of the circuit apart from those of other services and consumers
+     * @return Circuit breaker around the transport, if configured
+     */
+    Optional<CircuitBreakerTransport> circuitBreakerAround(final Transport transport, final String name, final MetricRegistry metrics)
+    {
+        if (circuitBreakerWindowSize == 0)
+        {
+            return Optional.empty();
+        }
+
+        final CircuitBreakerTransport circuitBreaker =
+                new CircuitBreakerTransport(transport, circuitBreakerFailureRateThreshold, circuitBreakerWindowSize, circuitBreakerOpenDuration, name, metrics);
+
+        if (circuitBreakerHealthCheckRegistry.isPresent())
+        {
+            circuitBreakerHealthCheckRegistry.get().register(String.format("%s penfold server circuit breaker", name), new CircuitBreakerHealthCheck(circuitBreaker));
+        }
+
+        return Optional.of(circuitBreaker);
+    }
+
+    void checkValid()
+    {
+        checkArgument(initialConcurrencyLimit >= 0, "negative initial concurrency limit");
+        checkArgument(maxConcurrencyLimit >= initialConcurrencyLimit, "max concurrency limit less than initial limit");
+        checkArgument(circuitBreakerWindowSize >= 0, "negative circuit breaker window size");
+    }
+
+    private Transport transportOrDefault()
+    {
+        if (transport.isPresent())
+        {
+            return transport.get();
+        }
+
+        final HttpClient httpClient = connectionPool.isPresent() ?
+                ClientFactory.createHttpClient(credentials, connectionPool.get()) :
+                ClientFactory.createHttpClient(credentials);
+
+        return new ApacheHttpTransport(httpClient);
+    }
+}
@@ -1,17 +1,17 @@
 package com.qmetric.penfold.client.app.commands;
 
 import com.qmetric.penfold.client.domain.model.NewTask;
+import com.qmetric.penfold.client.domain.model.Payload;
 import com.qmetric.penfold.client.domain.model.QueueId;
 
 import java.time.LocalDateTime;
-import java.util.Map;
 import java.util.Optional;
 
 public class CreateTaskCommand
 {
     public final QueueId queue;
 
-    public final Map<String, Object> payload;
+    public final Payload payload;
 
     public final Optional<LocalDateTime> triggerDate;
 
@@ -25,7 +25,7 @@ public class CreateTaskCommand
     public CreateTaskCommand(final NewTask task)
     {
         this.queue = task.queue;
-        this.payload = task.payload.getAsMap();
+        this.payload = task.payload;
         this.triggerDate = task.triggerDate;
     }
 }
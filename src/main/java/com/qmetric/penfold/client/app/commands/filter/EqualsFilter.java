@@ -1,5 +1,11 @@
 package com.qmetric.penfold.client.app.commands.filter;
 
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.Objects;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
 public class EqualsFilter extends Filter
 {
     public final String value;
@@ -14,4 +20,19 @@ public class EqualsFilter extends Filter
     {
         return new EqualsFilter(key, value);
     }
+
+    @Override public int hashCode()
+    {
+        return 31 * super.hashCode() + Objects.hashCode(value);
+    }
+
+    @Override public boolean equals(final Object obj)
+    {
+        return super.equals(obj) && Objects.equals(value, ((EqualsFilter) obj).value);
+    }
+
+    @Override public String toString()
+    {
+        return new ToStringBuilder(this, SHORT_PREFIX_STYLE).append("key", key).append("value", value).toString();
+    }
 }
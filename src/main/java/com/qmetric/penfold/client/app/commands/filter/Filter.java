@@ -1,9 +1,11 @@
 package com.qmetric.penfold.client.app.commands.filter;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
+import java.util.Objects;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
 public abstract class Filter
 {
     public enum Operation {
@@ -22,16 +24,27 @@ public abstract class Filter
 
     @Override public int hashCode()
     {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return 31 * op.hashCode() + Objects.hashCode(key);
     }
 
     @Override public boolean equals(final Object obj)
     {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+
+        final Filter other = (Filter) obj;
+
+        return op == other.op && Objects.equals(key, other.key);
     }
 
     @Override public String toString()
     {
-        return ToStringBuilder.reflectionToString(this);
+        return new ToStringBuilder(this, SHORT_PREFIX_STYLE).append("op", op).append("key", key).toString();
     }
 }
\ No newline at end of file
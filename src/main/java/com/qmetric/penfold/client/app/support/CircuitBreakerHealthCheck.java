@@ -0,0 +1,33 @@
+package com.qmetric.penfold.client.app.support;
+
+import com.codahale.metrics.health.HealthCheck;
+import com.qmetric.penfold.client.app.transport.CircuitBreakerTransport;
+
+import static com.codahale.metrics.health.HealthCheck.Result.healthy;
+import static com.codahale.metrics.health.HealthCheck.Result.unhealthy;
+
+/**
+ * Reports the penfold server unhealthy whilst requests to it are failed fast, without sending a request of its own.
+ */
+public class CircuitBreakerHealthCheck extends HealthCheck
+{
+    private final CircuitBreakerTransport circuitBreaker;
+
+    public CircuitBreakerHealthCheck(final CircuitBreakerTransport circuitBreaker)
+    {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override protected Result check() throws Exception
+    {
+        switch (circuitBreaker.state())
+        {
+            case CLOSED:
+                return healthy("Penfold server circuit closed with %.0f%% of recent requests failed", circuitBreaker.failureRate() * 100);
+            case HALF_OPEN:
+                return unhealthy("Penfold server circuit half open, trying requests");
+            default:
+                return unhealthy("Penfold server circuit open, failing requests fast");
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
@@ -14,6 +15,13 @@ import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
 
 public class ClientFactory
 {
@@ -23,14 +31,7 @@ public class ClientFactory
 
     public static HttpClient createHttpClient(Credentials credentials)
     {
-        final PlainConnectionSocketFactory socketFactory = PlainConnectionSocketFactory.getSocketFactory();
-        final SSLConnectionSocketFactory secureSocketFactory = new SSLConnectionSocketFactory(SSLContexts.createDefault());
-
-        final RegistryBuilder<ConnectionSocketFactory> registryBuilder = RegistryBuilder.create();
-        registryBuilder.register("http", socketFactory);
-        registryBuilder.register("https", secureSocketFactory);
-
-        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registryBuilder.build());
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry());
         connectionManager.setDefaultMaxPerRoute(10);
 
         final HttpClientBuilder clientBuilder = HttpClients.custom();
@@ -45,13 +46,85 @@ public class ClientFactory
         //Don't always need credentials for example when doing a ping check
         if (credentials != null)
         {
-            CredentialsProvider credsProvider = new BasicCredentialsProvider();
-            credsProvider.setCredentials(
-                    AuthScope.ANY,
-                    new UsernamePasswordCredentials(credentials.username, credentials.password));
-            clientBuilder.setDefaultCredentialsProvider(credsProvider);
+            clientBuilder.setDefaultCredentialsProvider(credentialsProviderFor(credentials));
+        }
+
+        return clientBuilder.build();
+    }
+
+    public static HttpClient createHttpClient(final Credentials credentials, final HttpConnectionPool connectionPool)
+    {
+        final HttpClientBuilder clientBuilder = HttpClients.custom()
+                .setConnectionManager(connectionPool.connectionManager())
+                .setConnectionManagerShared(true)
+                .setKeepAliveStrategy(connectionPool.keepAliveStrategy())
+                .setDefaultRequestConfig(connectionPool.requestConfig());
+
+        if (credentials != null)
+        {
+            clientBuilder.setDefaultCredentialsProvider(credentialsProviderFor(credentials));
         }
 
         return clientBuilder.build();
     }
+
+    /**
+     * @return Started client, whose I/O reactor threads run until it is closed
+     */
+    public static CloseableHttpAsyncClient createAsyncHttpClient(final Credentials credentials)
+    {
+        final PoolingNHttpClientConnectionManager connectionManager;
+        try
+        {
+            connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(IOReactorConfig.custom()
+                                                                                                           .setConnectTimeout(CONNECT_TIMEOUT)
+                                                                                                           .setSoTimeout(READ_TIMEOUT)
+                                                                                                           .build()));
+        }
+        catch (IOReactorException e)
+        {
+            throw new RuntimeException("Error creating async http client: ", e);
+        }
+        connectionManager.setDefaultMaxPerRoute(10);
+
+        final HttpAsyncClientBuilder clientBuilder = HttpAsyncClients.custom().setConnectionManager(connectionManager);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(CONNECT_TIMEOUT)
+                .setSocketTimeout(READ_TIMEOUT)
+                .build();
+
+        clientBuilder.setDefaultRequestConfig(requestConfig);
+
+        if (credentials != null)
+        {
+            clientBuilder.setDefaultCredentialsProvider(credentialsProviderFor(credentials));
+        }
+
+        final CloseableHttpAsyncClient client = clientBuilder.build();
+        client.start();
+
+        return client;
+    }
+
+    static Registry<ConnectionSocketFactory> socketFactoryRegistry()
+    {
+        final PlainConnectionSocketFactory socketFactory = PlainConnectionSocketFactory.getSocketFactory();
+        final SSLConnectionSocketFactory secureSocketFactory = new SSLConnectionSocketFactory(SSLContexts.createDefault());
+
+        final RegistryBuilder<ConnectionSocketFactory> registryBuilder = RegistryBuilder.create();
+        registryBuilder.register("http", socketFactory);
+        registryBuilder.register("https", secureSocketFactory);
+
+        return registryBuilder.build();
+    }
+
+    private static CredentialsProvider credentialsProviderFor(final Credentials credentials)
+    {
+        CredentialsProvider credsProvider = new BasicCredentialsProvider();
+        credsProvider.setCredentials(
+                AuthScope.ANY,
+                new UsernamePasswordCredentials(credentials.username, credentials.password));
+        return credsProvider;
+    }
 }
@@ -1,9 +1,11 @@
 package com.qmetric.penfold.client.app.support;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
+import java.util.Objects;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
 public class Credentials
 {
     public final String username;
@@ -18,17 +20,29 @@ public class Credentials
 
     @Override public int hashCode()
     {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return Objects.hashCode(username);
     }
 
     @Override public boolean equals(final Object obj)
     {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+
+        final Credentials other = (Credentials) obj;
+
+        return Objects.equals(username, other.username) && Objects.equals(password, other.password);
     }
 
     @Override public String toString()
     {
-        return ToStringBuilder.reflectionToString(this);
+        // never the password
+        return new ToStringBuilder(this, SHORT_PREFIX_STYLE).append("username", username).toString();
     }
 }
 
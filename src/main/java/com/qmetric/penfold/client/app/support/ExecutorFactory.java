@@ -0,0 +1,38 @@
+package com.qmetric.penfold.client.app.support;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static java.lang.String.format;
+
+public class ExecutorFactory
+{
+    public static ExecutorService createWorkerPool(final String name, final int size)
+    {
+        return Executors.newFixedThreadPool(size, new ThreadFactoryBuilder().setNameFormat(format("penfold-%s-%%d", name)).build());
+    }
+
+    public static ScheduledExecutorService createScheduler(final String name, final int size)
+    {
+        final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(size, new ThreadFactoryBuilder().setNameFormat(format("penfold-%s-%%d", name)).build());
+        // a pending poll must not hold up shutdown
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return scheduler;
+    }
+
+    public static ExecutorService createPrefetchExecutor()
+    {
+        // daemon threads as page loads are abandoned whenever an iterator is
+        return Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("penfold-page-prefetch-%d").setDaemon(true).build());
+    }
+
+    public static ExecutorService createBulkCreateExecutor()
+    {
+        // daemon threads as the store service owning them is never closed, concurrency is bounded per bulk create
+        return Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("penfold-bulk-create-%d").setDaemon(true).build());
+    }
+}
@@ -0,0 +1,80 @@
+package com.qmetric.penfold.client.app.support;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Http connections shared by any number of client services, see {@link ClientFactory#createHttpClient(Credentials, HttpConnectionPool)}.
+ */
+public class HttpConnectionPool implements Closeable
+{
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final RequestConfig requestConfig;
+
+    private final ConnectionKeepAliveStrategy keepAliveStrategy;
+
+    private final IdleConnectionEvictor idleConnectionEvictor;
+
+    public HttpConnectionPool(final int maxTotal, final int maxPerRoute, final Duration connectTimeout, final Duration readTimeout, final Duration maxKeepAlive,
+                              final Duration validateAfterInactivity, final Duration maxIdleTime)
+    {
+        connectionManager = new PoolingHttpClientConnectionManager(ClientFactory.socketFactoryRegistry());
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setValidateAfterInactivity((int) validateAfterInactivity.toMillis());
+
+        requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setSocketTimeout((int) readTimeout.toMillis())
+                .build();
+
+        keepAliveStrategy = (response, context) -> {
+            final long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? Math.min(serverKeepAlive, maxKeepAlive.toMillis()) : maxKeepAlive.toMillis();
+        };
+
+        idleConnectionEvictor = new IdleConnectionEvictor(connectionManager, maxIdleTime.toMillis(), TimeUnit.MILLISECONDS, maxIdleTime.toMillis(),
+                                                          TimeUnit.MILLISECONDS);
+        idleConnectionEvictor.start();
+    }
+
+    public void registerMetrics(final MetricRegistry metricRegistry, final String poolName)
+    {
+        metricRegistry.register(name("penfold", "connection-pool", poolName, "leased"), (Gauge<Integer>) () -> connectionManager.getTotalStats().getLeased());
+        metricRegistry.register(name("penfold", "connection-pool", poolName, "available"), (Gauge<Integer>) () -> connectionManager.getTotalStats().getAvailable());
+        metricRegistry.register(name("penfold", "connection-pool", poolName, "pending"), (Gauge<Integer>) () -> connectionManager.getTotalStats().getPending());
+    }
+
+    @Override public void close()
+    {
+        idleConnectionEvictor.shutdown();
+        connectionManager.shutdown();
+    }
+
+    PoolingHttpClientConnectionManager connectionManager()
+    {
+        return connectionManager;
+    }
+
+    RequestConfig requestConfig()
+    {
+        return requestConfig;
+    }
+
+    ConnectionKeepAliveStrategy keepAliveStrategy()
+    {
+        return keepAliveStrategy;
+    }
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.qmetric.penfold.client.domain.model.Payload;
 import com.qmetric.penfold.client.domain.model.QueueId;
 import com.qmetric.penfold.client.domain.model.TaskId;
 
@@ -22,6 +23,7 @@ public class JsonModuleFactory
         module.addSerializer(TaskId.class, new TaskIdJsonSerializer());
         module.addSerializer(QueueId.class, new QueueIdJsonSerializer());
         module.addSerializer(LocalDateTime.class, new LocalDateTimeJsonSerializer());
+        module.addSerializer(Payload.class, new PayloadJsonSerializer());
 
         return module;
     }
@@ -49,4 +51,12 @@ public class JsonModuleFactory
             jsonGenerator.writeString(TaskDateTimeFormatter.print(dateTime));
         }
     }
+
+    private static class PayloadJsonSerializer extends JsonSerializer<Payload>
+    {
+        @Override public void serialize(final Payload payload, final JsonGenerator jsonGenerator, final SerializerProvider serializerProvider) throws IOException
+        {
+            payload.writeTo(jsonGenerator);
+        }
+    }
 }
@@ -0,0 +1,46 @@
+package com.qmetric.penfold.client.app.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Binds task payloads to requested types, with an object reader built once for each type.
+ */
+public class PayloadReader
+{
+    private final ObjectMapper objectMapper;
+
+    private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public PayloadReader(final ObjectMapper objectMapper)
+    {
+        this.objectMapper = objectMapper;
+    }
+
+    public <T> T read(final byte[] json, final Type type)
+    {
+        try
+        {
+            return readerFor(type).readValue(json);
+        }
+        catch (final IOException e)
+        {
+            throw new RuntimeException(String.format("failed to read payload as %s", type), e);
+        }
+    }
+
+    public <T> T convert(final Object value, final Type type)
+    {
+        return objectMapper.convertValue(value, objectMapper.constructType(type));
+    }
+
+    private ObjectReader readerFor(final Type type)
+    {
+        return readers.computeIfAbsent(type, key -> objectMapper.reader(objectMapper.constructType(key)));
+    }
+}
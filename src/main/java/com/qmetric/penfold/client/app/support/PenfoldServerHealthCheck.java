@@ -14,7 +14,6 @@ import java.net.URISyntaxException;
 
 import static com.codahale.metrics.health.HealthCheck.Result.healthy;
 import static com.codahale.metrics.health.HealthCheck.Result.unhealthy;
-import static com.theoryinpractise.halbuilder.api.RepresentationFactory.HAL_JSON;
 import static java.lang.String.format;
 import static java.net.HttpURLConnection.HTTP_OK;
 
@@ -22,6 +21,8 @@ public class PenfoldServerHealthCheck extends HealthCheck
 {
     private static final Logger LOG = LoggerFactory.getLogger(PenfoldServerHealthCheck.class);
 
+    private static final String HAL_JSON = "application/hal+json";
+
     private final String serverUrl;
 
     private final HttpClient httpClient;
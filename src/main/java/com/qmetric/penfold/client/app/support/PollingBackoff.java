@@ -0,0 +1,60 @@
+package com.qmetric.penfold.client.app.support;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Delay before the next poll of a queue: none whilst polls keep starting tasks, otherwise growing exponentially with jitter up to a ceiling.
+ */
+public class PollingBackoff
+{
+    private static final int MAX_DOUBLINGS = 30;
+
+    private final long minimumDelayMillis;
+
+    private final long maximumDelayMillis;
+
+    private final Supplier<Random> random;
+
+    private int consecutiveEmptyPolls;
+
+    public PollingBackoff(final Duration minimumDelay, final Duration maximumDelay)
+    {
+        // polls may run on any of the scheduler's threads, so each takes the random of the thread it runs on
+        this(minimumDelay, maximumDelay, ThreadLocalRandom::current);
+    }
+
+    PollingBackoff(final Duration minimumDelay, final Duration maximumDelay, final Supplier<Random> random)
+    {
+        checkArgument(!minimumDelay.isNegative() && !minimumDelay.isZero(), "minimum delay must be positive");
+        checkArgument(maximumDelay.compareTo(minimumDelay) >= 0, "maximum delay less than minimum delay");
+        this.minimumDelayMillis = minimumDelay.toMillis();
+        this.maximumDelayMillis = maximumDelay.toMillis();
+        this.random = random;
+    }
+
+    /**
+     * @param tasksStarted Number of tasks the poll started; tasks found but taken by other consumers do not count, so that a queue of tasks that
+     *                     cannot be started is not polled in a tight loop
+     * @return Delay before the next poll
+     */
+    public Duration nextDelay(final int tasksStarted)
+    {
+        if (tasksStarted > 0)
+        {
+            consecutiveEmptyPolls = 0;
+            return Duration.ZERO;
+        }
+
+        final long delay = Math.min(maximumDelayMillis, minimumDelayMillis << consecutiveEmptyPolls);
+        consecutiveEmptyPolls = Math.min(consecutiveEmptyPolls + 1, MAX_DOUBLINGS);
+
+        // half the delay is random so that consumers polling the same queue drift apart
+        final long fixedDelay = delay / 2;
+        return Duration.ofMillis(fixedDelay + (long) (random.get().nextDouble() * (delay - fixedDelay)));
+    }
+}
@@ -0,0 +1,117 @@
+package com.qmetric.penfold.client.app.support;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.google.common.base.Charsets;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Utf-8 encoded json value, written by a json generator as the bytes given rather than re-encoded. Only ever written unquoted, as a raw value.
+ */
+public class RawJson implements SerializableString
+{
+    private final byte[] json;
+
+    public RawJson(final byte[] json)
+    {
+        this.json = json;
+    }
+
+    @Override public String getValue()
+    {
+        return new String(json, Charsets.UTF_8);
+    }
+
+    @Override public int charLength()
+    {
+        return getValue().length();
+    }
+
+    @Override public byte[] asUnquotedUTF8()
+    {
+        return json;
+    }
+
+    @Override public int appendUnquotedUTF8(final byte[] buffer, final int offset)
+    {
+        if (offset + json.length > buffer.length)
+        {
+            return -1;
+        }
+
+        System.arraycopy(json, 0, buffer, offset, json.length);
+        return json.length;
+    }
+
+    @Override public int appendUnquoted(final char[] buffer, final int offset)
+    {
+        final String value = getValue();
+
+        if (offset + value.length() > buffer.length)
+        {
+            return -1;
+        }
+
+        value.getChars(0, value.length(), buffer, offset);
+        return value.length();
+    }
+
+    @Override public int writeUnquotedUTF8(final OutputStream output) throws IOException
+    {
+        output.write(json);
+        return json.length;
+    }
+
+    @Override public int putUnquotedUTF8(final ByteBuffer buffer) throws IOException
+    {
+        if (json.length > buffer.remaining())
+        {
+            return -1;
+        }
+
+        buffer.put(json);
+        return json.length;
+    }
+
+    @Override public char[] asQuotedChars()
+    {
+        throw quotingUnsupported();
+    }
+
+    @Override public byte[] asQuotedUTF8()
+    {
+        throw quotingUnsupported();
+    }
+
+    @Override public int appendQuotedUTF8(final byte[] buffer, final int offset)
+    {
+        throw quotingUnsupported();
+    }
+
+    @Override public int appendQuoted(final char[] buffer, final int offset)
+    {
+        throw quotingUnsupported();
+    }
+
+    @Override public int writeQuotedUTF8(final OutputStream output) throws IOException
+    {
+        throw quotingUnsupported();
+    }
+
+    @Override public int putQuotedUTF8(final ByteBuffer buffer) throws IOException
+    {
+        throw quotingUnsupported();
+    }
+
+    private UnsupportedOperationException quotingUnsupported()
+    {
+        return new UnsupportedOperationException("raw json is only written unquoted");
+    }
+
+    @Override public String toString()
+    {
+        return getValue();
+    }
+}
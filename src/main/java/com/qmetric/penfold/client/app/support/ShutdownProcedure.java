@@ -1,8 +1,12 @@
 package com.qmetric.penfold.client.app.support;
 
+import com.google.common.collect.ImmutableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 
 import static java.lang.Runtime.getRuntime;
@@ -16,14 +20,26 @@ public class ShutdownProcedure implements Runnable
 
     private static final int TIMEOUT_SECS = 120;
 
-    private final ExecutorService executorService;
+    private final List<ExecutorService> executorServices;
+
+    private final List<Flushable> flushedAfterShutdown;
 
     private final Thread shutdownThread;
 
-    public ShutdownProcedure(ExecutorService executorService)
+    public ShutdownProcedure(final ExecutorService... executorServices)
+    {
+        this(ImmutableList.copyOf(executorServices), ImmutableList.of());
+    }
+
+    /**
+     * @param executorServices Executors terminated in turn
+     * @param flushedAfterShutdown Flushed in turn once every executor is terminated, such as work left pending by the executors
+     */
+    public ShutdownProcedure(final List<ExecutorService> executorServices, final List<? extends Flushable> flushedAfterShutdown)
     {
-        this.executorService = executorService;
-        shutdownThread = new Thread(this, format("penfold-client-shutdown-%s", executorService));
+        this.executorServices = ImmutableList.copyOf(executorServices);
+        this.flushedAfterShutdown = ImmutableList.copyOf(flushedAfterShutdown);
+        shutdownThread = new Thread(this, format("penfold-client-shutdown-%s", executorServices.get(0)));
     }
 
     public void registerShutdownHook()
@@ -39,13 +55,20 @@ public class ShutdownProcedure implements Runnable
     @Override public void run()
     {
         LOG.info("penfold-client shutdown started");
-        if (!executorService.isTerminated())
+        for (final ExecutorService executorService : executorServices)
         {
-            terminateExecutor();
+            if (!executorService.isTerminated())
+            {
+                terminateExecutor(executorService);
+            }
+            else
+            {
+                LOG.info("executor-service is already terminated");
+            }
         }
-        else
+        for (final Flushable flushable : flushedAfterShutdown)
         {
-            LOG.info("executor-service is already terminated");
+            flush(flushable);
         }
         LOG.info("penfold-client shutdown completed");
     }
@@ -56,20 +79,32 @@ public class ShutdownProcedure implements Runnable
         removeShutdownHook();
     }
 
-    private void terminateExecutor()
+    private void terminateExecutor(final ExecutorService executorService)
     {
         try
         {
-            stopAcceptingNewJobs();
-            waitRunningJobsToTerminate();
+            stopAcceptingNewJobs(executorService);
+            waitRunningJobsToTerminate(executorService);
         }
         catch (InterruptedException e)
         {
-            forceShutdown();
+            forceShutdown(executorService);
+        }
+    }
+
+    private void flush(final Flushable flushable)
+    {
+        try
+        {
+            flushable.flush();
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOG.error("failed to flush on shutdown", e);
         }
     }
 
-    private void stopAcceptingNewJobs()
+    private void stopAcceptingNewJobs(final ExecutorService executorService)
     {
         LOG.info("no new jobs accepted");
         if (!executorService.isShutdown())
@@ -82,7 +117,7 @@ public class ShutdownProcedure implements Runnable
         }
     }
 
-    private void waitRunningJobsToTerminate() throws InterruptedException
+    private void waitRunningJobsToTerminate(final ExecutorService executorService) throws InterruptedException
     {
         LOG.info("terminating all executor-service jobs with timeout {} {}", TIMEOUT_SECS, SECONDS);
         if (executorService.awaitTermination(TIMEOUT_SECS, SECONDS))
@@ -96,7 +131,7 @@ public class ShutdownProcedure implements Runnable
         }
     }
 
-    private void forceShutdown()
+    private void forceShutdown(final ExecutorService executorService)
     {
         LOG.warn("shutdown thread was interrupted - forcing executor shutdown");
         executorService.shutdownNow();
@@ -0,0 +1,281 @@
+package com.qmetric.penfold.client.app.transport;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Ticker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Limits the requests in flight to the penfold server, adapting the limit to how the server copes (AIMD). The limit grows by about one request
+ * per round trip whilst requests are answered promptly, and is cut back when the server answers with a server error, fails to answer, or takes
+ * over twice as long as the quickest recent round trip of the same kind of request. Conflicts are expected whilst consumers compete for tasks,
+ * so only cut the limit back once they become most of the recent responses. Requests beyond the limit wait for a request in flight to complete,
+ * a request being in flight until its response is closed.
+ */
+public class AdaptiveConcurrencyLimitTransport implements Transport
+{
+    private static final int MIN_LIMIT = 1;
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private static final double ROUND_TRIP_TOLERANCE = 2.0;
+
+    private static final int BASELINE_WINDOW_SAMPLES = 1000;
+
+    private static final double CONFLICT_RATE_THRESHOLD = 0.5;
+
+    private static final double CONFLICT_RATE_WEIGHT = 0.1;
+
+    private final Transport transport;
+
+    private final int maxLimit;
+
+    private final Ticker ticker;
+
+    private final Timer queueing;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    private volatile double limit;
+
+    private volatile int inFlight;
+
+    private final Map<String, RoundTripBaseline> baselines = new HashMap<>();
+
+    private double conflictRate;
+
+    private long lastBackoff = Long.MIN_VALUE;
+
+    /**
+     * @param name Name telling the metrics of this limit apart from those of other limits recording in the same registry
+     */
+    public AdaptiveConcurrencyLimitTransport(final Transport transport, final int initialLimit, final int maxLimit, final String name,
+                                             final MetricRegistry metricRegistry)
+    {
+        this(transport, initialLimit, maxLimit, Ticker.systemTicker(), name, metricRegistry);
+    }
+
+    AdaptiveConcurrencyLimitTransport(final Transport transport, final int initialLimit, final int maxLimit, final Ticker ticker, final String name,
+                                      final MetricRegistry metricRegistry)
+    {
+        checkArgument(initialLimit >= MIN_LIMIT, "initial concurrency limit must be positive");
+        checkArgument(maxLimit >= initialLimit, "max concurrency limit less than initial limit");
+        this.transport = transport;
+        this.limit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.ticker = ticker;
+        this.queueing = metricRegistry.timer(name("penfold.transport", name, "queueing"));
+
+        metricRegistry.register(name("penfold.transport", name, "concurrency-limit"), (Gauge<Integer>) this::limit);
+        metricRegistry.register(name("penfold.transport", name, "in-flight"), (Gauge<Integer>) () -> inFlight);
+    }
+
+    @Override public TransportResponse execute(final TransportRequest request) throws IOException
+    {
+        acquire();
+
+        final long started = ticker.read();
+        final TransportResponse response;
+
+        try
+        {
+            response = transport.execute(request);
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            sample(request, started, Optional.empty());
+            release();
+            throw e;
+        }
+
+        sample(request, started, Optional.of(response.status()));
+
+        return new LimitedResponse(response);
+    }
+
+    public int limit()
+    {
+        return (int) limit;
+    }
+
+    private void acquire() throws InterruptedIOException
+    {
+        final Timer.Context timing = queueing.time();
+        lock.lock();
+
+        try
+        {
+            while (inFlight >= limit())
+            {
+                available.await();
+            }
+
+            inFlight++;
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted whilst waiting for a request to complete");
+        }
+        finally
+        {
+            lock.unlock();
+            timing.stop();
+        }
+    }
+
+    private void release()
+    {
+        lock.lock();
+
+        try
+        {
+            inFlight--;
+            available.signal();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param status Status the request was answered with, or empty when it failed to be answered
+     */
+    private void sample(final TransportRequest request, final long started, final Optional<Integer> status)
+    {
+        final long now = ticker.read();
+        final long roundTrip = now - started;
+
+        lock.lock();
+
+        try
+        {
+            final boolean answered = status.isPresent();
+            final boolean conflict = answered && status.get() == 409;
+            final boolean slow = answered && roundTrip > baselineFor(request, status.get()).update(roundTrip) * ROUND_TRIP_TOLERANCE;
+
+            // share of recent responses that were conflicts, each response weighing in at a tenth
+            conflictRate += CONFLICT_RATE_WEIGHT * ((conflict ? 1 : 0) - conflictRate);
+
+            if (!answered || status.get() >= 500 || slow || (conflict && conflictRate > CONFLICT_RATE_THRESHOLD))
+            {
+                // backing off once for requests sent under the same limit, rather than once for each of them
+                if (started >= lastBackoff)
+                {
+                    limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+                    lastBackoff = now;
+                }
+            }
+            else if (!conflict && inFlight * 2 >= limit)
+            {
+                // growing only whilst the limit is in use
+                limit = Math.min(maxLimit, limit + 1 / limit);
+                available.signalAll();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private RoundTripBaseline baselineFor(final TransportRequest request, final int status)
+    {
+        // a full page takes longer than a task created or a page not modified, so requests are compared with round trips of their own kind, told
+        // apart by method, depth of path (a page of a queue, a task, task creation or a command) and status
+        final String path = request.uri.getPath() == null ? "" : request.uri.getPath();
+        final String kind = String.format("%s %s %s", request.method, path.split("/").length, status);
+
+        return baselines.computeIfAbsent(kind, k -> new RoundTripBaseline());
+    }
+
+    private static class RoundTripBaseline
+    {
+        private long baselineRoundTrip = Long.MAX_VALUE;
+
+        private long windowMinRoundTrip = Long.MAX_VALUE;
+
+        private int windowSamples;
+
+        /**
+         * @return Quickest round trip recently, so that the baseline recovers from a server that has become slower for good
+         */
+        long update(final long roundTrip)
+        {
+            baselineRoundTrip = Math.min(baselineRoundTrip, roundTrip);
+            windowMinRoundTrip = Math.min(windowMinRoundTrip, roundTrip);
+
+            if (++windowSamples == BASELINE_WINDOW_SAMPLES)
+            {
+                baselineRoundTrip = windowMinRoundTrip;
+                windowMinRoundTrip = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+
+            return baselineRoundTrip;
+        }
+    }
+
+    private class LimitedResponse implements TransportResponse
+    {
+        private final TransportResponse response;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        LimitedResponse(final TransportResponse response)
+        {
+            this.response = response;
+        }
+
+        @Override public int status()
+        {
+            return response.status();
+        }
+
+        @Override public Optional<String> header(final String name)
+        {
+            return response.header(name);
+        }
+
+        @Override public InputStream body() throws IOException
+        {
+            return response.body();
+        }
+
+        @Override public byte[] bodyAsBytes() throws IOException
+        {
+            return response.bodyAsBytes();
+        }
+
+        @Override public void close()
+        {
+            try
+            {
+                response.close();
+            }
+            finally
+            {
+                if (closed.compareAndSet(false, true))
+                {
+                    release();
+                }
+            }
+        }
+    }
+}
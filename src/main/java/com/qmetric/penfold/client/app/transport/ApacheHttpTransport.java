@@ -0,0 +1,107 @@
+package com.qmetric.penfold.client.app.transport;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.util.EntityUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Transport over an Apache http client, the default transport.
+ */
+public class ApacheHttpTransport implements Transport
+{
+    private static final byte[] NO_CONTENT = new byte[0];
+
+    private final HttpClient httpClient;
+
+    public ApacheHttpTransport(final HttpClient httpClient)
+    {
+        this.httpClient = httpClient;
+    }
+
+    @Override public TransportResponse execute(final TransportRequest request) throws IOException
+    {
+        return responseOf(httpClient.execute(httpRequestOf(request)));
+    }
+
+    /**
+     * @param request Transport request
+     * @return Equivalent Apache request, for sending with a non-blocking client
+     */
+    public static HttpUriRequest httpRequestOf(final TransportRequest request)
+    {
+        final RequestBuilder httpRequest = RequestBuilder.create(request.method).setUri(request.uri);
+
+        for (final Map.Entry<String, String> header : request.headers.entrySet())
+        {
+            httpRequest.addHeader(header.getKey(), header.getValue());
+        }
+
+        if (request.body.isPresent())
+        {
+            httpRequest.setEntity(new RequestBodyEntity(request.body.get()));
+        }
+
+        return httpRequest.build();
+    }
+
+    /**
+     * @param response Apache response
+     * @return Transport response, consuming the Apache response's entity when closed
+     */
+    public static TransportResponse responseOf(final HttpResponse response)
+    {
+        return new ApacheTransportResponse(response);
+    }
+
+    private static class ApacheTransportResponse implements TransportResponse
+    {
+        private final HttpResponse response;
+
+        ApacheTransportResponse(final HttpResponse response)
+        {
+            this.response = response;
+        }
+
+        @Override public int status()
+        {
+            return response.getStatusLine().getStatusCode();
+        }
+
+        @Override public Optional<String> header(final String name)
+        {
+            final Header header = response.getFirstHeader(name);
+
+            return header != null ? Optional.of(header.getValue()) : Optional.empty();
+        }
+
+        @Override public InputStream body() throws IOException
+        {
+            final HttpEntity entity = response.getEntity();
+
+            return entity != null ? entity.getContent() : new ByteArrayInputStream(NO_CONTENT);
+        }
+
+        @Override public byte[] bodyAsBytes() throws IOException
+        {
+            // sized up front from the content length
+            final HttpEntity entity = response.getEntity();
+
+            return entity != null ? EntityUtils.toByteArray(entity) : NO_CONTENT;
+        }
+
+        @Override public void close()
+        {
+            EntityUtils.consumeQuietly(response.getEntity());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.qmetric.penfold.client.app.transport;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Response held in memory in full.
+ */
+public class BufferedTransportResponse implements TransportResponse
+{
+    private final int status;
+
+    private final Map<String, String> headers;
+
+    private final byte[] body;
+
+    public BufferedTransportResponse(final int status, final Map<String, String> headers, final byte[] body)
+    {
+        this.status = status;
+        this.headers = ImmutableMap.copyOf(headers);
+        this.body = body;
+    }
+
+    @Override public int status()
+    {
+        return status;
+    }
+
+    @Override public Optional<String> header(final String name)
+    {
+        return headers.entrySet().stream().filter(header -> header.getKey().equalsIgnoreCase(name)).map(Map.Entry::getValue).findFirst();
+    }
+
+    @Override public InputStream body()
+    {
+        return new ByteArrayInputStream(body);
+    }
+
+    @Override public byte[] bodyAsBytes()
+    {
+        return body;
+    }
+
+    @Override public void close()
+    {
+    }
+}
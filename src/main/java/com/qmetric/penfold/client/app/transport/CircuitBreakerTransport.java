@@ -0,0 +1,207 @@
+package com.qmetric.penfold.client.app.transport;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Fails requests to the penfold server fast whilst the server is failing, rather than each request waiting out the connection timeouts. The
+ * circuit opens once the share of failed requests, those that could not be sent or were answered with a server error, among the most recent
+ * requests reaches the threshold. After the open duration a few trial requests are let through (half open), closing the circuit once they all
+ * succeed, or opening it again on the first to fail.
+ */
+public class CircuitBreakerTransport implements Transport
+{
+    public enum State
+    {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    static final int TRIAL_REQUESTS = 3;
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreakerTransport.class);
+
+    private final Transport transport;
+
+    private final double failureRateThreshold;
+
+    private final long openDuration;
+
+    private final Ticker ticker;
+
+    private final Meter rejections;
+
+    private final boolean[] window;
+
+    private int windowPosition;
+
+    private int windowRequests;
+
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+
+    private long openedAt;
+
+    private int trialsAdmitted;
+
+    private int trialSuccesses;
+
+    /**
+     * @param name Name telling the metrics of this circuit apart from those of other circuits recording in the same registry
+     */
+    public CircuitBreakerTransport(final Transport transport, final double failureRateThreshold, final int windowSize, final Duration openDuration,
+                                   final String name, final MetricRegistry metricRegistry)
+    {
+        this(transport, failureRateThreshold, windowSize, openDuration, Ticker.systemTicker(), name, metricRegistry);
+    }
+
+    CircuitBreakerTransport(final Transport transport, final double failureRateThreshold, final int windowSize, final Duration openDuration,
+                            final Ticker ticker, final String name, final MetricRegistry metricRegistry)
+    {
+        checkArgument(failureRateThreshold > 0 && failureRateThreshold <= 1, "circuit breaker failure rate threshold must be between 0 and 1");
+        checkArgument(windowSize > 0, "circuit breaker window size must be positive");
+        checkArgument(!openDuration.isNegative() && !openDuration.isZero(), "circuit breaker open duration must be positive");
+        this.transport = transport;
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[windowSize];
+        this.openDuration = openDuration.toNanos();
+        this.ticker = ticker;
+        this.rejections = metricRegistry.meter(name("penfold.transport", name, "circuit-breaker", "rejections"));
+
+        metricRegistry.register(name("penfold.transport", name, "circuit-breaker", "state"), (Gauge<String>) () -> state().name());
+    }
+
+    @Override public TransportResponse execute(final TransportRequest request) throws IOException
+    {
+        final boolean trial = admit(request);
+        final TransportResponse response;
+
+        try
+        {
+            response = transport.execute(request);
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            record(trial, false);
+            throw e;
+        }
+
+        record(trial, response.status() < 500);
+
+        return response;
+    }
+
+    public synchronized State state()
+    {
+        return state;
+    }
+
+    /**
+     * @return Whether requests would be sent rather than failed fast, either as the circuit is not open or as it is due to let trial requests through
+     */
+    public synchronized boolean allowsRequests()
+    {
+        return state != State.OPEN || ticker.read() - openedAt >= openDuration;
+    }
+
+    /**
+     * @return Share of the most recent requests that failed, whilst the circuit was closed
+     */
+    public synchronized double failureRate()
+    {
+        return windowRequests > 0 ? (double) windowFailures / windowRequests : 0;
+    }
+
+    private synchronized boolean admit(final TransportRequest request) throws CircuitOpenException
+    {
+        if (state == State.OPEN && ticker.read() - openedAt >= openDuration)
+        {
+            LOG.info("penfold server circuit half open - trying requests");
+            state = State.HALF_OPEN;
+            trialsAdmitted = 0;
+            trialSuccesses = 0;
+        }
+
+        if (state == State.CLOSED)
+        {
+            return false;
+        }
+        else if (state == State.HALF_OPEN && trialsAdmitted < TRIAL_REQUESTS)
+        {
+            trialsAdmitted++;
+            return true;
+        }
+        else
+        {
+            rejections.mark();
+            throw new CircuitOpenException(String.format("penfold server circuit open - %s not sent", request));
+        }
+    }
+
+    private synchronized void record(final boolean trial, final boolean success)
+    {
+        if (trial && state == State.HALF_OPEN)
+        {
+            if (!success)
+            {
+                open();
+            }
+            else if (++trialSuccesses == TRIAL_REQUESTS)
+            {
+                close();
+            }
+        }
+        else if (!trial && state == State.CLOSED)
+        {
+            recordInWindow(success);
+
+            if (windowRequests == window.length && windowFailures >= failureRateThreshold * window.length)
+            {
+                open();
+            }
+        }
+    }
+
+    private void recordInWindow(final boolean success)
+    {
+        // the outcome recorded a window ago drops out
+        if (windowRequests == window.length)
+        {
+            windowFailures -= window[windowPosition] ? 0 : 1;
+        }
+        else
+        {
+            windowRequests++;
+        }
+
+        window[windowPosition] = success;
+        windowFailures += success ? 0 : 1;
+        windowPosition = (windowPosition + 1) % window.length;
+    }
+
+    private void open()
+    {
+        LOG.warn("penfold server circuit open - failing requests fast for {} ms", openDuration / 1000000);
+        state = State.OPEN;
+        openedAt = ticker.read();
+    }
+
+    private void close()
+    {
+        LOG.info("penfold server circuit closed");
+        state = State.CLOSED;
+        windowPosition = 0;
+        windowRequests = 0;
+        windowFailures = 0;
+    }
+}
@@ -0,0 +1,11 @@
+package com.qmetric.penfold.client.app.transport;
+
+import java.io.IOException;
+
+public class CircuitOpenException extends IOException
+{
+    public CircuitOpenException(final String e)
+    {
+        super(e);
+    }
+}
@@ -0,0 +1,36 @@
+package com.qmetric.penfold.client.app.transport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Request body, written straight into the request by the transport.
+ */
+public interface RequestBody
+{
+    void writeTo(OutputStream output) throws IOException;
+
+    /**
+     * @return Length in bytes, or -1 when not known until written
+     */
+    default long length()
+    {
+        return -1;
+    }
+
+    static RequestBody of(final byte[] bytes)
+    {
+        return new RequestBody()
+        {
+            @Override public void writeTo(final OutputStream output) throws IOException
+            {
+                output.write(bytes);
+            }
+
+            @Override public long length()
+            {
+                return bytes.length;
+            }
+        };
+    }
+}
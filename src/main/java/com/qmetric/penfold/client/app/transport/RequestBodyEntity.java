@@ -0,0 +1,51 @@
+package com.qmetric.penfold.client.app.transport;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Request body written straight into the connection, sent chunked when its length is not known up front.
+ */
+class RequestBodyEntity extends AbstractHttpEntity
+{
+    private final RequestBody body;
+
+    RequestBodyEntity(final RequestBody body)
+    {
+        this.body = body;
+        setChunked(body.length() < 0);
+    }
+
+    @Override public boolean isRepeatable()
+    {
+        return true;
+    }
+
+    @Override public long getContentLength()
+    {
+        return body.length();
+    }
+
+    @Override public InputStream getContent() throws IOException
+    {
+        // for consumers that read rather than write the entity, such as the non-blocking client
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        body.writeTo(content);
+        return new ByteArrayInputStream(content.toByteArray());
+    }
+
+    @Override public void writeTo(final OutputStream output) throws IOException
+    {
+        body.writeTo(output);
+    }
+
+    @Override public boolean isStreaming()
+    {
+        return false;
+    }
+}
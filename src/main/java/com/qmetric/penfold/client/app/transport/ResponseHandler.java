@@ -0,0 +1,8 @@
+package com.qmetric.penfold.client.app.transport;
+
+import java.io.IOException;
+
+public interface ResponseHandler<T>
+{
+    T handle(TransportResponse response) throws IOException;
+}
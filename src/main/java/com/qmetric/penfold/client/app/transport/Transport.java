@@ -0,0 +1,17 @@
+package com.qmetric.penfold.client.app.transport;
+
+import java.io.IOException;
+
+/**
+ * Sends requests to the penfold server on behalf of the query and store services, so that how requests reach the server can be chosen per
+ * deployment, or swapped for an in-process server when exercising the client in isolation from networking.
+ */
+public interface Transport
+{
+    /**
+     * @param request Request
+     * @return Response, to be closed once handled
+     * @throws IOException when the request cannot be sent or the response cannot be received
+     */
+    TransportResponse execute(TransportRequest request) throws IOException;
+}
@@ -0,0 +1,53 @@
+package com.qmetric.penfold.client.app.transport;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+public class TransportRequest
+{
+    public final String method;
+
+    public final URI uri;
+
+    public final Map<String, String> headers;
+
+    public final Optional<RequestBody> body;
+
+    private TransportRequest(final String method, final URI uri, final Map<String, String> headers, final Optional<RequestBody> body)
+    {
+        this.method = method;
+        this.uri = uri;
+        this.headers = ImmutableMap.copyOf(headers);
+        this.body = body;
+    }
+
+    public static TransportRequest get(final URI uri, final Map<String, String> headers)
+    {
+        return new TransportRequest("GET", uri, headers, Optional.empty());
+    }
+
+    public static TransportRequest post(final URI uri, final Map<String, String> headers, final RequestBody body)
+    {
+        return new TransportRequest("POST", uri, headers, Optional.of(body));
+    }
+
+    /**
+     * @param additionalHeaders Headers to add
+     * @return Copy of this request with the additional headers
+     */
+    public TransportRequest withHeaders(final Map<String, String> additionalHeaders)
+    {
+        return new TransportRequest(method, uri, ImmutableMap.<String, String>builder().putAll(headers).putAll(additionalHeaders).build(), body);
+    }
+
+    @Override public String toString()
+    {
+        return new ToStringBuilder(this, SHORT_PREFIX_STYLE).append("method", method).append("uri", uri).toString();
+    }
+}
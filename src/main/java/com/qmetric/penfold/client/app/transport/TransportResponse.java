@@ -0,0 +1,30 @@
+package com.qmetric.penfold.client.app.transport;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Response received by a transport, releasing the underlying connection when closed.
+ */
+public interface TransportResponse extends Closeable
+{
+    int status();
+
+    Optional<String> header(String name);
+
+    InputStream body() throws IOException;
+
+    default byte[] bodyAsBytes() throws IOException
+    {
+        try (final InputStream body = body())
+        {
+            return ByteStreams.toByteArray(body);
+        }
+    }
+
+    @Override void close();
+}
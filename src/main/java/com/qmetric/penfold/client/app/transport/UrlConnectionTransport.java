@@ -0,0 +1,138 @@
+package com.qmetric.penfold.client.app.transport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.qmetric.penfold.client.app.support.Credentials;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Transport over the JDK's built in http client, with connections kept alive and reused by the JDK (see the http.maxConnections system property).
+ * Credentials are sent with every request rather than in answer to a challenge.
+ */
+public class UrlConnectionTransport implements Transport
+{
+    private static final int CONNECT_TIMEOUT = 60000;
+
+    private static final int READ_TIMEOUT = 60000;
+
+    private final Optional<String> authorization;
+
+    public UrlConnectionTransport()
+    {
+        this.authorization = Optional.empty();
+    }
+
+    public UrlConnectionTransport(final Credentials credentials)
+    {
+        final String usernameAndPassword = String.format("%s:%s", credentials.username, credentials.password);
+        this.authorization = Optional.of("Basic " + Base64.getEncoder().encodeToString(usernameAndPassword.getBytes(Charsets.UTF_8)));
+    }
+
+    @Override public TransportResponse execute(final TransportRequest request) throws IOException
+    {
+        final HttpURLConnection connection = (HttpURLConnection) request.uri.toURL().openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setRequestMethod(request.method);
+
+        for (final Map.Entry<String, String> header : request.headers.entrySet())
+        {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+
+        if (authorization.isPresent())
+        {
+            connection.setRequestProperty("Authorization", authorization.get());
+        }
+
+        if (request.body.isPresent())
+        {
+            writeBody(connection, request.body.get());
+        }
+
+        return new UrlConnectionResponse(connection, connection.getResponseCode());
+    }
+
+    private void writeBody(final HttpURLConnection connection, final RequestBody body) throws IOException
+    {
+        connection.setDoOutput(true);
+
+        if (body.length() >= 0)
+        {
+            connection.setFixedLengthStreamingMode(body.length());
+        }
+        else
+        {
+            connection.setChunkedStreamingMode(0);
+        }
+
+        try (final OutputStream output = connection.getOutputStream())
+        {
+            body.writeTo(output);
+        }
+    }
+
+    private static class UrlConnectionResponse implements TransportResponse
+    {
+        private final HttpURLConnection connection;
+
+        private final int status;
+
+        private InputStream body;
+
+        UrlConnectionResponse(final HttpURLConnection connection, final int status)
+        {
+            this.connection = connection;
+            this.status = status;
+        }
+
+        @Override public int status()
+        {
+            return status;
+        }
+
+        @Override public Optional<String> header(final String name)
+        {
+            return Optional.ofNullable(connection.getHeaderField(name));
+        }
+
+        @Override public InputStream body() throws IOException
+        {
+            if (body == null)
+            {
+                // error responses are only readable from the error stream, which is null when there is no body
+                final InputStream stream = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+                body = stream != null ? stream : new ByteArrayInputStream(new byte[0]);
+            }
+
+            return body;
+        }
+
+        @Override public byte[] bodyAsBytes() throws IOException
+        {
+            // left open until closed, when the connection is released
+            return ByteStreams.toByteArray(body());
+        }
+
+        @Override public void close()
+        {
+            // read to the end, so that the connection is kept alive for reuse
+            try (final InputStream remaining = body())
+            {
+                ByteStreams.copy(remaining, ByteStreams.nullOutputStream());
+            }
+            catch (final IOException e)
+            {
+                // already closed, or broken and not reused
+            }
+        }
+    }
+}
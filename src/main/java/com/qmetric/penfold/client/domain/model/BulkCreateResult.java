@@ -0,0 +1,51 @@
+package com.qmetric.penfold.client.domain.model;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.List;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+public class BulkCreateResult
+{
+    public final List<Task> created;
+
+    public final List<CreateFailure> failures;
+
+    public BulkCreateResult(final List<Task> created, final List<CreateFailure> failures)
+    {
+        this.created = created;
+        this.failures = failures;
+    }
+
+    public boolean hasFailures()
+    {
+        return !failures.isEmpty();
+    }
+
+    @Override public int hashCode()
+    {
+        return 31 * created.hashCode() + failures.hashCode();
+    }
+
+    @Override public boolean equals(final Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+
+        final BulkCreateResult other = (BulkCreateResult) obj;
+
+        return created.equals(other.created) && failures.equals(other.failures);
+    }
+
+    @Override public String toString()
+    {
+        return new ToStringBuilder(this, SHORT_PREFIX_STYLE).append("created", created.size()).append("failures", failures.size()).toString();
+    }
+}
@@ -0,0 +1,48 @@
+package com.qmetric.penfold.client.domain.model;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+public class CreateFailure
+{
+    // position of the task within the submitted tasks
+    public final int index;
+
+    public final NewTask task;
+
+    public final RuntimeException cause;
+
+    public CreateFailure(final int index, final NewTask task, final RuntimeException cause)
+    {
+        this.index = index;
+        this.task = task;
+        this.cause = cause;
+    }
+
+    @Override public int hashCode()
+    {
+        return 31 * index + task.hashCode();
+    }
+
+    @Override public boolean equals(final Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+
+        final CreateFailure other = (CreateFailure) obj;
+
+        return index == other.index && task.equals(other.task) && cause.equals(other.cause);
+    }
+
+    @Override public String toString()
+    {
+        return new ToStringBuilder(this, SHORT_PREFIX_STYLE).append("index", index).append("task", task).append("cause", cause).toString();
+    }
+}
@@ -1,13 +1,12 @@
 package com.qmetric.penfold.client.domain.model;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
 
 public class NewTask
 {
@@ -29,16 +28,27 @@ public class NewTask
 
     @Override public int hashCode()
     {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return 31 * queue.hashCode() + payload.hashCode();
     }
 
     @Override public boolean equals(final Object obj)
     {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+
+        final NewTask other = (NewTask) obj;
+
+        return queue.equals(other.queue) && payload.equals(other.payload) && triggerDate.equals(other.triggerDate);
     }
 
     @Override public String toString()
     {
-        return ToStringBuilder.reflectionToString(this);
+        return new ToStringBuilder(this, SHORT_PREFIX_STYLE).append("queue", queue).append("triggerDate", triggerDate.orElse(null)).toString();
     }
 }
@@ -1,8 +1,5 @@
 package com.qmetric.penfold.client.domain.model;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
-
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
@@ -10,20 +7,34 @@ public abstract class NonEmptyValue
 {
     public final String value;
 
+    private final int hashCode;
+
     protected NonEmptyValue(final String id)
     {
         checkArgument(isNotBlank(id));
         this.value = id;
+        this.hashCode = id.hashCode();
     }
 
     @Override public int hashCode()
     {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return hashCode;
     }
 
     @Override public boolean equals(final Object obj)
     {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+
+        final NonEmptyValue other = (NonEmptyValue) obj;
+
+        return hashCode == other.hashCode && value.equals(other.value);
     }
 
     @Override public String toString()
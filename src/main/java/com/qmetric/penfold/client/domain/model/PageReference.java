@@ -1,7 +1,6 @@
 package com.qmetric.penfold.client.domain.model;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import java.util.Objects;
 
 public class PageReference
 {
@@ -14,12 +13,23 @@ public class PageReference
 
     @Override public int hashCode()
     {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return Objects.hashCode(value);
     }
 
     @Override public boolean equals(final Object obj)
     {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+
+        final PageReference other = (PageReference) obj;
+
+        return Objects.equals(value, other.value);
     }
 
     @Override public String toString()
@@ -1,40 +1,169 @@
 package com.qmetric.penfold.client.domain.model;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.collect.ImmutableMap;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import com.qmetric.penfold.client.app.support.ObjectMapperFactory;
+import com.qmetric.penfold.client.app.support.PayloadReader;
+import com.qmetric.penfold.client.app.support.RawJson;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
+import java.io.IOException;
+import java.lang.reflect.Type;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
 
 public class Payload
 {
+    private static final Type MAP_TYPE = new TypeReference<Map<String, Object>>() {}.getType();
+
+    private static final PayloadReader DEFAULT_READER = new PayloadReader(ObjectMapperFactory.create());
+
     public static final Payload empty = new Payload(ImmutableMap.of());
 
-    private final Map<String, Object> map;
+    // raw json payload as received or given, decoded only when asked for
+    private final Optional<byte[]> json;
+
+    // json node or object given as the payload
+    private final Optional<Object> value;
+
+    private final PayloadReader reader;
+
+    private volatile Map<String, Object> map;
 
     public Payload(final Map<String, Object> map)
     {
+        this.json = Optional.empty();
+        this.value = Optional.empty();
+        this.reader = DEFAULT_READER;
         this.map = map;
     }
 
+    public Payload(final byte[] json, final PayloadReader reader)
+    {
+        this.json = Optional.of(json);
+        this.value = Optional.empty();
+        this.reader = reader;
+    }
+
+    private Payload(final Object value)
+    {
+        this.json = Optional.empty();
+        this.value = Optional.of(value);
+        this.reader = DEFAULT_READER;
+    }
+
+    /**
+     * Payload already serialized as a json object, sent as is when creating a task rather than via a map. The json is not checked before it is
+     * sent.
+     *
+     * @param json Utf-8 encoded json object
+     * @return Payload
+     */
+    public static Payload fromJson(final byte[] json)
+    {
+        return new Payload(json, DEFAULT_READER);
+    }
+
+    /**
+     * Payload of a json node or any object serializable as a json object, serialized straight into the request when creating a task rather than
+     * via a map.
+     *
+     * @param value Json node or object
+     * @return Payload
+     */
+    public static Payload of(final Object value)
+    {
+        return new Payload(value);
+    }
+
     public Map<String, Object> getAsMap()
     {
-        return map;
+        Map<String, Object> decoded = map;
+
+        if (decoded == null)
+        {
+            // decoding more than once when raced is harmless
+            decoded = json.isPresent() ? reader.read(json.get(), MAP_TYPE) : reader.convert(value.get(), MAP_TYPE);
+            map = decoded;
+        }
+
+        return decoded;
+    }
+
+    /**
+     * Payload bound to the given type, straight from the payload as received rather than via a map.
+     *
+     * @param type Payload type
+     * @return Payload of the given type
+     */
+    public <T> T as(final Class<T> type)
+    {
+        return as((Type) type);
+    }
+
+    /**
+     * Payload bound to the given generic type, straight from the payload as received rather than via a map.
+     *
+     * @param type Payload type
+     * @return Payload of the given type
+     */
+    public <T> T as(final TypeReference<T> type)
+    {
+        return as(type.getType());
+    }
+
+    private <T> T as(final Type type)
+    {
+        return json.isPresent() ? reader.read(json.get(), type) : reader.convert(value.isPresent() ? value.get() : map, type);
+    }
+
+    /**
+     * Writes the payload as json, with raw json written as the bytes it is held as rather than decoded and encoded again.
+     *
+     * @param generator Json generator
+     * @throws IOException when the payload cannot be written
+     */
+    public void writeTo(final JsonGenerator generator) throws IOException
+    {
+        if (json.isPresent())
+        {
+            generator.writeRawValue(new RawJson(json.get()));
+        }
+        else
+        {
+            generator.writeObject(value.isPresent() ? value.get() : map);
+        }
     }
 
     @Override public int hashCode()
     {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return Objects.hashCode(getAsMap());
     }
 
     @Override public boolean equals(final Object obj)
     {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+
+        final Payload other = (Payload) obj;
+
+        return Objects.equals(getAsMap(), other.getAsMap());
     }
 
     @Override public String toString()
     {
-        return ToStringBuilder.reflectionToString(this);
+        final Map<String, Object> decoded = map;
+
+        return new ToStringBuilder(this, SHORT_PREFIX_STYLE).append("fields", decoded != null ? String.valueOf(decoded.size()) : "undecoded").toString();
     }
 }
@@ -1,11 +1,11 @@
 package com.qmetric.penfold.client.domain.model;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import java.util.Optional;
 
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
 public class Reply
 {
     public final ReplyType type;
@@ -50,16 +50,27 @@ public class Reply
 
     @Override public int hashCode()
     {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return 31 * type.hashCode() + reason.hashCode();
     }
 
     @Override public boolean equals(final Object obj)
     {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+
+        final Reply other = (Reply) obj;
+
+        return type == other.type && reason.equals(other.reason);
     }
 
     @Override public String toString()
     {
-        return ToStringBuilder.reflectionToString(this);
+        return new ToStringBuilder(this, SHORT_PREFIX_STYLE).append("type", type).append("reason", reason.orElse(null)).toString();
     }
 }
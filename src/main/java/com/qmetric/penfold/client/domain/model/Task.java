@@ -1,10 +1,13 @@
 package com.qmetric.penfold.client.domain.model;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import com.google.common.collect.ImmutableMap;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
 
 public class Task
 {
@@ -24,8 +27,19 @@ public class Task
 
     public final Payload payload;
 
+    /**
+     * Server links for the commands applicable to this version of the task, empty when not known.
+     */
+    public final Map<CommandType, String> commandLinks;
+
     public Task(final TaskId id, final Integer version, final QueueId queue, final TaskStatus status, final LocalDateTime created, final LocalDateTime triggerDate,
                 final int attempts, final Payload payload)
+    {
+        this(id, version, queue, status, created, triggerDate, attempts, payload, ImmutableMap.of());
+    }
+
+    public Task(final TaskId id, final Integer version, final QueueId queue, final TaskStatus status, final LocalDateTime created, final LocalDateTime triggerDate,
+                final int attempts, final Payload payload, final Map<CommandType, String> commandLinks)
     {
         this.id = id;
         this.version = version;
@@ -35,6 +49,7 @@ public class Task
         this.status = status;
         this.attempts = attempts;
         this.payload = payload;
+        this.commandLinks = ImmutableMap.copyOf(commandLinks);
     }
 
     public Builder builder()
@@ -44,17 +59,39 @@ public class Task
 
     @Override public int hashCode()
     {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return 31 * id.hashCode() + Objects.hashCode(version);
     }
 
     @Override public boolean equals(final Object obj)
     {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+
+        // command links are excluded, being a server hint rather than task state
+        final Task other = (Task) obj;
+
+        return attempts == other.attempts && Objects.equals(id, other.id) && Objects.equals(version, other.version) && Objects.equals(status, other.status) &&
+               Objects.equals(queue, other.queue) && Objects.equals(created, other.created) && Objects.equals(triggerDate, other.triggerDate) &&
+               Objects.equals(payload, other.payload);
     }
 
     @Override public String toString()
     {
-        return ToStringBuilder.reflectionToString(this);
+        // bounded by leaving out the payload, as tasks are logged as they are consumed
+        return new ToStringBuilder(this, SHORT_PREFIX_STYLE)
+                .append("id", id)
+                .append("version", version)
+                .append("queue", queue)
+                .append("status", status)
+                .append("attempts", attempts)
+                .append("triggerDate", triggerDate)
+                .toString();
     }
 
     public static class Builder
@@ -75,6 +112,8 @@ public class Task
 
         private Payload payload;
 
+        private Map<CommandType, String> commandLinks = ImmutableMap.of();
+
         private Builder(final Task task)
         {
             this.id = task.id;
@@ -85,6 +124,7 @@ public class Task
             this.status = task.status;
             this.attempts = task.attempts;
             this.payload = task.payload;
+            this.commandLinks = task.commandLinks;
         }
 
         public Builder(final TaskId id)
@@ -94,6 +134,11 @@ public class Task
 
         public Builder withVersion(final Integer version)
         {
+            if (!Objects.equals(version, this.version))
+            {
+                // command links are only valid for the version they were issued with
+                this.commandLinks = ImmutableMap.of();
+            }
             this.version = version;
             return this;
         }
@@ -134,9 +179,15 @@ public class Task
             return this;
         }
 
+        public Builder withCommandLinks(final Map<CommandType, String> commandLinks)
+        {
+            this.commandLinks = commandLinks;
+            return this;
+        }
+
         public Task build()
         {
-            return new Task(id, version, queue, status, created, triggerDate, attempts, payload);
+            return new Task(id, version, queue, status, created, triggerDate, attempts, payload, commandLinks);
         }
     }
 }
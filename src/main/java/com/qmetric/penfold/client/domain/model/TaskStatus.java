@@ -1,7 +1,8 @@
 package com.qmetric.penfold.client.domain.model;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
@@ -18,6 +19,14 @@ public class TaskStatus
 
     public static final TaskStatus CANCELLED = new TaskStatus("cancelled");
 
+    private static final Map<String, TaskStatus> CANONICAL = ImmutableMap.<String, TaskStatus>builder() //
+            .put(WAITING.value, WAITING) //
+            .put(READY.value, READY) //
+            .put(STARTED.value, STARTED) //
+            .put(CLOSED.value, CLOSED) //
+            .put(CANCELLED.value, CANCELLED) //
+            .build();
+
     public final String value;
 
     public TaskStatus(final String value)
@@ -26,39 +35,57 @@ public class TaskStatus
         this.value = value;
     }
 
+    /**
+     * Status for the given value, being the shared constant for known statuses so that status checks are identity comparisons.
+     *
+     * @param value Status value
+     * @return Task status
+     */
+    public static TaskStatus of(final String value)
+    {
+        final TaskStatus canonical = CANONICAL.get(value);
+
+        return canonical != null ? canonical : new TaskStatus(value);
+    }
+
     public boolean isWaiting()
     {
-        return this.equals(WAITING);
+        return is(WAITING);
     }
 
     public boolean isReady()
     {
-        return this.equals(READY);
+        return is(READY);
     }
 
     public boolean isStarted()
     {
-        return this.equals(STARTED);
+        return is(STARTED);
     }
 
     public boolean isClosed()
     {
-        return this.equals(CLOSED);
+        return is(CLOSED);
     }
 
     public boolean isCancelled()
     {
-        return this.equals(CANCELLED);
+        return is(CANCELLED);
+    }
+
+    private boolean is(final TaskStatus status)
+    {
+        return this == status || value.equals(status.value);
     }
 
     @Override public int hashCode()
     {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return value.hashCode();
     }
 
     @Override public boolean equals(final Object obj)
     {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        return obj instanceof TaskStatus && is((TaskStatus) obj);
     }
 
     @Override public String toString()
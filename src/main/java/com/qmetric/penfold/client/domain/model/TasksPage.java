@@ -1,12 +1,12 @@
 package com.qmetric.penfold.client.domain.model;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import java.util.List;
 import java.util.Optional;
 
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
 public class TasksPage
 {
     public final List<Task> tasks;
@@ -24,16 +24,27 @@ public class TasksPage
 
     @Override public int hashCode()
     {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return 31 * tasks.hashCode() + nextPage.hashCode();
     }
 
     @Override public boolean equals(final Object obj)
     {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+
+        final TasksPage other = (TasksPage) obj;
+
+        return tasks.equals(other.tasks) && previousPage.equals(other.previousPage) && nextPage.equals(other.nextPage);
     }
 
     @Override public String toString()
     {
-        return ToStringBuilder.reflectionToString(this);
+        return new ToStringBuilder(this, SHORT_PREFIX_STYLE).append("tasks", tasks.size()).append("previousPage", previousPage.orElse(null)).append("nextPage", nextPage.orElse(null)).toString();
     }
 }
@@ -1,32 +1,68 @@
 package com.qmetric.penfold.client.domain.services;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.AbstractIterator;
 import com.qmetric.penfold.client.domain.model.PageReference;
 import com.qmetric.penfold.client.domain.model.Task;
 import com.qmetric.penfold.client.domain.model.TasksPage;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
 
 public abstract class AbstractTaskIterator extends AbstractIterator<Task>
 {
     protected final PageAwareTaskQueryService taskQueryService;
 
+    private final int prefetchDepth;
+
+    private final Executor prefetchExecutor;
+
+    private final Timer pageWaits;
+
+    private final Histogram pageSizes;
+
+    private final Deque<CompletableFuture<Optional<TasksPage>>> prefetchedPages = new ArrayDeque<>();
+
     private TasksPage currentPage;
 
     private Iterator<Task> currentPageIterator;
 
     public AbstractTaskIterator(final PageAwareTaskQueryService taskQueryService)
     {
+        this(taskQueryService, 0, Runnable::run);
+    }
+
+    public AbstractTaskIterator(final PageAwareTaskQueryService taskQueryService, final int prefetchDepth, final Executor prefetchExecutor)
+    {
+        this(taskQueryService, prefetchDepth, prefetchExecutor, new MetricRegistry());
+    }
+
+    public AbstractTaskIterator(final PageAwareTaskQueryService taskQueryService, final int prefetchDepth, final Executor prefetchExecutor,
+                                final MetricRegistry metricRegistry)
+    {
+        checkArgument(prefetchDepth >= 0, "negative prefetch depth");
         this.taskQueryService = taskQueryService;
+        this.prefetchDepth = prefetchDepth;
+        this.prefetchExecutor = prefetchExecutor;
+        this.pageWaits = metricRegistry.timer(name("penfold.query", "page-wait"));
+        this.pageSizes = metricRegistry.histogram(name("penfold.query", "page-size"));
     }
 
     @Override protected Task computeNext()
     {
         if (currentPage == null)
         {
-            currentPage = loadPageOfTasks(Optional.empty());
-            currentPageIterator = currentPage.tasks.iterator();
+            moveToFirstPage();
         }
 
         if (currentPageIterator.hasNext())
@@ -45,10 +81,67 @@ public abstract class AbstractTaskIterator extends AbstractIterator<Task>
         }
     }
 
+    private void moveToFirstPage()
+    {
+        final Timer.Context pageWait = pageWaits.time();
+
+        final TasksPage page = loadPageOfTasks(Optional.empty());
+
+        pageWait.stop();
+
+        moveToPage(page);
+    }
+
     private void moveToNextPage()
     {
-        currentPage = loadPageOfTasks(currentPage.nextPage);
-        currentPageIterator = currentPage.tasks.iterator();
+        // time spent blocked on the next page, which prefetching keeps close to zero whilst it keeps up
+        final Timer.Context pageWait = pageWaits.time();
+
+        final TasksPage page = prefetchedPages.isEmpty() ? loadPageOfTasks(currentPage.nextPage) : awaitPrefetched(prefetchedPages.poll()).get();
+
+        pageWait.stop();
+
+        moveToPage(page);
+    }
+
+    private void moveToPage(final TasksPage page)
+    {
+        pageSizes.update(page.tasks.size());
+
+        currentPage = page;
+        currentPageIterator = page.tasks.iterator();
+
+        prefetchAhead();
+    }
+
+    private void prefetchAhead()
+    {
+        while (prefetchedPages.size() < prefetchDepth)
+        {
+            final CompletableFuture<Optional<TasksPage>> previous = prefetchedPages.isEmpty() ?
+                    CompletableFuture.completedFuture(Optional.of(currentPage)) :
+                    prefetchedPages.peekLast();
+
+            prefetchedPages.add(previous.thenApplyAsync(this::loadPageAfter, prefetchExecutor));
+        }
+    }
+
+    private Optional<TasksPage> loadPageAfter(final Optional<TasksPage> page)
+    {
+        return page.isPresent() && page.get().nextPage.isPresent() ? Optional.of(loadPageOfTasks(page.get().nextPage)) : Optional.empty();
+    }
+
+    private Optional<TasksPage> awaitPrefetched(final CompletableFuture<Optional<TasksPage>> prefetchedPage)
+    {
+        try
+        {
+            return prefetchedPage.join();
+        }
+        catch (final CompletionException e)
+        {
+            prefetchedPages.clear();
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
     }
 
     protected abstract TasksPage loadPageOfTasks(final Optional<PageReference> pageReference);
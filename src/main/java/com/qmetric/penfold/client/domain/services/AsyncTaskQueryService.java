@@ -0,0 +1,26 @@
+package com.qmetric.penfold.client.domain.services;
+
+import com.qmetric.penfold.client.app.commands.filter.Filter;
+import com.qmetric.penfold.client.domain.model.PageReference;
+import com.qmetric.penfold.client.domain.model.QueueId;
+import com.qmetric.penfold.client.domain.model.Task;
+import com.qmetric.penfold.client.domain.model.TaskId;
+import com.qmetric.penfold.client.domain.model.TaskStatus;
+import com.qmetric.penfold.client.domain.model.TasksPage;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking equivalent of {@link TaskQueryService}, retrieving a page of tasks at a time. Close once done with to release its http client.
+ */
+public interface AsyncTaskQueryService extends Closeable
+{
+    CompletableFuture<Optional<Task>> find(TaskId id);
+
+    CompletableFuture<TasksPage> retrieve(QueueId queue, TaskStatus status, List<Filter> filters, Optional<PageReference> pageRequest);
+
+    CompletableFuture<TasksPage> retrieve(List<Filter> filters, Optional<PageReference> pageRequest);
+}
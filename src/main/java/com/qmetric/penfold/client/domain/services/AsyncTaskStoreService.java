@@ -0,0 +1,29 @@
+package com.qmetric.penfold.client.domain.services;
+
+import com.qmetric.penfold.client.domain.model.CloseResultType;
+import com.qmetric.penfold.client.domain.model.NewTask;
+import com.qmetric.penfold.client.domain.model.Task;
+
+import java.io.Closeable;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking equivalent of {@link TaskStoreService}. Conflicts complete the returned future exceptionally with a ConflictException. Close once done
+ * with to release its http client.
+ */
+public interface AsyncTaskStoreService extends Closeable
+{
+    CompletableFuture<Task> create(NewTask task);
+
+    CompletableFuture<Task> start(Task task);
+
+    CompletableFuture<Task> requeue(Task task, Optional<String> reason);
+
+    CompletableFuture<Task> reschedule(Task task, LocalDateTime triggerDate, Optional<String> reason);
+
+    CompletableFuture<Task> cancel(Task task, Optional<String> reason);
+
+    CompletableFuture<Task> close(Task task, Optional<CloseResultType> resultType, Optional<String> reason);
+}
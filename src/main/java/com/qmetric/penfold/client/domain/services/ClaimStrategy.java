@@ -0,0 +1,25 @@
+package com.qmetric.penfold.client.domain.services;
+
+import com.qmetric.penfold.client.domain.model.Task;
+
+import java.util.Iterator;
+
+/**
+ * Which of the ready tasks found a consumer attempts to start, and in what order.
+ */
+public interface ClaimStrategy
+{
+    /**
+     * Every ready task, in the order the server returns them.
+     */
+    ClaimStrategy PAGE_ORDER = readyTasks -> readyTasks;
+
+    Iterator<Task> claimOrder(Iterator<Task> readyTasks);
+
+    /**
+     * Told of each attempt to start a task, and whether it conflicted with another consumer starting the task first.
+     */
+    default void claimed(final Task task, final boolean conflicted)
+    {
+    }
+}
@@ -1,5 +1,10 @@
 package com.qmetric.penfold.client.domain.services;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
 import com.github.rholder.retry.RetryerBuilder;
 import com.google.common.collect.ImmutableList;
 import com.qmetric.penfold.client.app.support.LocalDateTimeSource;
@@ -19,8 +24,15 @@ import java.time.Duration;
 import java.util.Iterator;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static com.github.rholder.retry.StopStrategies.stopAfterAttempt;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.github.rholder.retry.WaitStrategies.fixedWait;
 import static com.qmetric.penfold.client.domain.model.CloseResultType.failure;
 import static com.qmetric.penfold.client.domain.model.CloseResultType.success;
@@ -55,23 +67,76 @@ public class Consumer
 
     private final Notifier notifier;
 
+    private final Executor workers;
+
+    private final int concurrency;
+
+    private final ClaimStrategy claimStrategy;
+
+    private final Optional<ReplyRetryScheduler> replyRetryScheduler;
+
+    private final Optional<ConsumerPipeline> pipeline;
+
+    private final Timer executions;
+
+    private final Timer replies;
+
+    private final Histogram replyAttempts;
+
+    private final Meter successes;
+
+    private final Meter failures;
+
+    private final Meter retries;
+
+    private final Meter conflicts;
+
+    private final Meter claims;
+
+    private final Timer claimTimings;
+
+    private final AtomicInteger tasksStarted = new AtomicInteger();
+
     public Consumer(final QueueId queue, final ConsumerFunction function, final Optional<Duration> retryDelay, final TaskQueryService taskQueryService,
                     final TaskStoreService taskStoreService, final LocalDateTimeSource dateTimeSource, final Notifier notifier)
     {
-        this(queue, function, retryDelay, taskQueryService, taskStoreService, dateTimeSource, notifier, DEFAULT_RETRY_BUILDER);
+        this(new Builder(queue, function, retryDelay, taskQueryService, taskStoreService, dateTimeSource, notifier));
     }
 
     Consumer(final QueueId queue, final ConsumerFunction function, final Optional<Duration> retryDelay, final TaskQueryService taskQueryService,
              final TaskStoreService taskStoreService, final LocalDateTimeSource dateTimeSource, final Notifier notifier, final RetryerBuilder<Void> retryBuilder)
     {
-        this.queue = queue;
-        this.function = function;
-        this.retryDelay = retryDelay;
-        this.taskQueryService = taskQueryService;
-        this.taskStoreService = taskStoreService;
-        this.dateTimeSource = dateTimeSource;
-        this.retryBuilder = retryBuilder;
-        this.notifier = notifier;
+        this(new Builder(queue, function, retryDelay, taskQueryService, taskStoreService, dateTimeSource, notifier).withRetryBuilder(retryBuilder));
+    }
+
+    private Consumer(final Builder builder)
+    {
+        this.queue = builder.queue;
+        this.function = builder.function;
+        this.retryDelay = builder.retryDelay;
+        this.taskQueryService = builder.taskQueryService;
+        this.taskStoreService = builder.taskStoreService;
+        this.dateTimeSource = builder.dateTimeSource;
+        this.retryBuilder = builder.retryBuilder;
+        this.notifier = builder.notifier;
+        this.workers = builder.workers;
+        this.concurrency = builder.concurrency;
+        this.claimStrategy = builder.claimStrategy;
+        this.replyRetryScheduler = builder.replyRetryScheduler;
+        this.pipeline = builder.pipeline;
+
+        final MetricRegistry metricRegistry = builder.metricRegistry;
+        this.executions = metricRegistry.timer(name("penfold.consumer", queue.value, "execute"));
+        this.replies = metricRegistry.timer(name("penfold.consumer", queue.value, "reply"));
+        this.replyAttempts = metricRegistry.histogram(name("penfold.consumer", queue.value, "reply-attempts"));
+        this.successes = metricRegistry.meter(name("penfold.consumer", queue.value, "successes"));
+        this.failures = metricRegistry.meter(name("penfold.consumer", queue.value, "failures"));
+        this.retries = metricRegistry.meter(name("penfold.consumer", queue.value, "retries"));
+        this.conflicts = metricRegistry.meter(name("penfold.consumer", queue.value, "conflicts"));
+        this.claims = metricRegistry.meter(name("penfold.consumer", queue.value, "claims"));
+        this.claimTimings = metricRegistry.timer(name("penfold.consumer", queue.value, "claim"));
+
+        registerConflictRatio(metricRegistry);
     }
 
     public QueueId getQueue()
@@ -79,68 +144,300 @@ public class Consumer
         return queue;
     }
 
-    public void consume()
+    private void registerConflictRatio(final MetricRegistry metricRegistry)
+    {
+        final String conflictRatio = name("penfold.consumer", queue.value, "conflict-ratio");
+
+        // consumers of the same queue recording in the same registry share the claims and conflicts meters, and so share the one ratio of them
+        if (!metricRegistry.getNames().contains(conflictRatio))
+        {
+            metricRegistry.register(conflictRatio, new RatioGauge()
+            {
+                @Override protected Ratio getRatio()
+                {
+                    return Ratio.of(conflicts.getOneMinuteRate(), claims.getOneMinuteRate());
+                }
+            });
+        }
+    }
+
+    /**
+     * @return Number of tasks started, excluding tasks found but already taken by another consumer
+     */
+    public int consume()
     {
-        final Iterator<Task> tasks = taskQueryService.find(queue, TaskStatus.READY, ImmutableList.of());
+        final Iterator<Task> tasks = claimStrategy.claimOrder(taskQueryService.find(queue, TaskStatus.READY, ImmutableList.of()));
+        final int startedBefore = tasksStarted.get();
 
-        while (tasks.hasNext())
+        if (pipeline.isPresent())
         {
-            final Task task = tasks.next();
+            pipeline.get().consume(tasks, this::claim, this::executeFunction, this::replyAndNotify);
+        }
+        else
+        {
+            consumeOnWorkers(tasks);
+        }
 
+        notifier.notify(new QueueConsumedEvent(queue));
+
+        return tasksStarted.get() - startedBefore;
+    }
+
+    private void consumeOnWorkers(final Iterator<Task> tasks)
+    {
+        // the workers may be shared with other queues, of which this queue never takes more than its concurrency
+        final Semaphore freeWorkers = new Semaphore(concurrency);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        try
+        {
             try
             {
-                consumeTask(task);
+                while (true)
+                {
+                    freeWorkers.acquire();
+
+                    final Optional<Task> task = nextTask(tasks, freeWorkers, failure);
+
+                    if (!task.isPresent())
+                    {
+                        break;
+                    }
+
+                    submit(task.get(), freeWorkers, failure);
+                }
             }
-            catch (ConflictException e)
+            catch (final RuntimeException e)
             {
-                LOG.info(String.format("task conflict %s when consumed from %s queue", task, queue), e);
+                // wait for in-flight tasks before giving up on the tasks found, such as when the next page cannot be retrieved, so that the next
+                // poll never consumes alongside them
+                freeWorkers.acquire(concurrency);
+                throw e;
             }
 
-            notifier.notify(new TaskConsumedEvent(task.id));
+            // wait for in-flight tasks before reporting the queue as consumed
+            freeWorkers.acquire(concurrency);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(String.format("interrupted whilst consuming from %s queue", queue), e);
         }
 
-        notifier.notify(new QueueConsumedEvent(queue));
+        if (failure.get() != null)
+        {
+            throw failure.get();
+        }
     }
 
-    private void consumeTask(final Task task)
+    /**
+     * @return Next task to consume on the worker acquired, otherwise empty once there are no more tasks or a task has failed, the worker being
+     * released when there is no task for it
+     */
+    private Optional<Task> nextTask(final Iterator<Task> tasks, final Semaphore freeWorkers, final AtomicReference<RuntimeException> failure)
     {
-        final Task startedTask = taskStoreService.start(task);
+        try
+        {
+            if (failure.get() == null && tasks.hasNext())
+            {
+                return Optional.of(tasks.next());
+            }
+        }
+        catch (final RuntimeException e)
+        {
+            freeWorkers.release();
+            throw e;
+        }
 
-        final Reply reply = executeFunction(startedTask);
+        freeWorkers.release();
+        return Optional.empty();
+    }
 
-        applyReplyWithRetries(startedTask.id, reply);
+    private void submit(final Task task, final Semaphore freeWorkers, final AtomicReference<RuntimeException> failure)
+    {
+        try
+        {
+            workers.execute(() -> {
+                try
+                {
+                    consumeAndNotify(task);
+                }
+                catch (final RuntimeException e)
+                {
+                    failure.compareAndSet(null, e);
+                }
+                finally
+                {
+                    freeWorkers.release();
+                }
+            });
+        }
+        catch (final RejectedExecutionException e)
+        {
+            freeWorkers.release();
+            throw e;
+        }
+    }
+
+    private void consumeAndNotify(final Task task)
+    {
+        final Optional<Task> startedTask = claim(task);
 
-        LOG.info(String.format("task %s consumed from %s queue with reply %s", startedTask, queue, reply));
+        if (startedTask.isPresent())
+        {
+            replyAndNotify(startedTask.get(), executeFunction(startedTask.get()));
+        }
     }
 
-    private void applyReplyWithRetries(final TaskId taskId, final Reply reply)
+    private Optional<Task> claim(final Task task)
     {
-        retryCodeBlock(taskId, () -> applyReply(taskId, reply));
+        try
+        {
+            return Optional.of(start(task));
+        }
+        catch (ConflictException e)
+        {
+            conflicts.mark();
+            LOG.info("task conflict {} when consumed from {} queue", task, queue, e);
+
+            notifier.notify(new TaskConsumedEvent(task.id));
+
+            return Optional.empty();
+        }
     }
 
-    private Void applyReply(final TaskId taskId, final Reply reply)
+    private void replyAndNotify(final Task startedTask, final Reply reply)
     {
-        LOG.debug(String.format("applying consumer reply for task %s %s", taskId, reply));
+        applyReplyWithRetries(startedTask, reply);
 
-        final Optional<Task> updatedVersionOfTask = taskQueryService.find(taskId);
+        markOutcome(reply);
 
-        final boolean isTaskStillStarted = updatedVersionOfTask.isPresent() && updatedVersionOfTask.get().status.isStarted();
+        LOG.info("task {} consumed from {} queue with reply {}", startedTask, queue, reply);
 
-        if (isTaskStillStarted)
+        notifier.notify(new TaskConsumedEvent(startedTask.id));
+    }
+
+    private Task start(final Task task)
+    {
+        claims.mark();
+        final Timer.Context claimTiming = claimTimings.time();
+
+        try
+        {
+            final Task startedTask = taskStoreService.start(task);
+            tasksStarted.incrementAndGet();
+            claimStrategy.claimed(task, false);
+
+            return startedTask;
+        }
+        catch (final ConflictException e)
+        {
+            claimStrategy.claimed(task, true);
+            throw e;
+        }
+        finally
         {
-            if (reply.type == SUCCESS)
+            claimTiming.stop();
+        }
+    }
+
+    private void applyReplyWithRetries(final Task startedTask, final Reply reply)
+    {
+        final AtomicInteger attempts = new AtomicInteger();
+        final Timer.Context replyTiming = replies.time();
+
+        try
+        {
+            if (replyRetryScheduler.isPresent())
             {
-                success(updatedVersionOfTask.get());
+                applyReplyOrRetryInBackground(startedTask, reply, attempts);
             }
-            else if (reply.type == FAIL)
+            else
             {
-                fail(updatedVersionOfTask.get(), reply.reason);
+                retryCodeBlock(startedTask.id, () -> attempts.incrementAndGet() == 1 ? applyReplyToStartedTask(startedTask, reply) : applyReply(startedTask.id, reply));
+            }
+        }
+        finally
+        {
+            replyTiming.stop();
+            replyAttempts.update(attempts.get());
+        }
+    }
+
+    private void applyReplyOrRetryInBackground(final Task startedTask, final Reply reply, final AtomicInteger attempts)
+    {
+        try
+        {
+            attempts.incrementAndGet();
+            applyReplyToStartedTask(startedTask, reply);
+        }
+        catch (final RuntimeException e)
+        {
+            if (replyRetryScheduler.get().schedule(startedTask.id, () -> applyReply(startedTask.id, reply)))
+            {
+                LOG.warn("task {} processed ok, but could not be closed/rescheduled - retrying in background", startedTask.id, e);
             }
             else
             {
-                retry(updatedVersionOfTask.get(), reply.reason);
+                // too many replies already pending, so hold up this consumer until the reply is applied
+                LOG.warn("task {} processed ok, but could not be closed/rescheduled - too many replies pending to retry in background", startedTask.id, e);
+                retryCodeBlock(startedTask.id, () -> {
+                    attempts.incrementAndGet();
+                    return applyReply(startedTask.id, reply);
+                });
             }
         }
+    }
+
+    private void markOutcome(final Reply reply)
+    {
+        if (reply.type == SUCCESS)
+        {
+            successes.mark();
+        }
+        else if (reply.type == FAIL)
+        {
+            failures.mark();
+        }
+        else
+        {
+            retries.mark();
+        }
+    }
+
+    private Void applyReplyToStartedTask(final Task startedTask, final Reply reply)
+    {
+        if (!startedTask.status.isStarted())
+        {
+            return applyReply(startedTask.id, reply);
+        }
+
+        try
+        {
+            LOG.debug("applying consumer reply for started task {} {}", startedTask.id, reply);
+
+            return applyReplyTo(startedTask, reply);
+        }
+        catch (final ConflictException e)
+        {
+            LOG.debug("started task {} changed since started - applying reply to latest version", startedTask.id);
+
+            return applyReply(startedTask.id, reply);
+        }
+    }
+
+    private Void applyReply(final TaskId taskId, final Reply reply)
+    {
+        LOG.debug("applying consumer reply for task {} {}", taskId, reply);
+
+        final Optional<Task> updatedVersionOfTask = taskQueryService.find(taskId);
+
+        final boolean isTaskStillStarted = updatedVersionOfTask.isPresent() && updatedVersionOfTask.get().status.isStarted();
+
+        if (isTaskStillStarted)
+        {
+            return applyReplyTo(updatedVersionOfTask.get(), reply);
+        }
         else
         {
             LOG.info("task {} already closed or rescheduled - doing nothing", taskId);
@@ -149,6 +446,24 @@ public class Consumer
         return VOID;
     }
 
+    private Void applyReplyTo(final Task startedTask, final Reply reply)
+    {
+        if (reply.type == SUCCESS)
+        {
+            success(startedTask);
+        }
+        else if (reply.type == FAIL)
+        {
+            fail(startedTask, reply.reason);
+        }
+        else
+        {
+            retry(startedTask, reply.reason);
+        }
+
+        return VOID;
+    }
+
     private void success(final Task updatedVersionOfTask)
     {
         LOG.debug("closing task {} on success", updatedVersionOfTask.id);
@@ -198,6 +513,8 @@ public class Consumer
 
     private Reply executeFunction(final Task task)
     {
+        final Timer.Context execution = executions.time();
+
         try
         {
             return function.execute(task);
@@ -207,5 +524,104 @@ public class Consumer
             LOG.error(String.format("failed to consume task %s", task), e);
             return Reply.retry(Optional.empty());
         }
+        finally
+        {
+            execution.stop();
+        }
+    }
+
+    public static class Builder
+    {
+        private final QueueId queue;
+
+        private final ConsumerFunction function;
+
+        private final Optional<Duration> retryDelay;
+
+        private final TaskQueryService taskQueryService;
+
+        private final TaskStoreService taskStoreService;
+
+        private final LocalDateTimeSource dateTimeSource;
+
+        private final Notifier notifier;
+
+        private Executor workers = Runnable::run;
+
+        private int concurrency = 1;
+
+        private MetricRegistry metricRegistry = new MetricRegistry();
+
+        private ClaimStrategy claimStrategy = ClaimStrategy.PAGE_ORDER;
+
+        private Optional<ReplyRetryScheduler> replyRetryScheduler = Optional.empty();
+
+        private Optional<ConsumerPipeline> pipeline = Optional.empty();
+
+        private RetryerBuilder<Void> retryBuilder = DEFAULT_RETRY_BUILDER;
+
+        public Builder(final QueueId queue, final ConsumerFunction function, final Optional<Duration> retryDelay, final TaskQueryService taskQueryService,
+                       final TaskStoreService taskStoreService, final LocalDateTimeSource dateTimeSource, final Notifier notifier)
+        {
+            this.queue = queue;
+            this.function = function;
+            this.retryDelay = retryDelay;
+            this.taskQueryService = taskQueryService;
+            this.taskStoreService = taskStoreService;
+            this.dateTimeSource = dateTimeSource;
+            this.notifier = notifier;
+        }
+
+        /**
+         * @param workers Executor to consume tasks on, which may be shared with other queues (default the polling thread)
+         * @param concurrency Most tasks of this queue to consume on the workers at once (default 1)
+         * @return Updated builder
+         */
+        public Builder withWorkers(final Executor workers, final int concurrency)
+        {
+            checkArgument(concurrency > 0, "concurrency must be positive");
+            this.workers = workers;
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public Builder withMetrics(final MetricRegistry metricRegistry)
+        {
+            this.metricRegistry = metricRegistry;
+            return this;
+        }
+
+        public Builder withClaimStrategy(final ClaimStrategy claimStrategy)
+        {
+            this.claimStrategy = claimStrategy;
+            return this;
+        }
+
+        public Builder withReplyRetryScheduler(final Optional<ReplyRetryScheduler> replyRetryScheduler)
+        {
+            this.replyRetryScheduler = replyRetryScheduler;
+            return this;
+        }
+
+        /**
+         * @param pipeline Stages to consume tasks in, instead of consuming each task on one of the workers
+         * @return Updated builder
+         */
+        public Builder withPipeline(final ConsumerPipeline pipeline)
+        {
+            this.pipeline = Optional.of(pipeline);
+            return this;
+        }
+
+        Builder withRetryBuilder(final RetryerBuilder<Void> retryBuilder)
+        {
+            this.retryBuilder = retryBuilder;
+            return this;
+        }
+
+        public Consumer build()
+        {
+            return new Consumer(this);
+        }
     }
 }
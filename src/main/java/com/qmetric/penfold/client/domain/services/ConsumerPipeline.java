@@ -0,0 +1,214 @@
+package com.qmetric.penfold.client.domain.services;
+
+import com.codahale.metrics.MetricRegistry;
+import com.qmetric.penfold.client.domain.model.QueueId;
+import com.qmetric.penfold.client.domain.model.Reply;
+import com.qmetric.penfold.client.domain.model.Task;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Consumes tasks in three stages, so that the requests to start and reply to tasks overlap with executing the consumer function rather than
+ * waiting on each other. Tasks are claimed (started) ahead of need and replied to on the request workers, and executed on the execution workers.
+ * Each stage hands over to the next through a bounded queue, holding up the stage before whilst the queue is full.
+ */
+public class ConsumerPipeline
+{
+    private final Executor executionWorkers;
+
+    private final int executionConcurrency;
+
+    private final Executor requestWorkers;
+
+    private final int requestConcurrency;
+
+    private final int queueCapacity;
+
+    private final AtomicInteger awaitingExecution = new AtomicInteger();
+
+    private final AtomicInteger awaitingReply = new AtomicInteger();
+
+    public ConsumerPipeline(final QueueId queue, final Executor executionWorkers, final int executionConcurrency, final Executor requestWorkers,
+                            final int requestConcurrency, final int queueCapacity, final MetricRegistry metricRegistry)
+    {
+        checkArgument(executionConcurrency > 0, "execution concurrency must be positive");
+        checkArgument(requestConcurrency > 0, "request concurrency must be positive");
+        checkArgument(queueCapacity >= 0, "negative pipeline queue capacity");
+        this.executionWorkers = executionWorkers;
+        this.executionConcurrency = executionConcurrency;
+        this.requestWorkers = requestWorkers;
+        this.requestConcurrency = requestConcurrency;
+        this.queueCapacity = queueCapacity;
+
+        // pipelines of the same queue recording in the same registry report the tasks awaiting each stage together
+        SummedGauge.register(metricRegistry, name("penfold.consumer", queue.value, "awaiting-execution"), awaitingExecution);
+        SummedGauge.register(metricRegistry, name("penfold.consumer", queue.value, "awaiting-reply"), awaitingReply);
+    }
+
+    /**
+     * @param claim Starts the task, or empty when the task could not be started
+     * @param execute Executes the consumer function on the started task
+     * @param reply Applies the reply to the started task
+     * @return Number of tasks found
+     */
+    int consume(final Iterator<Task> tasks, final Function<Task, Optional<Task>> claim, final Function<Task, Reply> execute,
+                final BiConsumer<Task, Reply> reply)
+    {
+        // tasks being claimed or not yet executed, and replies not yet applied
+        final Semaphore claimed = new Semaphore(executionConcurrency + queueCapacity);
+        final Semaphore replying = new Semaphore(requestConcurrency + queueCapacity);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        int tasksFound = 0;
+
+        try
+        {
+            while (true)
+            {
+                claimed.acquire();
+
+                if (failure.get() != null || !tasks.hasNext())
+                {
+                    claimed.release();
+                    break;
+                }
+
+                submitClaim(tasks.next(), claim, execute, reply, claimed, replying, failure);
+                tasksFound++;
+            }
+
+            // wait for tasks in each stage before reporting the queue as consumed
+            claimed.acquire(executionConcurrency + queueCapacity);
+            replying.acquire(requestConcurrency + queueCapacity);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted whilst consuming tasks", e);
+        }
+
+        if (failure.get() != null)
+        {
+            throw failure.get();
+        }
+
+        return tasksFound;
+    }
+
+    private void submitClaim(final Task task, final Function<Task, Optional<Task>> claim, final Function<Task, Reply> execute,
+                             final BiConsumer<Task, Reply> reply, final Semaphore claimed, final Semaphore replying,
+                             final AtomicReference<RuntimeException> failure)
+    {
+        try
+        {
+            requestWorkers.execute(() -> {
+                try
+                {
+                    final Optional<Task> startedTask = claim.apply(task);
+
+                    if (startedTask.isPresent())
+                    {
+                        submitExecution(startedTask.get(), execute, reply, claimed, replying, failure);
+                    }
+                    else
+                    {
+                        claimed.release();
+                    }
+                }
+                catch (final RuntimeException e)
+                {
+                    failure.compareAndSet(null, e);
+                    claimed.release();
+                }
+            });
+        }
+        catch (final RejectedExecutionException e)
+        {
+            claimed.release();
+            throw e;
+        }
+    }
+
+    private void submitExecution(final Task startedTask, final Function<Task, Reply> execute, final BiConsumer<Task, Reply> reply, final Semaphore claimed,
+                                 final Semaphore replying, final AtomicReference<RuntimeException> failure)
+    {
+        awaitingExecution.incrementAndGet();
+
+        try
+        {
+            executionWorkers.execute(() -> {
+                awaitingExecution.decrementAndGet();
+
+                try
+                {
+                    final Reply executionReply = execute.apply(startedTask);
+
+                    replying.acquire();
+                    submitReply(startedTask, executionReply, reply, replying, failure);
+                }
+                catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    failure.compareAndSet(null, new RuntimeException(String.format("interrupted whilst handing over reply to task %s", startedTask.id), e));
+                }
+                catch (final RuntimeException e)
+                {
+                    failure.compareAndSet(null, e);
+                }
+                finally
+                {
+                    claimed.release();
+                }
+            });
+        }
+        catch (final RejectedExecutionException e)
+        {
+            // released by the claim stage
+            awaitingExecution.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void submitReply(final Task startedTask, final Reply executionReply, final BiConsumer<Task, Reply> reply, final Semaphore replying,
+                             final AtomicReference<RuntimeException> failure)
+    {
+        awaitingReply.incrementAndGet();
+
+        try
+        {
+            requestWorkers.execute(() -> {
+                awaitingReply.decrementAndGet();
+
+                try
+                {
+                    reply.accept(startedTask, executionReply);
+                }
+                catch (final RuntimeException e)
+                {
+                    failure.compareAndSet(null, e);
+                }
+                finally
+                {
+                    replying.release();
+                }
+            });
+        }
+        catch (final RejectedExecutionException e)
+        {
+            awaitingReply.decrementAndGet();
+            replying.release();
+            throw e;
+        }
+    }
+}
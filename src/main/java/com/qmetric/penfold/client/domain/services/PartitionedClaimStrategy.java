@@ -0,0 +1,120 @@
+package com.qmetric.penfold.client.domain.services;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.qmetric.penfold.client.app.support.LocalDateTimeSource;
+import com.qmetric.penfold.client.domain.model.Task;
+import com.qmetric.penfold.client.domain.model.TaskId;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Shares the tasks of a queue between the members of a group of consumers, so that they do not all race to start the same tasks. Each task is owned
+ * by the member ranked highest for it by rendezvous hashing, so adding or removing a member only moves the tasks it gains or loses. A member
+ * attempts its own tasks first, then those of other members left ready for longer than the steal threshold, as their owner may be gone. Tasks to
+ * steal are held back until the ready tasks run out, or until enough are held that they are attempted rather than held any longer.
+ */
+public class PartitionedClaimStrategy implements ClaimStrategy
+{
+    static final int MAX_STEALABLE_HELD = 100;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final String member;
+
+    private final List<String> members;
+
+    private final Duration stealAfter;
+
+    private final LocalDateTimeSource dateTimeSource;
+
+    public PartitionedClaimStrategy(final int member, final int groupSize, final Duration stealAfter, final LocalDateTimeSource dateTimeSource)
+    {
+        this(String.valueOf(member), IntStream.range(0, groupSize).mapToObj(String::valueOf).collect(Collectors.toList()), stealAfter, dateTimeSource);
+    }
+
+    public PartitionedClaimStrategy(final String member, final Collection<String> members, final Duration stealAfter, final LocalDateTimeSource dateTimeSource)
+    {
+        checkArgument(members.contains(member), "%s not a member of %s", member, members);
+        checkArgument(!stealAfter.isNegative(), "negative steal threshold");
+        this.member = member;
+        this.members = ImmutableList.copyOf(members);
+        this.stealAfter = stealAfter;
+        this.dateTimeSource = dateTimeSource;
+    }
+
+    @Override public Iterator<Task> claimOrder(final Iterator<Task> readyTasks)
+    {
+        final LocalDateTime stealBefore = dateTimeSource.now().minus(stealAfter);
+
+        return new AbstractIterator<Task>()
+        {
+            private final Deque<Task> stealable = new ArrayDeque<>();
+
+            @Override protected Task computeNext()
+            {
+                while (readyTasks.hasNext())
+                {
+                    final Task task = readyTasks.next();
+
+                    if (isOwned(task.id))
+                    {
+                        return task;
+                    }
+                    else if (task.triggerDate.isBefore(stealBefore))
+                    {
+                        stealable.add(task);
+
+                        if (stealable.size() > MAX_STEALABLE_HELD)
+                        {
+                            return stealable.poll();
+                        }
+                    }
+                }
+
+                return stealable.isEmpty() ? endOfData() : stealable.poll();
+            }
+        };
+    }
+
+    boolean isOwned(final TaskId id)
+    {
+        return member.equals(ownerOf(id));
+    }
+
+    private String ownerOf(final TaskId id)
+    {
+        String owner = null;
+        long highestScore = Long.MIN_VALUE;
+
+        for (final String candidate : members)
+        {
+            final long score = HASH_FUNCTION.newHasher() //
+                    .putString(candidate, Charsets.UTF_8) //
+                    .putByte((byte) 0) //
+                    .putString(id.value, Charsets.UTF_8) //
+                    .hash().asLong();
+
+            if (owner == null || score > highestScore)
+            {
+                owner = candidate;
+                highestScore = score;
+            }
+        }
+
+        return owner;
+    }
+}
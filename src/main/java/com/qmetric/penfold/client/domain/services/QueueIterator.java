@@ -1,5 +1,6 @@
 package com.qmetric.penfold.client.domain.services;
 
+import com.codahale.metrics.MetricRegistry;
 import com.qmetric.penfold.client.app.commands.filter.Filter;
 import com.qmetric.penfold.client.domain.model.PageReference;
 import com.qmetric.penfold.client.domain.model.QueueId;
@@ -10,6 +11,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 public class QueueIterator extends AbstractTaskIterator
 {
@@ -23,7 +25,19 @@ public class QueueIterator extends AbstractTaskIterator
 
     public QueueIterator(final QueueId queue, final TaskStatus status, final List<Filter> filters, final PageAwareTaskQueryService taskQueryService)
     {
-        super(taskQueryService);
+        this(queue, status, filters, taskQueryService, 0, Runnable::run);
+    }
+
+    public QueueIterator(final QueueId queue, final TaskStatus status, final List<Filter> filters, final PageAwareTaskQueryService taskQueryService,
+                         final int prefetchDepth, final Executor prefetchExecutor)
+    {
+        this(queue, status, filters, taskQueryService, prefetchDepth, prefetchExecutor, new MetricRegistry());
+    }
+
+    public QueueIterator(final QueueId queue, final TaskStatus status, final List<Filter> filters, final PageAwareTaskQueryService taskQueryService,
+                         final int prefetchDepth, final Executor prefetchExecutor, final MetricRegistry metricRegistry)
+    {
+        super(taskQueryService, prefetchDepth, prefetchExecutor, metricRegistry);
         this.queue = queue;
         this.status = status;
         this.filters = filters;
@@ -0,0 +1,203 @@
+package com.qmetric.penfold.client.domain.services;
+
+import com.codahale.metrics.MetricRegistry;
+import com.qmetric.penfold.client.domain.model.QueueId;
+import com.qmetric.penfold.client.domain.model.TaskId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Flushable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Retries applying consumer replies in the background, backing off exponentially with jitter between attempts, so that the consumer moves on to
+ * the next task rather than waiting on a reply that cannot be applied yet. Bounded in the number of replies pending, beyond which replies are left
+ * to the consumer to retry. On flush, replies still pending are attempted one last time.
+ */
+public class ReplyRetryScheduler implements Flushable
+{
+    public static final int DEFAULT_MAX_ATTEMPTS = 100;
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplyRetryScheduler.class);
+
+    private static final int FLUSH_TIMEOUT_SECS = 120;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final int maxPending;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    private final int maxAttempts;
+
+    private final Random random;
+
+    private final Set<PendingReply> pending = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger backlog = new AtomicInteger();
+
+    public ReplyRetryScheduler(final QueueId queue, final ScheduledExecutorService scheduler, final int maxPending, final Duration initialBackoff,
+                               final Duration maxBackoff, final MetricRegistry metricRegistry)
+    {
+        this(queue, scheduler, maxPending, initialBackoff, maxBackoff, DEFAULT_MAX_ATTEMPTS, new Random(), metricRegistry);
+    }
+
+    public ReplyRetryScheduler(final QueueId queue, final ScheduledExecutorService scheduler, final int maxPending, final Duration initialBackoff,
+                               final Duration maxBackoff, final int maxAttempts, final Random random, final MetricRegistry metricRegistry)
+    {
+        checkArgument(maxPending > 0, "max pending reply retries must be positive");
+        checkArgument(!initialBackoff.isNegative() && !initialBackoff.isZero(), "initial backoff must be positive");
+        checkArgument(initialBackoff.compareTo(maxBackoff) <= 0, "initial backoff exceeds max backoff");
+        checkArgument(maxAttempts > 0, "max attempts must be positive");
+        this.scheduler = scheduler;
+        this.maxPending = maxPending;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.maxAttempts = maxAttempts;
+        this.random = random;
+
+        // consumers of the same queue recording in the same registry report their backlogs together
+        SummedGauge.register(metricRegistry, name("penfold.consumer", queue.value, "reply-retry-backlog"), backlog);
+    }
+
+    /**
+     * @return Whether the reply is to be retried in the background, otherwise too many replies are already pending
+     */
+    public boolean schedule(final TaskId taskId, final Callable<Void> reply)
+    {
+        if (backlog.incrementAndGet() > maxPending)
+        {
+            backlog.decrementAndGet();
+            return false;
+        }
+
+        final PendingReply pendingReply = new PendingReply(taskId, reply);
+        pending.add(pendingReply);
+        scheduleNextAttempt(pendingReply);
+
+        return true;
+    }
+
+    /**
+     * Stops retrying in the background, waiting for attempts under way, then attempts each reply still pending once more.
+     */
+    @Override public void flush()
+    {
+        scheduler.shutdown();
+
+        try
+        {
+            if (!scheduler.awaitTermination(FLUSH_TIMEOUT_SECS, SECONDS))
+            {
+                LOG.warn("reply retries under way did not complete within timeout");
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        for (final PendingReply pendingReply : new ArrayList<>(pending))
+        {
+            try
+            {
+                pendingReply.reply.call();
+            }
+            catch (final Exception e)
+            {
+                LOG.error(String.format("task %s processed ok, but could not be closed/rescheduled before shutdown", pendingReply.taskId), e);
+            }
+            finally
+            {
+                done(pendingReply);
+            }
+        }
+    }
+
+    public int backlog()
+    {
+        return backlog.get();
+    }
+
+    private void attempt(final PendingReply pendingReply)
+    {
+        try
+        {
+            pendingReply.reply.call();
+            done(pendingReply);
+        }
+        catch (final Exception e)
+        {
+            if (pendingReply.attempts.get() >= maxAttempts)
+            {
+                LOG.error(String.format("task %s processed ok, but could not be closed/rescheduled after %s attempts", pendingReply.taskId, maxAttempts), e);
+                done(pendingReply);
+            }
+            else
+            {
+                LOG.warn("task {} processed ok, but could not be closed/rescheduled on attempt {} - retrying", pendingReply.taskId, pendingReply.attempts, e);
+                scheduleNextAttempt(pendingReply);
+            }
+        }
+    }
+
+    private void scheduleNextAttempt(final PendingReply pendingReply)
+    {
+        try
+        {
+            scheduler.schedule(() -> attempt(pendingReply), backoff(pendingReply.attempts.incrementAndGet()), MILLISECONDS);
+        }
+        catch (final RejectedExecutionException e)
+        {
+            // shutting down, leaving the reply pending for flush
+            LOG.debug("task {} reply retry left pending for flush", pendingReply.taskId);
+        }
+    }
+
+    long backoff(final int attempt)
+    {
+        // doubling from the initial backoff up to the max, less up to half at random so that replies failing together spread out
+        final long exponential = initialBackoff.toMillis() << Math.min(attempt - 1, 30);
+        final long backoff = exponential > 0 ? Math.min(exponential, maxBackoff.toMillis()) : maxBackoff.toMillis();
+
+        return backoff - (long) (random.nextDouble() * (backoff / 2));
+    }
+
+    private void done(final PendingReply pendingReply)
+    {
+        if (pending.remove(pendingReply))
+        {
+            backlog.decrementAndGet();
+        }
+    }
+
+    private static class PendingReply
+    {
+        final TaskId taskId;
+
+        final Callable<Void> reply;
+
+        final AtomicInteger attempts = new AtomicInteger();
+
+        PendingReply(final TaskId taskId, final Callable<Void> reply)
+        {
+            this.taskId = taskId;
+            this.reply = reply;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.qmetric.penfold.client.domain.services;
+
+import com.google.common.collect.AbstractIterator;
+import com.qmetric.penfold.client.domain.model.Task;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Attempts tasks in a random order within a window sliding over the tasks in claim order, so that competing consumers do not all collide on the
+ * first tasks of the queue. The window widens from the minimum towards the maximum as the recent rate of conflicting attempts rises, spreading
+ * consumers further apart whilst they contend, and narrows again as conflicts subside to keep close to the order of the queue.
+ */
+public class ShuffledClaimStrategy implements ClaimStrategy
+{
+    // weight of each attempt in the recent conflict rate, which then mostly reflects the last few tens of attempts
+    private static final double CONFLICT_RATE_WEIGHT = 0.05;
+
+    private final ClaimStrategy claimStrategy;
+
+    private final int minimumWindow;
+
+    private final int maximumWindow;
+
+    private final Random random;
+
+    private double conflictRate;
+
+    public ShuffledClaimStrategy(final ClaimStrategy claimStrategy, final int minimumWindow, final int maximumWindow)
+    {
+        this(claimStrategy, minimumWindow, maximumWindow, new Random());
+    }
+
+    public ShuffledClaimStrategy(final ClaimStrategy claimStrategy, final int minimumWindow, final int maximumWindow, final Random random)
+    {
+        checkArgument(minimumWindow > 0, "shuffle window must be positive");
+        checkArgument(maximumWindow >= minimumWindow, "maximum shuffle window less than minimum");
+        this.claimStrategy = claimStrategy;
+        this.minimumWindow = minimumWindow;
+        this.maximumWindow = maximumWindow;
+        this.random = random;
+    }
+
+    @Override public Iterator<Task> claimOrder(final Iterator<Task> readyTasks)
+    {
+        final Iterator<Task> tasks = claimStrategy.claimOrder(readyTasks);
+
+        return new AbstractIterator<Task>()
+        {
+            private final List<Task> window = new ArrayList<>();
+
+            @Override protected Task computeNext()
+            {
+                final int windowSize = currentWindow();
+
+                while (window.size() < windowSize && tasks.hasNext())
+                {
+                    window.add(tasks.next());
+                }
+
+                if (window.isEmpty())
+                {
+                    return endOfData();
+                }
+
+                // swap the chosen task with the last to remove it without shifting the rest
+                final int chosen = random.nextInt(window.size());
+                final Task task = window.get(chosen);
+                window.set(chosen, window.get(window.size() - 1));
+                window.remove(window.size() - 1);
+
+                return task;
+            }
+        };
+    }
+
+    @Override public void claimed(final Task task, final boolean conflicted)
+    {
+        synchronized (this)
+        {
+            conflictRate += CONFLICT_RATE_WEIGHT * ((conflicted ? 1 : 0) - conflictRate);
+        }
+
+        claimStrategy.claimed(task, conflicted);
+    }
+
+    int currentWindow()
+    {
+        final double rate;
+
+        synchronized (this)
+        {
+            rate = conflictRate;
+        }
+
+        return minimumWindow + (int) Math.round((maximumWindow - minimumWindow) * rate);
+    }
+}
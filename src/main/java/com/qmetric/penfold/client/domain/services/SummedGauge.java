@@ -0,0 +1,33 @@
+package com.qmetric.penfold.client.domain.services;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gauge of counts kept by each of the consumers of a queue recording in the same registry, reporting their sum under the one name.
+ */
+class SummedGauge implements Gauge<Integer>
+{
+    private final List<AtomicInteger> counts = new CopyOnWriteArrayList<>();
+
+    private SummedGauge()
+    {
+    }
+
+    static void register(final MetricRegistry metricRegistry, final String name, final AtomicInteger count)
+    {
+        final Gauge existing = metricRegistry.getGauges().get(name);
+        final SummedGauge gauge = existing instanceof SummedGauge ? (SummedGauge) existing : metricRegistry.register(name, new SummedGauge());
+
+        gauge.counts.add(count);
+    }
+
+    @Override public Integer getValue()
+    {
+        return counts.stream().mapToInt(AtomicInteger::get).sum();
+    }
+}
@@ -3,4 +3,6 @@ package com.qmetric.penfold.client.domain.services;
 public interface TaskConsumer
 {
     void start();
+
+    void stop();
 }
@@ -1,5 +1,6 @@
 package com.qmetric.penfold.client.domain.services;
 
+import com.codahale.metrics.MetricRegistry;
 import com.qmetric.penfold.client.app.commands.filter.Filter;
 import com.qmetric.penfold.client.domain.model.PageReference;
 import com.qmetric.penfold.client.domain.model.TasksPage;
@@ -8,6 +9,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 public class TaskIterator extends AbstractTaskIterator
 {
@@ -17,7 +19,18 @@ public class TaskIterator extends AbstractTaskIterator
 
     public TaskIterator(final List<Filter> filters, final PageAwareTaskQueryService taskQueryService)
     {
-        super(taskQueryService);
+        this(filters, taskQueryService, 0, Runnable::run);
+    }
+
+    public TaskIterator(final List<Filter> filters, final PageAwareTaskQueryService taskQueryService, final int prefetchDepth, final Executor prefetchExecutor)
+    {
+        this(filters, taskQueryService, prefetchDepth, prefetchExecutor, new MetricRegistry());
+    }
+
+    public TaskIterator(final List<Filter> filters, final PageAwareTaskQueryService taskQueryService, final int prefetchDepth, final Executor prefetchExecutor,
+                        final MetricRegistry metricRegistry)
+    {
+        super(taskQueryService, prefetchDepth, prefetchExecutor, metricRegistry);
         this.filters = filters;
     }
 
@@ -1,17 +1,53 @@
 package com.qmetric.penfold.client.domain.services;
 
+import com.qmetric.penfold.client.domain.model.BulkCreateResult;
 import com.qmetric.penfold.client.domain.model.CloseResultType;
+import com.qmetric.penfold.client.domain.model.CreateFailure;
 import com.qmetric.penfold.client.domain.model.NewTask;
 import com.qmetric.penfold.client.domain.model.Task;
 import com.qmetric.penfold.client.domain.exceptions.ConflictException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 
 public interface TaskStoreService
 {
     Task create(NewTask task);
 
+    default BulkCreateResult createAll(final Collection<NewTask> tasks)
+    {
+        return createAll(tasks.iterator());
+    }
+
+    /**
+     * Creates each task in turn, carrying on past tasks that fail to be created. Implementations may create tasks concurrently instead.
+     */
+    default BulkCreateResult createAll(final Iterator<NewTask> tasks)
+    {
+        final List<Task> created = new ArrayList<>();
+        final List<CreateFailure> failures = new ArrayList<>();
+
+        for (int position = 0; tasks.hasNext(); position++)
+        {
+            final NewTask task = tasks.next();
+
+            try
+            {
+                created.add(create(task));
+            }
+            catch (final RuntimeException e)
+            {
+                failures.add(new CreateFailure(position, task, e));
+            }
+        }
+
+        return new BulkCreateResult(created, failures);
+    }
+
     Task start(Task task) throws ConflictException;
 
     Task requeue(Task task, Optional<String> reason) throws ConflictException;
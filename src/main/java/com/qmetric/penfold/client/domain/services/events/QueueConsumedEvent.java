@@ -1,10 +1,10 @@
 package com.qmetric.penfold.client.domain.services.events;
 
 import com.qmetric.penfold.client.domain.model.QueueId;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
 public class QueueConsumedEvent implements Event
 {
     public static final String TYPE = "QueueConsumed";
@@ -28,16 +28,27 @@ public class QueueConsumedEvent implements Event
 
     @Override public int hashCode()
     {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return queueId.hashCode();
     }
 
     @Override public boolean equals(final Object obj)
     {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+
+        final QueueConsumedEvent other = (QueueConsumedEvent) obj;
+
+        return queueId.equals(other.queueId);
     }
 
     @Override public String toString()
     {
-        return ToStringBuilder.reflectionToString(this);
+        return new ToStringBuilder(this, SHORT_PREFIX_STYLE).append("queueId", queueId).toString();
     }
 }
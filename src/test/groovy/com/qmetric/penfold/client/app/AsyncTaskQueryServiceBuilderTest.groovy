@@ -0,0 +1,16 @@
+package com.qmetric.penfold.client.app
+
+import spock.lang.Specification
+
+class AsyncTaskQueryServiceBuilderTest extends Specification {
+
+    def "should build async task query service"()
+    {
+        expect:
+        new AsyncTaskQueryServiceBuilder()
+                .forServer("http://localhost")
+                .withCredentials("user", "pass")
+                .build()
+                .close();
+    }
+}
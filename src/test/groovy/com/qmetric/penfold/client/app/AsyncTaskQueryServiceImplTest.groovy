@@ -0,0 +1,21 @@
+package com.qmetric.penfold.client.app
+
+import com.qmetric.penfold.client.app.support.ClientFactory
+import com.qmetric.penfold.client.app.support.ObjectMapperFactory
+import spock.lang.Specification
+
+class AsyncTaskQueryServiceImplTest extends Specification {
+
+    def "should stop reactor of http client when closed"()
+    {
+        given:
+        final httpClient = ClientFactory.createAsyncHttpClient(null)
+        final query = new AsyncTaskQueryServiceImpl("http://localhost", httpClient, ObjectMapperFactory.create())
+
+        when:
+        query.close()
+
+        then:
+        !httpClient.isRunning()
+    }
+}
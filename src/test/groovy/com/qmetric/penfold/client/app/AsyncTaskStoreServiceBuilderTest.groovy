@@ -0,0 +1,16 @@
+package com.qmetric.penfold.client.app
+
+import spock.lang.Specification
+
+class AsyncTaskStoreServiceBuilderTest extends Specification {
+
+    def "should build async task store service"()
+    {
+        expect:
+        new AsyncTaskStoreServiceBuilder()
+                .forServer("http://localhost")
+                .withCredentials("user", "pass")
+                .build()
+                .close();
+    }
+}
@@ -0,0 +1,159 @@
+package com.qmetric.penfold.client.app
+
+import com.codahale.metrics.MetricRegistry
+import com.qmetric.penfold.client.app.support.ClientFactory
+import com.qmetric.penfold.client.app.support.ObjectMapperFactory
+import com.qmetric.penfold.client.domain.exceptions.ConflictException
+import com.qmetric.penfold.client.domain.model.*
+import org.apache.http.HttpResponse
+import org.apache.http.ProtocolVersion
+import org.apache.http.client.methods.HttpUriRequest
+import org.apache.http.concurrent.FutureCallback
+import org.apache.http.entity.StringEntity
+import org.apache.http.message.BasicStatusLine
+import org.apache.http.nio.client.HttpAsyncClient
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+import java.util.concurrent.ExecutionException
+
+import static java.util.Optional.empty
+
+class AsyncTaskStoreServiceImplTest extends Specification {
+
+    static final taskId = new TaskId("1")
+
+    static final queueId = new QueueId("q1")
+
+    static final created = LocalDateTime.of(2014, 3, 15, 10, 35, 5)
+
+    static final triggerDate = LocalDateTime.of(2015, 4, 15, 10, 35, 5)
+
+    final client = Mock(HttpAsyncClient)
+
+    final store = new AsyncTaskStoreServiceImpl("http://localhost", client, ObjectMapperFactory.create())
+
+    def "should create task"()
+    {
+        given:
+        respondTo("POST", "http://localhost/tasks", getResource("/fixtures/api/create_task_response.json"), 201)
+
+        when:
+        def task = store.create(new NewTask(queueId, new Payload([type: "type1"]), empty())).get()
+
+        then:
+        task.id == new TaskId("1")
+        task.queue == new QueueId("aggregator")
+    }
+
+    def "should retrieve command link before starting task without known command links"()
+    {
+        given:
+        respondTo("GET", "http://localhost/tasks/1", getResource("/fixtures/api/task.json"))
+        respondTo("POST", "http://localhost/tasks/1/2", getResource("/fixtures/api/start_task_response.json"))
+
+        when:
+        def start = store.start(createTask()).get()
+
+        then:
+        start.status == TaskStatus.STARTED
+    }
+
+    def "should start task directly with known command link"()
+    {
+        given:
+        respondTo("POST", "http://localhost/tasks/1/2", getResource("/fixtures/api/start_task_response.json"))
+
+        when:
+        def start = store.start(createTask().builder().withCommandLinks([(CommandType.StartTask): "http://localhost/tasks/1/2"]).build()).get()
+
+        then:
+        start.status == TaskStatus.STARTED
+        0 * client.execute({ request -> request.method == "GET" } as HttpUriRequest, _)
+    }
+
+    def "should complete exceptionally with conflict when server rejects command"()
+    {
+        given:
+        respondTo("POST", "http://localhost/tasks/1/2", "", 409)
+
+        when:
+        store.start(createTask().builder().withCommandLinks([(CommandType.StartTask): "http://localhost/tasks/1/2"]).build()).get()
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof ConflictException
+    }
+
+    def "should complete exceptionally when request fails"()
+    {
+        given:
+        final failure = new IOException("connection refused")
+        client.execute(_ as HttpUriRequest, _ as FutureCallback) >> { HttpUriRequest request, FutureCallback callback -> callback.failed(failure); null }
+
+        when:
+        store.create(new NewTask(queueId, new Payload([type: "type1"]), empty())).get()
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause == failure
+    }
+
+    def "should cancel result and stop timing when request is cancelled"()
+    {
+        given:
+        final metricRegistry = new MetricRegistry()
+        final timedStore = new AsyncTaskStoreServiceImpl("http://localhost", client, ObjectMapperFactory.create(), metricRegistry)
+        client.execute(_ as HttpUriRequest, _ as FutureCallback) >> { HttpUriRequest request, FutureCallback callback -> callback.cancelled(); null }
+
+        when:
+        final result = timedStore.create(new NewTask(queueId, new Payload([type: "type1"]), empty()))
+
+        then:
+        result.isCancelled()
+        metricRegistry.timers["penfold.store.create"].count == 1
+    }
+
+    def "should stop reactor of http client when closed"()
+    {
+        given:
+        final httpClient = ClientFactory.createAsyncHttpClient(null)
+        final closeableStore = new AsyncTaskStoreServiceImpl("http://localhost", httpClient, ObjectMapperFactory.create())
+
+        when:
+        closeableStore.close()
+
+        then:
+        !httpClient.isRunning()
+    }
+
+    def "should leave client of unknown lifecycle alone when closed"()
+    {
+        when:
+        store.close()
+
+        then:
+        0 * client._
+    }
+
+    private def respondTo(final String method, final String expectedUrl, final String responseJson, final int status = 200)
+    {
+        HttpResponse mockResponse = Mock(HttpResponse)
+        mockResponse.getEntity() >> new StringEntity(responseJson)
+        mockResponse.getStatusLine() >> new BasicStatusLine(new ProtocolVersion("HTTP", 1, 1), status, "OK")
+
+        client.execute({ request -> method == request.method && expectedUrl == request.getURI().toString() } as HttpUriRequest, _ as FutureCallback) >> {
+            HttpUriRequest request, FutureCallback callback -> callback.completed(mockResponse); null
+        }
+    }
+
+    private static String getResource(String name)
+    {
+        return this.getClass().getResource(name).text
+    }
+
+    private static Task createTask()
+    {
+        return new Task(taskId, 2, queueId, TaskStatus.READY, created, triggerDate, 0, new Payload([type: "type1"]))
+    }
+}
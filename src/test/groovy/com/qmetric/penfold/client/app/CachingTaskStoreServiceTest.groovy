@@ -0,0 +1,68 @@
+package com.qmetric.penfold.client.app
+
+import com.qmetric.penfold.client.domain.exceptions.ConflictException
+import com.qmetric.penfold.client.domain.model.Payload
+import com.qmetric.penfold.client.domain.model.QueueId
+import com.qmetric.penfold.client.domain.model.Task
+import com.qmetric.penfold.client.domain.model.TaskId
+import com.qmetric.penfold.client.domain.services.TaskQueryService
+import com.qmetric.penfold.client.domain.services.TaskStoreService
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.LocalDateTime
+
+import static com.qmetric.penfold.client.domain.model.TaskStatus.READY
+import static com.qmetric.penfold.client.domain.model.TaskStatus.STARTED
+
+class CachingTaskStoreServiceTest extends Specification {
+
+    static final readyTask = new Task(new TaskId("1"), 1, new QueueId("q1"), READY, LocalDateTime.of(2014, 2, 14, 12, 0, 0), LocalDateTime.of(2014, 2, 14, 12, 0, 0), 0,
+                                      new Payload([:]))
+
+    static final startedTask = new Task(new TaskId("1"), 2, new QueueId("q1"), STARTED, LocalDateTime.of(2014, 2, 14, 12, 0, 0), LocalDateTime.of(2014, 2, 14, 12, 0, 0), 0,
+                                        new Payload([:]))
+
+    final taskQueryService = Mock(TaskQueryService)
+
+    final taskStoreService = Mock(TaskStoreService)
+
+    final taskCache = new TaskCache(10, Duration.ofMinutes(1))
+
+    final cachingTaskQueryService = new CachingTaskQueryService(taskQueryService, taskCache)
+
+    final cachingTaskStoreService = new CachingTaskStoreService(taskStoreService, taskCache)
+
+    def "should find task returned from command without request"()
+    {
+        given:
+        taskStoreService.start(readyTask) >> startedTask
+
+        when:
+        cachingTaskStoreService.start(readyTask)
+
+        then:
+        cachingTaskQueryService.find(startedTask.id) == Optional.of(startedTask)
+        0 * taskQueryService.find(_ as TaskId)
+    }
+
+    def "should find task again from server after conflicting command"()
+    {
+        given:
+        taskStoreService.start(readyTask) >> startedTask
+        taskStoreService.close(startedTask, Optional.empty(), Optional.empty()) >> { throw new ConflictException("conflict") }
+        cachingTaskStoreService.start(readyTask)
+
+        when:
+        cachingTaskStoreService.close(startedTask, Optional.empty(), Optional.empty())
+
+        then:
+        thrown(ConflictException)
+
+        when:
+        cachingTaskQueryService.find(startedTask.id)
+
+        then:
+        1 * taskQueryService.find(startedTask.id) >> Optional.of(startedTask)
+    }
+}
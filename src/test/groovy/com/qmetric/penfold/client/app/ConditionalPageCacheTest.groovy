@@ -0,0 +1,57 @@
+package com.qmetric.penfold.client.app
+
+import com.codahale.metrics.Meter
+import com.qmetric.penfold.client.app.transport.BufferedTransportResponse
+import com.qmetric.penfold.client.app.transport.ResponseHandler
+import com.qmetric.penfold.client.app.transport.TransportRequest
+import com.qmetric.penfold.client.domain.model.TasksPage
+import spock.lang.Specification
+
+class ConditionalPageCacheTest extends Specification {
+
+    static final request = TransportRequest.get(URI.create("http://localhost/queues/q1/ready"), [Accept: "application/hal+json"])
+
+    static final page = new TasksPage([], Optional.empty(), Optional.empty())
+
+    final decoder = Mock(ResponseHandler)
+
+    final notModified = new Meter()
+
+    final cache = new ConditionalPageCache(10, notModified)
+
+    def "should request page conditionally on validators sent with it"()
+    {
+        given:
+        decoder.handle(_) >> page
+        cache.pageFrom(request, new BufferedTransportResponse(200, [ETag: '"v1"', "Last-Modified": "Tue, 15 Nov 1994 12:45:26 GMT"], new byte[0]), decoder)
+
+        expect:
+        cache.conditional(request).headers == [Accept: "application/hal+json", "If-None-Match": '"v1"', "If-Modified-Since": "Tue, 15 Nov 1994 12:45:26 GMT"]
+    }
+
+    def "should return cached page without decoding when not modified"()
+    {
+        given:
+        cache.pageFrom(request, new BufferedTransportResponse(200, [ETag: '"v1"'], new byte[0]), { page } as ResponseHandler)
+
+        when:
+        final unchanged = cache.pageFrom(request, new BufferedTransportResponse(304, [:], new byte[0]), decoder)
+
+        then:
+        unchanged.is(page)
+        0 * decoder.handle(_)
+        notModified.count == 1
+    }
+
+    def "should not cache page sent without validators"()
+    {
+        given:
+        decoder.handle(_) >> page
+
+        when:
+        cache.pageFrom(request, new BufferedTransportResponse(200, [:], new byte[0]), decoder)
+
+        then:
+        cache.conditional(request).headers == [Accept: "application/hal+json"]
+    }
+}
@@ -0,0 +1,60 @@
+package com.qmetric.penfold.client.app
+
+import com.codahale.metrics.MetricRegistry
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.time.Duration
+
+class HttpConnectionPoolBuilderTest extends Specification {
+
+    def "should build connection pool shareable between services"()
+    {
+        given:
+        final pool = new HttpConnectionPoolBuilder()
+                .withMaxTotal(50)
+                .withMaxPerRoute(25)
+                .withTimeouts(Duration.ofSeconds(5), Duration.ofSeconds(30))
+                .withMaxKeepAlive(Duration.ofSeconds(10))
+                .withValidateAfterInactivity(Duration.ofSeconds(1))
+                .withMaxIdleTime(Duration.ofSeconds(20))
+                .build()
+
+        expect:
+        new TaskQueryServiceBuilder().forServer("http://localhost").withConnectionPool(pool).build()
+        new TaskStoreServiceBuilder().forServer("http://localhost").withConnectionPool(pool).build()
+
+        cleanup:
+        pool.close()
+    }
+
+    def "should expose pool gauges"()
+    {
+        given:
+        final metricRegistry = new MetricRegistry()
+        final pool = new HttpConnectionPoolBuilder().withMetrics(metricRegistry, "shared").build()
+
+        expect:
+        metricRegistry.gauges.keySet() == ["penfold.connection-pool.shared.available", "penfold.connection-pool.shared.leased", "penfold.connection-pool.shared.pending"] as SortedSet
+        metricRegistry.gauges.values()*.value == [0, 0, 0]
+
+        cleanup:
+        pool.close()
+    }
+
+    @Unroll def "should reject invalid pool configuration"()
+    {
+        when:
+        builder.build()
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        builder << [
+                new HttpConnectionPoolBuilder().withMaxTotal(0),
+                new HttpConnectionPoolBuilder().withMaxTotal(5).withMaxPerRoute(10),
+                new HttpConnectionPoolBuilder().withMaxIdleTime(Duration.ZERO)
+        ]
+    }
+}
@@ -0,0 +1,138 @@
+package com.qmetric.penfold.client.app
+
+import com.codahale.metrics.MetricRegistry
+import com.codahale.metrics.health.HealthCheckRegistry
+import com.qmetric.penfold.client.domain.model.NewTask
+import com.qmetric.penfold.client.domain.model.Payload
+import com.qmetric.penfold.client.domain.model.QueueId
+import com.qmetric.penfold.client.domain.model.Reply
+import com.qmetric.penfold.client.domain.model.Task
+import com.qmetric.penfold.client.domain.services.ConsumerFunction
+import com.qmetric.penfold.client.fake.FakePenfoldServerBuilder
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.time.Duration
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+import static java.util.Optional.empty
+
+class MultiQueueConsumerBuilderTest extends Specification {
+
+    static final consumerFunction = new ConsumerFunction() {
+        @Override
+        public Reply execute(final Task task)
+        {
+            return Reply.success()
+        }
+    }
+
+    def "should build minimally configured consumer"()
+    {
+        expect:
+        new MultiQueueConsumerBuilder()
+                .fromServer("http://localhost")
+                .consumeFrom("queue1", consumerFunction)
+                .build()
+    }
+
+    def "should build fully configured consumer with health check for each queue"()
+    {
+        given:
+        final healthCheckRegistry = new HealthCheckRegistry()
+        final metricRegistry = new MetricRegistry()
+        final consumer = new MultiQueueConsumerBuilder()
+                .fromServer("http://localhost")
+                .withCredentials("user", "pass")
+                .withConnectionPool(new HttpConnectionPoolBuilder().build())
+                .consumeFrom("queue1", consumerFunction)
+                .consumeFrom("queue2", consumerFunction, 3)
+                .consumeFrom("queue3", consumerFunction, 2, 1)
+                .withPollingFrequency(Duration.ofMinutes(1))
+                .withAdaptivePolling(Duration.ofSeconds(1))
+                .delayBetweenEachRetryOf(Duration.ofMinutes(15))
+                .withActivityHealthCheck(Duration.ofMinutes(30), healthCheckRegistry)
+                .withWorkerThreads(8)
+                .withPollingThreads(2)
+                .withMetrics(metricRegistry)
+                .build()
+
+        expect:
+        consumer != null
+        healthCheckRegistry.names == ["queue1 scheduling consumer", "queue2 scheduling consumer", "queue3 scheduling consumer"] as SortedSet
+        metricRegistry.names.containsAll(["penfold.consumer.queue1.successes", "penfold.consumer.queue2.successes", "penfold.consumer.queue3.successes"])
+    }
+
+    @Unroll def "should enforce mandatory configuration options"()
+    {
+        when:
+        builder.build()
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        builder << [
+                new MultiQueueConsumerBuilder().consumeFrom("queue1", consumerFunction),
+                new MultiQueueConsumerBuilder().fromServer("http://localhost"),
+                new MultiQueueConsumerBuilder().fromServer("http://localhost").consumeFrom("queue1", consumerFunction).consumeFrom("queue1", consumerFunction),
+                new MultiQueueConsumerBuilder().fromServer("http://localhost").consumeFrom("queue1", consumerFunction, 0),
+                new MultiQueueConsumerBuilder().fromServer("http://localhost").consumeFrom("queue1", consumerFunction, 1, 0),
+                new MultiQueueConsumerBuilder().fromServer("http://localhost").consumeFrom("queue1", null),
+                new MultiQueueConsumerBuilder().fromServer("http://localhost").consumeFrom("queue1", consumerFunction).withWorkerThreads(0),
+                new MultiQueueConsumerBuilder().fromServer("http://localhost").consumeFrom("queue1", consumerFunction).withShuffledClaiming(0, 64)
+        ]
+    }
+
+    def "should consume each queue on shared workers in proportion to its weight"()
+    {
+        given:
+        final server = new FakePenfoldServerBuilder().startInMemory()
+        final store = new TaskStoreServiceBuilder().forServer(server.url()).withTransport(server.inMemoryTransport()).build()
+        ["queue1", "queue2"].each { queue -> 6.times { store.create(new NewTask(new QueueId(queue), new Payload([:]), empty())) } }
+        final threads = new ConcurrentHashMap<String, Boolean>()
+        final running = [queue1: new AtomicInteger(), queue2: new AtomicInteger()]
+        final mostRunning = [queue1: new AtomicInteger(), queue2: new AtomicInteger()]
+        final consumeWith = { String queue ->
+            { task ->
+                threads.put(Thread.currentThread().name, true)
+                final nowRunning = running[queue].incrementAndGet()
+                mostRunning[queue].set(Math.max(mostRunning[queue].get(), nowRunning))
+                Thread.sleep(50)
+                running[queue].decrementAndGet()
+                Reply.success()
+            } as ConsumerFunction
+        }
+        final consumer = new MultiQueueConsumerBuilder()
+                .fromServer(server.url())
+                .withTransport(server.inMemoryTransport())
+                .consumeFrom("queue1", consumeWith("queue1"), 2)
+                .consumeFrom("queue2", consumeWith("queue2"))
+                .withPollingFrequency(Duration.ofMillis(100))
+                .build()
+
+        when:
+        consumer.start()
+
+        then:
+        waitUntil { server.count("queue1", "closed") == 6 && server.count("queue2", "closed") == 6 }
+        threads.keySet().every { it.startsWith("penfold-multi-queue-consumer-") }
+        mostRunning.queue1.get() == 2
+        mostRunning.queue2.get() == 1
+
+        cleanup:
+        consumer.stop()
+        server.close()
+    }
+
+    private static boolean waitUntil(final Closure<Boolean> condition)
+    {
+        final deadline = System.currentTimeMillis() + 5000
+        while (!condition() && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10)
+        }
+        return condition()
+    }
+}
@@ -0,0 +1,36 @@
+package com.qmetric.penfold.client.app
+
+import com.qmetric.penfold.client.app.support.ExecutorFactory
+import com.qmetric.penfold.client.domain.model.QueueId
+import com.qmetric.penfold.client.domain.services.Consumer
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class MultiQueueConsumerTest extends Specification {
+
+    def "should poll every queue on shared scheduler"()
+    {
+        given:
+        final polled = new CountDownLatch(3)
+        final consumers = ["q1", "q2", "q3"].collect { queue ->
+            final consumer = Stub(Consumer)
+            consumer.getQueue() >> new QueueId(queue)
+            consumer.consume() >> { polled.countDown(); 0 }
+            consumer
+        }
+        final multiQueueConsumer = new MultiQueueConsumer(consumers, Duration.ofMillis(100), Optional.empty(), ExecutorFactory.createScheduler("test-poller", 1),
+                                                          ExecutorFactory.createWorkerPool("test-workers", 2), [], Optional.empty())
+
+        when:
+        multiQueueConsumer.start()
+
+        then:
+        polled.await(1, TimeUnit.SECONDS)
+
+        cleanup:
+        multiQueueConsumer.stop()
+    }
+}
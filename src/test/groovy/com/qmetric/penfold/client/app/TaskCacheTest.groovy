@@ -0,0 +1,120 @@
+package com.qmetric.penfold.client.app
+
+import com.codahale.metrics.MetricRegistry
+import com.qmetric.penfold.client.domain.model.Payload
+import com.qmetric.penfold.client.domain.model.QueueId
+import com.qmetric.penfold.client.domain.model.Task
+import com.qmetric.penfold.client.domain.model.TaskId
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.LocalDateTime
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Function
+
+import static com.qmetric.penfold.client.domain.model.TaskStatus.READY
+import static com.qmetric.penfold.client.domain.model.TaskStatus.STARTED
+
+class TaskCacheTest extends Specification {
+
+    static final id = new TaskId("1")
+
+    final metricRegistry = new MetricRegistry()
+
+    final loader = Mock(Function)
+
+    final cache = new TaskCache("test", 10, Duration.ofMinutes(1), metricRegistry)
+
+    def "should load task once and find it cached after"()
+    {
+        when:
+        final first = cache.find(id, loader)
+        final second = cache.find(id, loader)
+
+        then:
+        1 * loader.apply(id) >> Optional.of(task(1))
+        first == Optional.of(task(1))
+        second == Optional.of(task(1))
+        metricRegistry.gauges["penfold.query.task-cache.test.hits"].value == 1
+        metricRegistry.gauges["penfold.query.task-cache.test.misses"].value == 1
+    }
+
+    def "should not cache task not found"()
+    {
+        when:
+        final notFound = cache.find(id, loader)
+        final found = cache.find(id, loader)
+
+        then:
+        2 * loader.apply(id) >>> [Optional.empty(), Optional.of(task(1))]
+        notFound == Optional.empty()
+        found == Optional.of(task(1))
+    }
+
+    def "should keep latest version observed"()
+    {
+        given:
+        cache.observe(task(2))
+
+        when:
+        cache.observe(task(1))
+
+        then:
+        cache.find(id, loader) == Optional.of(task(2))
+
+        when:
+        cache.observe(task(3))
+
+        then:
+        cache.find(id, loader) == Optional.of(task(3))
+        0 * loader.apply(_)
+    }
+
+    def "should load task once for concurrent lookups"()
+    {
+        given:
+        final loads = new AtomicInteger()
+        final loading = new CountDownLatch(1)
+        final slowLoader = { taskId -> loads.incrementAndGet(); loading.await(); Optional.of(task(1)) } as Function
+        final executor = Executors.newFixedThreadPool(4)
+
+        when:
+        final lookups = (1..4).collect { executor.submit({ cache.find(id, slowLoader) } as Callable) }
+        Thread.sleep(100)
+        loading.countDown()
+
+        then:
+        lookups.collect { it.get(1, TimeUnit.SECONDS) } == (1..4).collect { Optional.of(task(1)) }
+        loads.get() == 1
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "should propagate failure to load task without caching"()
+    {
+        when:
+        cache.find(id, loader)
+
+        then:
+        1 * loader.apply(id) >> { throw new IllegalStateException("unavailable") }
+        thrown(IllegalStateException)
+
+        when:
+        final found = cache.find(id, loader)
+
+        then:
+        1 * loader.apply(id) >> Optional.of(task(1))
+        found == Optional.of(task(1))
+    }
+
+    private static Task task(final int version)
+    {
+        new Task(id, version, new QueueId("q1"), version > 1 ? STARTED : READY, LocalDateTime.of(2014, 2, 14, 12, 0, 0), LocalDateTime.of(2014, 2, 14, 12, 0, 0), 0,
+                 new Payload([:]))
+    }
+}
@@ -1,5 +1,6 @@
 package com.qmetric.penfold.client.app
 
+import com.codahale.metrics.MetricRegistry
 import com.codahale.metrics.health.HealthCheckRegistry
 import com.qmetric.penfold.client.domain.model.Reply
 import com.qmetric.penfold.client.domain.model.Task
@@ -34,20 +35,30 @@ class TaskConsumerBuilderTest extends Specification {
     {
         given:
         final healthCheckRegistry = new HealthCheckRegistry()
+        final metricRegistry = new MetricRegistry()
         final consumer = new TaskConsumerBuilder()
                 .fromServer("http://localhost")
                 .withCredentials("user", "pass")
                 .fromQueue("testqueue")
                 .withPollingFrequency(Duration.ofMinutes(1))
+                .withAdaptivePolling(Duration.ofMillis(500))
                 .delayBetweenEachRetryOf(Duration.ofMinutes(15))
                 .withActivityHealthCheck(Duration.ofMinutes(30), healthCheckRegistry)
+                .withConcurrency(4)
+                .withPartitionedClaiming(0, 3, Duration.ofMinutes(5))
+                .withShuffledClaiming(4, 64)
+                .withBackgroundReplyRetries(100, Duration.ofSeconds(1), Duration.ofMinutes(5))
+                .withAdaptiveConcurrencyLimit(4, 32)
+                .withCircuitBreaker(0.5, 20, Duration.ofSeconds(30), healthCheckRegistry)
+                .withConnectionPool(new HttpConnectionPoolBuilder().build())
+                .withMetrics(metricRegistry)
                 .consumeWith(consumerFunction)
                 .build()
 
         expect:
         consumer != null
-        healthCheckRegistry.names.size() == 1
-        healthCheckRegistry.names.first() == "testqueue scheduling consumer"
+        healthCheckRegistry.names == ["testqueue penfold server circuit breaker", "testqueue scheduling consumer"] as SortedSet
+        metricRegistry.names.containsAll(["penfold.consumer.testqueue.execute", "penfold.consumer.testqueue.conflict-ratio", "penfold.consumer.testqueue.reply-retry-backlog", "penfold.query.retrieve-page", "penfold.store.CloseTask", "penfold.transport.testqueue.concurrency-limit", "penfold.transport.testqueue.circuit-breaker.state"])
     }
 
     @Unroll def "should enforce mandatory configuration options"()
@@ -62,7 +73,11 @@ class TaskConsumerBuilderTest extends Specification {
         builder << [
                 new TaskConsumerBuilder().withCredentials("user", "pass").fromQueue("testqueue").consumeWith(consumerFunction),
                 new TaskConsumerBuilder().fromServer("http://localhost").withCredentials("user", "pass").consumeWith(consumerFunction),
-                new TaskConsumerBuilder().fromServer("http://localhost").withCredentials("user", "pass").fromQueue("testqueue")
+                new TaskConsumerBuilder().fromServer("http://localhost").withCredentials("user", "pass").fromQueue("testqueue"),
+                new TaskConsumerBuilder().fromServer("http://localhost").withCredentials("user", "pass").fromQueue("testqueue").consumeWith(consumerFunction).withConcurrency(0),
+                new TaskConsumerBuilder().fromServer("http://localhost").withCredentials("user", "pass").fromQueue("testqueue").consumeWith(consumerFunction).withAdaptivePolling(Duration.ofMinutes(2)),
+                new TaskConsumerBuilder().fromServer("http://localhost").withCredentials("user", "pass").fromQueue("testqueue").consumeWith(consumerFunction).withCircuitBreaker(1.5, 20, Duration.ofSeconds(30)),
+                new TaskConsumerBuilder().fromServer("http://localhost").withCredentials("user", "pass").fromQueue("testqueue").consumeWith(consumerFunction).withShuffledClaiming(0, 64)
         ]
     }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.qmetric.penfold.client.app
+
+import com.codahale.metrics.MetricRegistry
+import com.qmetric.penfold.client.app.support.PollingBackoff
+import com.qmetric.penfold.client.app.transport.CircuitBreakerTransport
+import com.qmetric.penfold.client.app.transport.Transport
+import com.qmetric.penfold.client.app.transport.TransportRequest
+import com.qmetric.penfold.client.domain.model.QueueId
+import com.qmetric.penfold.client.domain.services.Consumer
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class TaskConsumerImplTest extends Specification {
+
+    final consumer = Stub(Consumer)
+
+    def "should poll again straight away whilst tasks are found and back off once none are found"()
+    {
+        given:
+        final polls = new AtomicInteger()
+        final pollsFindingTasks = new CountDownLatch(3)
+        consumer.getQueue() >> new QueueId("q1")
+        consumer.consume() >> { pollsFindingTasks.countDown(); polls.incrementAndGet() < 3 ? 1 : 0 }
+        final taskConsumer = new TaskConsumerImpl(consumer, Duration.ofMillis(100), [],
+                                                  Optional.of(new PollingBackoff(Duration.ofMinutes(1), Duration.ofMinutes(1))), Optional.empty(), Optional.empty())
+
+        when:
+        taskConsumer.start()
+
+        then:
+        pollsFindingTasks.await(1, TimeUnit.SECONDS)
+        Thread.sleep(200)
+        polls.get() == 3
+
+        cleanup:
+        taskConsumer.stop()
+    }
+
+    def "should not poll whilst the circuit to the server is open"()
+    {
+        given:
+        final polls = new AtomicInteger()
+        consumer.getQueue() >> new QueueId("q1")
+        consumer.consume() >> { polls.incrementAndGet() }
+        final circuitBreaker = new CircuitBreakerTransport({ request -> throw new IOException("connection refused") } as Transport, 1, 1,
+                                                           Duration.ofMinutes(1), "q1", new MetricRegistry())
+        final taskConsumer = new TaskConsumerImpl(consumer, Duration.ofMillis(10), [], Optional.empty(), Optional.empty(), Optional.of(circuitBreaker))
+
+        when:
+        circuitBreaker.execute(TransportRequest.get(URI.create("http://localhost/tasks"), [:]))
+
+        then:
+        thrown(IOException)
+
+        when:
+        taskConsumer.start()
+        Thread.sleep(200)
+
+        then:
+        polls.get() == 0
+
+        cleanup:
+        taskConsumer.stop()
+    }
+}
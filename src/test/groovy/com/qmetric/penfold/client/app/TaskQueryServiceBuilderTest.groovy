@@ -1,7 +1,10 @@
 package com.qmetric.penfold.client.app
 
+import com.codahale.metrics.MetricRegistry
 import spock.lang.Specification
 
+import java.time.Duration
+
 class TaskQueryServiceBuilderTest extends Specification {
 
     def "should build task query service"()
@@ -12,4 +15,54 @@ class TaskQueryServiceBuilderTest extends Specification {
                 .withCredentials("user", "pass")
                 .build();
     }
+
+    def "should build task query service recording metrics"()
+    {
+        given:
+        final metricRegistry = new MetricRegistry()
+
+        when:
+        new TaskQueryServiceBuilder()
+                .forServer("http://localhost")
+                .withMetrics(metricRegistry)
+                .build()
+
+        then:
+        metricRegistry.names == ["penfold.query.find-task", "penfold.query.page-not-modified", "penfold.query.retrieve-page"] as SortedSet
+    }
+
+    def "should build task query service with task cache"()
+    {
+        given:
+        final metricRegistry = new MetricRegistry()
+
+        when:
+        final taskQueryService = new TaskQueryServiceBuilder()
+                .forServer("http://localhost")
+                .withTaskCache(1000, Duration.ofMinutes(1))
+                .withMetrics(metricRegistry)
+                .build()
+
+        then:
+        taskQueryService instanceof CachingTaskQueryService
+        metricRegistry.names.containsAll(["penfold.query.task-cache.query.evictions", "penfold.query.task-cache.query.hits", "penfold.query.task-cache.query.misses"])
+    }
+
+    def "should build task query services with task caches named apart in one registry"()
+    {
+        given:
+        final metricRegistry = new MetricRegistry()
+
+        when:
+        ["reports", "billing"].each { name ->
+            new TaskQueryServiceBuilder()
+                    .forServer("http://localhost")
+                    .withTaskCache(1000, Duration.ofMinutes(1))
+                    .withMetrics(metricRegistry, name)
+                    .build()
+        }
+
+        then:
+        metricRegistry.names.containsAll(["penfold.query.task-cache.reports.hits", "penfold.query.task-cache.billing.hits"])
+    }
 }
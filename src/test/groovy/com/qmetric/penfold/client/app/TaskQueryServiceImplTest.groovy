@@ -3,6 +3,7 @@ package com.qmetric.penfold.client.app
 import com.qmetric.penfold.client.app.commands.filter.EqualsFilter
 import com.qmetric.penfold.client.app.support.LocalDateTimeSource
 import com.qmetric.penfold.client.app.support.ObjectMapperFactory
+import com.qmetric.penfold.client.domain.model.CommandType
 import com.qmetric.penfold.client.domain.model.Payload
 import com.qmetric.penfold.client.domain.model.QueueId
 import com.qmetric.penfold.client.domain.model.Task
@@ -66,6 +67,18 @@ class TaskQueryServiceImplTest extends Specification {
         iterator.toList() == [expectedTask]
     }
 
+    def "should retain command links of queried tasks"()
+    {
+        given:
+        setupTasksRetrievalResponse("http://localhost/queues/q1/ready", "/fixtures/api/tasks_page.json")
+
+        when:
+        final task = queryRepository.find(new QueueId("q1"), READY, []).next()
+
+        then:
+        task.commandLinks == [(CommandType.StartTask): "http://localhost/tasks/1/1", (CommandType.RescheduleTask): "http://localhost/tasks/1/1"]
+    }
+
     def "should query tasks by queue and filters"()
     {
         given:
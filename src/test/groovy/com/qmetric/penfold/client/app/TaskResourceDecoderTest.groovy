@@ -0,0 +1,116 @@
+package com.qmetric.penfold.client.app
+
+import com.fasterxml.jackson.core.type.TypeReference
+import com.qmetric.penfold.client.app.support.ObjectMapperFactory
+import com.qmetric.penfold.client.domain.model.*
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+import static com.qmetric.penfold.client.domain.model.TaskStatus.READY
+import static com.qmetric.penfold.client.domain.model.TaskStatus.STARTED
+
+class TaskResourceDecoderTest extends Specification {
+
+    static final created = LocalDateTime.of(2014, 2, 25, 12, 0, 0)
+
+    static final triggerDate = LocalDateTime.of(2014, 4, 15, 10, 35, 5)
+
+    final decoder = new TaskResourceDecoder(ObjectMapperFactory.create())
+
+    def "should decode page of tasks with page links"()
+    {
+        when:
+        final page = decoder.readPage(getResource("/fixtures/api/tasks_page_with_links.json"))
+
+        then:
+        page.tasks == [new Task(new TaskId("1"), 1, new QueueId("q1"), READY, created, triggerDate, 1, new Payload([type: "type1", nested: [values: [1, 2, 3]]])),
+                       new Task(new TaskId("2"), 3, new QueueId("q1"), READY, created, triggerDate, 0, new Payload([:]))]
+        page.tasks*.commandLinks == [[(CommandType.StartTask): "http://localhost/tasks/1/1"], [(CommandType.StartTask): "http://localhost/tasks/2/3"]]
+        page.previousPage == Optional.of(new PageReference("1"))
+        page.nextPage == Optional.of(new PageReference("3"))
+    }
+
+    def "should decode page without page links"()
+    {
+        when:
+        final page = decoder.readPage(getResource("/fixtures/api/tasks_page.json"))
+
+        then:
+        page.tasks.size() == 1
+        page.previousPage == Optional.empty()
+        page.nextPage == Optional.empty()
+    }
+
+    def "should decode single task"()
+    {
+        when:
+        final task = decoder.readTask(getResource("/fixtures/api/start_task_response.json"))
+
+        then:
+        task == new Task(new TaskId("1"), 2, new QueueId("aggregator"), STARTED, LocalDateTime.of(2014, 3, 15, 10, 35, 5), LocalDateTime.of(2015, 4, 15, 10, 35, 5), 0, new Payload([type: "type1"]))
+        task.commandLinks.keySet() == [CommandType.RescheduleTask, CommandType.RequeueTask] as Set
+    }
+
+    def "should bind payload to requested type without decoding it as map"()
+    {
+        given:
+        final page = decoder.readPage(getResource("/fixtures/api/tasks_page_with_links.json"))
+
+        when:
+        final payload = page.tasks.first().payload.as(TypedPayload)
+        final values = page.tasks.first().payload.as(new TypeReference<Map<String, Object>>() {}).nested.values
+
+        then:
+        payload.type == "type1"
+        payload.nested == [values: [1, 2, 3]]
+        values == [1, 2, 3]
+        page.tasks.first().payload.toString().endsWith("[fields=undecoded]")
+    }
+
+    def "should reject incomplete task"()
+    {
+        when:
+        decoder.readTask(new ByteArrayInputStream('{"id": "1", "queue": "q1"}'.bytes))
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "should reject task without id"()
+    {
+        when:
+        decoder.readTask(new ByteArrayInputStream('{"version": 1, "attempts": 0, "queue": "q1", "status": "ready", "created": "2014-02-25 12:00:00", "triggerDate": "2014-02-25 12:00:00", "payload": {}}'.bytes))
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "should decode single embedded task not wrapped in an array, and carry on after it"()
+    {
+        given:
+        final json = '''{"_embedded": {"tasks": {"id": "1", "version": 1, "attempts": 0, "queue": "q1", "status": "ready",
+                                                  "created": "2014-02-25 12:00:00", "triggerDate": "2014-02-25 12:00:00", "payload": {}},
+                                       "other": {"tasks": [1, 2]}},
+                         "_links": {"next": {"href": "http://localhost/queues/q1/ready?page=3", "name": "3"}}}'''
+
+        when:
+        final page = decoder.readPage(new ByteArrayInputStream(json.bytes))
+
+        then:
+        page.tasks*.id == [new TaskId("1")]
+        page.nextPage == Optional.of(new PageReference("3"))
+    }
+
+    private static InputStream getResource(String name)
+    {
+        return this.getClass().getResourceAsStream(name)
+    }
+
+    static class TypedPayload
+    {
+        String type
+
+        Map<String, Object> nested
+    }
+}
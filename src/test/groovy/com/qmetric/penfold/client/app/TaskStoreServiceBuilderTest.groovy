@@ -1,7 +1,11 @@
 package com.qmetric.penfold.client.app
 
+import com.codahale.metrics.MetricRegistry
+import com.codahale.metrics.health.HealthCheckRegistry
 import spock.lang.Specification
 
+import java.time.Duration
+
 class TaskStoreServiceBuilderTest extends Specification {
 
     def "should build task store service"()
@@ -10,6 +14,75 @@ class TaskStoreServiceBuilderTest extends Specification {
         new TaskStoreServiceBuilder()
                 .forServer("http://localhost")
                 .withCredentials("user", "pass")
+                .withBulkCreateConcurrency(20)
+                .build();
+    }
+
+    def "should reject non-positive bulk create concurrency"()
+    {
+        when:
+        new TaskStoreServiceBuilder()
+                .forServer("http://localhost")
+                .withBulkCreateConcurrency(0)
+                .build();
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "should reject max concurrency limit less than initial limit"()
+    {
+        when:
+        new TaskStoreServiceBuilder()
+                .forServer("http://localhost")
+                .withAdaptiveConcurrencyLimit(10, 5)
                 .build();
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "should build task store services with concurrency limits named apart in one registry"()
+    {
+        given:
+        final metricRegistry = new MetricRegistry()
+
+        when:
+        new TaskStoreServiceBuilder()
+                .forServer("http://localhost")
+                .withAdaptiveConcurrencyLimit(5, 10)
+                .withMetrics(metricRegistry)
+                .build()
+        new TaskStoreServiceBuilder()
+                .forServer("http://localhost")
+                .withAdaptiveConcurrencyLimit(5, 10)
+                .withMetrics(metricRegistry, "bulk")
+                .build()
+
+        then:
+        metricRegistry.names.containsAll(["penfold.transport.store.concurrency-limit", "penfold.transport.bulk.concurrency-limit"])
+    }
+
+    def "should build query and store services with circuit breakers named apart in one registry"()
+    {
+        given:
+        final metricRegistry = new MetricRegistry()
+        final healthCheckRegistry = new HealthCheckRegistry()
+
+        when:
+        new TaskQueryServiceBuilder()
+                .forServer("http://localhost")
+                .withCircuitBreaker(0.5, 20, Duration.ofSeconds(30), healthCheckRegistry)
+                .withMetrics(metricRegistry)
+                .build()
+        new TaskStoreServiceBuilder()
+                .forServer("http://localhost")
+                .withCircuitBreaker(0.5, 20, Duration.ofSeconds(30), healthCheckRegistry)
+                .withMetrics(metricRegistry)
+                .build()
+
+        then:
+        healthCheckRegistry.names == ["query penfold server circuit breaker", "store penfold server circuit breaker"] as SortedSet
+        metricRegistry.names.containsAll(["penfold.transport.query.circuit-breaker.state", "penfold.transport.store.circuit-breaker.state"])
     }
 }
@@ -1,9 +1,13 @@
 package com.qmetric.penfold.client.app
 
+import com.codahale.metrics.MetricRegistry
+import com.fasterxml.jackson.databind.ObjectMapper
 import com.google.common.base.Charsets
 import com.google.common.io.CharStreams
 import com.google.common.io.Closeables
 import com.qmetric.penfold.client.app.support.ObjectMapperFactory
+import com.qmetric.penfold.client.app.transport.ApacheHttpTransport
+import com.qmetric.penfold.client.domain.exceptions.ConflictException
 import com.qmetric.penfold.client.domain.model.*
 import groovy.json.JsonSlurper
 import org.apache.http.HttpEntity
@@ -18,6 +22,8 @@ import spock.lang.Specification
 
 import java.time.LocalDateTime
 import java.time.format.DateTimeFormatter
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
 
 import static java.util.Optional.empty
 
@@ -57,6 +63,23 @@ class TaskStoreServiceImplTest extends Specification {
         task != null
     }
 
+    def "should create task with payload given as json or object"()
+    {
+        given:
+        setupRequestBuilder(getResource("/fixtures/api/command/create_task_command.json"), getResource("/fixtures/api/create_task_response.json"), 201)
+
+        when:
+        def task = store.create(new NewTask(queueId, givenPayload, empty()))
+
+        then:
+        task.id == new TaskId("1")
+
+        where:
+        givenPayload << [Payload.fromJson('{"type": "type1"}'.bytes),
+                         Payload.of(new ObjectMapper().createObjectNode().put("type", "type1")),
+                         Payload.of(new TypedPayload(type: "type1"))]
+    }
+
     def "should create future task"()
     {
         given:
@@ -75,6 +98,41 @@ class TaskStoreServiceImplTest extends Specification {
         task.triggerDate == LocalDateTime.parse("2015-04-15T10:35:05", DateTimeFormatter.ISO_LOCAL_DATE_TIME)
     }
 
+    def "should create all tasks reporting those that failed to be created"()
+    {
+        given:
+        setupRequestBuilder(getResource("/fixtures/api/command/create_task_command.json"), getResource("/fixtures/api/create_task_response.json"), 201)
+        setupRequestBuilder(getResource("/fixtures/api/command/create_future_task_command.json"), "", 500)
+        def futureTask = new NewTask(queueId, payload, Optional.of(triggerDate))
+
+        when:
+        def result = store.createAll([new NewTask(queueId, payload, empty()), futureTask, new NewTask(queueId, payload, empty())])
+
+        then:
+        result.created*.id == [new TaskId("1"), new TaskId("1")]
+        result.failures*.index == [1]
+        result.failures*.task == [futureTask]
+        result.hasFailures()
+    }
+
+    def "should create streamed tasks concurrently"()
+    {
+        given:
+        final executor = Executors.newFixedThreadPool(4)
+        final bulkStore = new TaskStoreServiceImpl("http://localhost", new ApacheHttpTransport(client), ObjectMapperFactory.create(), 4, executor, new MetricRegistry())
+        setupRequestBuilder(getResource("/fixtures/api/command/create_task_command.json"), getResource("/fixtures/api/create_task_response.json"), 201)
+
+        when:
+        def result = bulkStore.createAll((1..20).collect { new NewTask(queueId, payload, empty()) }.iterator())
+
+        then:
+        result.created.size() == 20
+        !result.hasFailures()
+
+        cleanup:
+        executor.shutdown()
+    }
+
     def "should start task"()
     {
         given:
@@ -97,6 +155,63 @@ class TaskStoreServiceImplTest extends Specification {
         start.status == TaskStatus.STARTED
     }
 
+    def "should start task directly with known command link"()
+    {
+        given:
+        def expectedRequest = getResource("/fixtures/api/command/start_task_command.json")
+        def postResponse = getResource("/fixtures/api/start_task_response.json")
+        setupTaskCommand("http://localhost/tasks/1/2", expectedRequest, postResponse)
+
+        when:
+        def start = store.start(createTask().builder().withCommandLinks([(CommandType.StartTask): "http://localhost/tasks/1/2"]).build())
+
+        then:
+        start.status == TaskStatus.STARTED
+        start.commandLinks == [(CommandType.RescheduleTask): "http://localhost/tasks/1/2", (CommandType.RequeueTask): "http://localhost/tasks/1/2"]
+        0 * client.execute({ request -> request.method == "GET" } as HttpUriRequest)
+    }
+
+    def "should time requests by command type"()
+    {
+        given:
+        final metricRegistry = new MetricRegistry()
+        final store = new TaskStoreServiceImpl("http://localhost", new ApacheHttpTransport(client), ObjectMapperFactory.create(), 1, { it.run() } as Executor, metricRegistry)
+        def expectedRequest = getResource("/fixtures/api/command/start_task_command.json")
+        def postResponse = getResource("/fixtures/api/start_task_response.json")
+        setupTaskCommand("http://localhost/tasks/1/2", expectedRequest, postResponse)
+
+        when:
+        store.start(createTask().builder().withCommandLinks([(CommandType.StartTask): "http://localhost/tasks/1/2"]).build())
+
+        then:
+        metricRegistry.timer("penfold.store.StartTask").count == 1
+        metricRegistry.timer("penfold.store.retrieve-task").count == 0
+        metricRegistry.timer("penfold.store.CloseTask").count == 0
+    }
+
+    def "should raise conflict when command not permitted by known command links"()
+    {
+        when:
+        store.close(createTask().builder().withCommandLinks([(CommandType.StartTask): "http://localhost/tasks/1/2"]).build(), Optional.of(CloseResultType.success), empty())
+
+        then:
+        thrown(ConflictException)
+        0 * client.execute(_)
+    }
+
+    def "should raise conflict when server rejects command"()
+    {
+        given:
+        def expectedRequest = getResource("/fixtures/api/command/start_task_command.json")
+        setupTaskCommand("http://localhost/tasks/1/2", expectedRequest, "", 409)
+
+        when:
+        store.start(createTask().builder().withCommandLinks([(CommandType.StartTask): "http://localhost/tasks/1/2"]).build())
+
+        then:
+        thrown(ConflictException)
+    }
+
     def "should requeue task"()
     {
         given:
@@ -252,4 +367,9 @@ class TaskStoreServiceImplTest extends Specification {
     {
         return new Task(taskId, 2, queueId, TaskStatus.READY, created, triggerDate, attempts, payload)
     }
+
+    static class TypedPayload
+    {
+        String type
+    }
 }
@@ -0,0 +1,43 @@
+package com.qmetric.penfold.client.app.support
+
+import com.codahale.metrics.MetricRegistry
+import com.qmetric.penfold.client.app.transport.BufferedTransportResponse
+import com.qmetric.penfold.client.app.transport.CircuitBreakerTransport
+import com.qmetric.penfold.client.app.transport.Transport
+import com.qmetric.penfold.client.app.transport.TransportRequest
+import spock.lang.Specification
+
+import java.time.Duration
+
+class CircuitBreakerHealthCheckTest extends Specification
+{
+    static final request = TransportRequest.get(URI.create("http://localhost/tasks"), [:])
+
+    int status = 200
+
+    final circuitBreaker = new CircuitBreakerTransport({ request -> new BufferedTransportResponse(status, [:], new byte[0]) } as Transport, 1, 2,
+                                                       Duration.ofMinutes(1), "query", new MetricRegistry())
+
+    final healthCheck = new CircuitBreakerHealthCheck(circuitBreaker)
+
+    def "should know when penfold server is healthy"()
+    {
+        when:
+        circuitBreaker.execute(request)
+
+        then:
+        healthCheck.execute().isHealthy()
+    }
+
+    def "should know when penfold server is unhealthy"()
+    {
+        given:
+        status = 503
+
+        when:
+        2.times { circuitBreaker.execute(request) }
+
+        then:
+        !healthCheck.execute().isHealthy()
+    }
+}
@@ -0,0 +1,52 @@
+package com.qmetric.penfold.client.app.support
+
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.function.Supplier
+
+class PollingBackoffTest extends Specification {
+
+    final random = Stub(Random)
+
+    final backoff = new PollingBackoff(Duration.ofMillis(100), Duration.ofSeconds(1), { random } as Supplier)
+
+    def "should poll again immediately whilst tasks are started"()
+    {
+        expect:
+        backoff.nextDelay(5) == Duration.ZERO
+        backoff.nextDelay(1) == Duration.ZERO
+    }
+
+    def "should back off exponentially up to ceiling whilst no tasks are found"()
+    {
+        given:
+        random.nextDouble() >> 1.0
+
+        expect:
+        (1..6).collect { backoff.nextDelay(0).toMillis() } == [100, 200, 400, 800, 1000, 1000]
+    }
+
+    def "should jitter delay between half and all of backed off delay"()
+    {
+        given:
+        random.nextDouble() >> 0.0
+
+        expect:
+        (1..3).collect { backoff.nextDelay(0).toMillis() } == [50, 100, 200]
+    }
+
+    def "should reset back off once tasks are started again"()
+    {
+        given:
+        random.nextDouble() >> 1.0
+        backoff.nextDelay(0)
+        backoff.nextDelay(0)
+
+        when:
+        backoff.nextDelay(3)
+
+        then:
+        backoff.nextDelay(0) == Duration.ofMillis(100)
+    }
+}
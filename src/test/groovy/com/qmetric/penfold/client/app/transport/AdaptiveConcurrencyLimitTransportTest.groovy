@@ -0,0 +1,209 @@
+package com.qmetric.penfold.client.app.transport
+
+import com.codahale.metrics.MetricRegistry
+import com.google.common.base.Ticker
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS
+
+class AdaptiveConcurrencyLimitTransportTest extends Specification {
+
+    static final request = TransportRequest.get(URI.create("http://localhost/tasks"), [:])
+
+    final ticker = new FakeTicker()
+
+    final metricRegistry = new MetricRegistry()
+
+    long roundTripMillis = 10
+
+    int status = 200
+
+    final delegate = { request ->
+        ticker.nanos += MILLISECONDS.toNanos(roundTripMillis)
+        new BufferedTransportResponse(status, [:], new byte[0])
+    } as Transport
+
+    def "should grow the limit whilst requests at the limit are answered promptly"()
+    {
+        given:
+        final transport = new AdaptiveConcurrencyLimitTransport(delegate, 2, 4, ticker, "query", metricRegistry)
+
+        when:
+        20.times { (1..transport.limit()).collect { transport.execute(request) }*.close() }
+
+        then:
+        transport.limit() == 4
+        metricRegistry.gauges["penfold.transport.query.concurrency-limit"].value == 4
+    }
+
+    def "should not grow the limit whilst it is not in use"()
+    {
+        given:
+        final transport = new AdaptiveConcurrencyLimitTransport(delegate, 4, 8, ticker, "query", metricRegistry)
+
+        when:
+        20.times { transport.execute(request).close() }
+
+        then:
+        transport.limit() == 4
+    }
+
+    def "should back off on server errors"()
+    {
+        given:
+        final transport = new AdaptiveConcurrencyLimitTransport(delegate, 10, 10, ticker, "query", metricRegistry)
+
+        when:
+        status = 503
+        2.times { transport.execute(request).close() }
+
+        then:
+        transport.limit() == 8
+    }
+
+    def "should not back off on occasional conflicts"()
+    {
+        given:
+        final transport = new AdaptiveConcurrencyLimitTransport(delegate, 10, 10, ticker, "query", metricRegistry)
+
+        when:
+        5.times {
+            status = 409
+            transport.execute(request).close()
+            status = 200
+            3.times { transport.execute(request).close() }
+        }
+
+        then:
+        transport.limit() == 10
+    }
+
+    def "should back off once most recent responses are conflicts"()
+    {
+        given:
+        final transport = new AdaptiveConcurrencyLimitTransport(delegate, 10, 10, ticker, "query", metricRegistry)
+        status = 409
+
+        when:
+        6.times { transport.execute(request).close() }
+
+        then:
+        transport.limit() == 10
+
+        when:
+        transport.execute(request).close()
+
+        then:
+        transport.limit() == 9
+    }
+
+    def "should back off when round trips slow beyond the quickest recently seen"()
+    {
+        given:
+        final transport = new AdaptiveConcurrencyLimitTransport(delegate, 10, 10, ticker, "query", metricRegistry)
+        5.times { transport.execute(request).close() }
+
+        when:
+        roundTripMillis = 50
+        transport.execute(request).close()
+
+        then:
+        transport.limit() == 9
+    }
+
+    def "should compare round trips with the quickest of the same kind of request"()
+    {
+        given:
+        final transport = new AdaptiveConcurrencyLimitTransport(delegate, 10, 10, ticker, "query", metricRegistry)
+        final createTask = TransportRequest.post(URI.create("http://localhost/tasks"), [:], RequestBody.of("{}".bytes))
+        final readyTasks = TransportRequest.get(URI.create("http://localhost/queues/q1/ready"), [:])
+        roundTripMillis = 5
+        5.times { transport.execute(createTask).close() }
+
+        when:
+        roundTripMillis = 50
+        transport.execute(readyTasks).close()
+
+        then:
+        transport.limit() == 10
+
+        when:
+        roundTripMillis = 150
+        transport.execute(readyTasks).close()
+
+        then:
+        transport.limit() == 9
+    }
+
+    def "should record metrics of each named limit apart"()
+    {
+        when:
+        new AdaptiveConcurrencyLimitTransport(delegate, 1, 2, ticker, "query", metricRegistry)
+        new AdaptiveConcurrencyLimitTransport(delegate, 3, 4, ticker, "store", metricRegistry)
+
+        then:
+        metricRegistry.gauges["penfold.transport.query.concurrency-limit"].value == 1
+        metricRegistry.gauges["penfold.transport.store.concurrency-limit"].value == 3
+    }
+
+    def "should hold requests beyond the limit until a response is closed"()
+    {
+        given:
+        final transport = new AdaptiveConcurrencyLimitTransport(delegate, 1, 1, ticker, "query", metricRegistry)
+        final executor = Executors.newSingleThreadExecutor()
+        final first = transport.execute(request)
+
+        when:
+        final second = executor.submit({ transport.execute(request) } as Callable)
+        second.get(100, TimeUnit.MILLISECONDS)
+
+        then:
+        thrown(TimeoutException)
+
+        when:
+        first.close()
+
+        then:
+        second.get(1, TimeUnit.SECONDS).status() == 200
+        metricRegistry.timers["penfold.transport.query.queueing"].count == 2
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "should release the request when the transport fails"()
+    {
+        given:
+        final failing = Mock(Transport)
+        final transport = new AdaptiveConcurrencyLimitTransport(failing, 1, 1, ticker, "query", metricRegistry)
+        failing.execute(request) >> { throw new IOException("connection refused") } >> new BufferedTransportResponse(200, [:], new byte[0])
+
+        when:
+        transport.execute(request)
+
+        then:
+        thrown(IOException)
+
+        when:
+        final response = transport.execute(request)
+
+        then:
+        response.status() == 200
+        metricRegistry.gauges["penfold.transport.query.in-flight"].value == 1
+    }
+
+    static class FakeTicker extends Ticker
+    {
+        long nanos
+
+        @Override long read()
+        {
+            nanos
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.qmetric.penfold.client.app.transport
+
+import com.codahale.metrics.MetricRegistry
+import com.google.common.base.Ticker
+import spock.lang.Specification
+
+import java.time.Duration
+
+import static com.qmetric.penfold.client.app.transport.CircuitBreakerTransport.State.CLOSED
+import static com.qmetric.penfold.client.app.transport.CircuitBreakerTransport.State.HALF_OPEN
+import static com.qmetric.penfold.client.app.transport.CircuitBreakerTransport.State.OPEN
+import static com.qmetric.penfold.client.app.transport.CircuitBreakerTransport.TRIAL_REQUESTS
+
+class CircuitBreakerTransportTest extends Specification {
+
+    static final request = TransportRequest.get(URI.create("http://localhost/tasks"), [:])
+
+    final ticker = new FakeTicker()
+
+    final metricRegistry = new MetricRegistry()
+
+    List<Integer> statuses = [200]
+
+    int sent = 0
+
+    final delegate = { request ->
+        final status = statuses[Math.min(sent++, statuses.size() - 1)]
+        if (status < 0)
+        {
+            throw new IOException("connection refused")
+        }
+        new BufferedTransportResponse(status, [:], new byte[0])
+    } as Transport
+
+    final transport = new CircuitBreakerTransport(delegate, 0.5, 4, Duration.ofSeconds(30), ticker, "query", metricRegistry)
+
+    def "should send requests whilst failures among the most recent requests stay below the threshold"()
+    {
+        given:
+        statuses = [503, 200, 200, 200, 503, 200]
+
+        when:
+        6.times { transport.execute(request) }
+
+        then:
+        transport.state() == CLOSED
+        transport.failureRate() == 0.25
+    }
+
+    def "should fail fast once failures among the most recent requests reach the threshold"()
+    {
+        given:
+        statuses = [200, 503, 200, -1]
+        4.times { send() }
+
+        when:
+        transport.execute(request)
+
+        then:
+        thrown(CircuitOpenException)
+        sent == 4
+        transport.state() == OPEN
+        !transport.allowsRequests()
+        metricRegistry.meters["penfold.transport.query.circuit-breaker.rejections"].count == 1
+    }
+
+    def "should close once trial requests succeed after the open duration"()
+    {
+        given:
+        open()
+        statuses = [200]
+
+        when:
+        ticker.nanos += Duration.ofSeconds(30).toNanos()
+
+        then:
+        transport.allowsRequests()
+
+        when:
+        transport.execute(request)
+
+        then:
+        transport.state() == HALF_OPEN
+
+        when:
+        (TRIAL_REQUESTS - 1).times { transport.execute(request) }
+
+        then:
+        transport.state() == CLOSED
+        metricRegistry.gauges["penfold.transport.query.circuit-breaker.state"].value == "CLOSED"
+    }
+
+    def "should open again when a trial request fails"()
+    {
+        given:
+        open()
+        ticker.nanos += Duration.ofSeconds(30).toNanos()
+
+        when:
+        transport.execute(request)
+
+        then:
+        transport.state() == OPEN
+        !transport.allowsRequests()
+    }
+
+    def "should not count conflicts as failures"()
+    {
+        given:
+        statuses = [409]
+
+        when:
+        4.times { transport.execute(request) }
+
+        then:
+        transport.state() == CLOSED
+    }
+
+    private void open()
+    {
+        statuses = [503]
+        4.times { transport.execute(request) }
+        assert transport.state() == OPEN
+    }
+
+    private void send()
+    {
+        try
+        {
+            transport.execute(request)
+        }
+        catch (IOException ignored)
+        {
+        }
+    }
+
+    static class FakeTicker extends Ticker
+    {
+        long nanos
+
+        @Override long read()
+        {
+            nanos
+        }
+    }
+}
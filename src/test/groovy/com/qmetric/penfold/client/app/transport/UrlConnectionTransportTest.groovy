@@ -0,0 +1,47 @@
+package com.qmetric.penfold.client.app.transport
+
+import com.qmetric.penfold.client.app.TaskQueryServiceBuilder
+import com.qmetric.penfold.client.app.TaskStoreServiceBuilder
+import com.qmetric.penfold.client.domain.model.*
+import com.qmetric.penfold.client.fake.FakePenfoldServerBuilder
+import spock.lang.Specification
+
+import static java.util.Optional.empty
+
+class UrlConnectionTransportTest extends Specification {
+
+    static final queue = new QueueId("q1")
+
+    final server = new FakePenfoldServerBuilder().withPageSize(2).start()
+
+    final store = new TaskStoreServiceBuilder().forServer(server.url()).withTransport(new UrlConnectionTransport()).build()
+
+    final query = new TaskQueryServiceBuilder().forServer(server.url()).withTransport(new UrlConnectionTransport()).build()
+
+    def cleanup()
+    {
+        server.close()
+    }
+
+    def "should create, start and find tasks"()
+    {
+        given:
+        final created = (1..3).collect { store.create(new NewTask(queue, Payload.fromJson("{\"index\": ${it}}".toString().bytes), empty())) }
+
+        when:
+        final started = store.start(created[0])
+
+        then:
+        started.status == TaskStatus.STARTED
+        query.find(queue, TaskStatus.READY, []).collect { it.id } == created[1..2]*.id
+    }
+
+    def "should read error responses"()
+    {
+        when:
+        final task = query.find(new TaskId("missing"))
+
+        then:
+        !task.isPresent()
+    }
+}
@@ -0,0 +1,53 @@
+package com.qmetric.penfold.client.domain.model
+
+import com.fasterxml.jackson.core.type.TypeReference
+import com.qmetric.penfold.client.app.support.ObjectMapperFactory
+import spock.lang.Specification
+
+class PayloadTest extends Specification {
+
+    def "should bind payload created from map to requested type"()
+    {
+        given:
+        final payload = new Payload([type: "type1", count: 2])
+
+        expect:
+        payload.as(TypedPayload).type == "type1"
+        payload.as(TypedPayload).count == 2
+        payload.as(new TypeReference<Map<String, String>>() {}) == [type: "type1", count: "2"]
+    }
+
+    def "should write payload given as raw json as is"()
+    {
+        given:
+        final payload = Payload.fromJson('{"type": "type1", "nested": {"values": [1, 2.5, null]}}'.bytes)
+
+        expect:
+        ObjectMapperFactory.create().writeValueAsString([payload: payload]) == '{"payload":{"type": "type1", "nested": {"values": [1, 2.5, null]}}}'
+        payload.getAsMap() == [type: "type1", nested: [values: [1, 2.5, null]]]
+    }
+
+    def "should bind payload given as object"()
+    {
+        given:
+        final payload = Payload.of(new TypedPayload(type: "type1", count: 2))
+
+        expect:
+        payload.getAsMap() == [type: "type1", count: 2]
+        payload.as(TypedPayload).count == 2
+    }
+
+    def "should be equal to payload with same fields"()
+    {
+        expect:
+        new Payload([type: "type1"]) == new Payload([type: "type1"])
+        new Payload([type: "type1"]) != new Payload([type: "type2"])
+    }
+
+    static class TypedPayload
+    {
+        String type
+
+        int count
+    }
+}
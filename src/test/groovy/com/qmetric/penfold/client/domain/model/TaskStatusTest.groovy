@@ -0,0 +1,39 @@
+package com.qmetric.penfold.client.domain.model
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static com.qmetric.penfold.client.domain.model.TaskStatus.*
+
+class TaskStatusTest extends Specification {
+
+    @Unroll def "should return shared constant for known status #value"()
+    {
+        expect:
+        TaskStatus.of(value).is(expected)
+
+        where:
+        value       | expected
+        "waiting"   | WAITING
+        "ready"     | READY
+        "started"   | STARTED
+        "closed"    | CLOSED
+        "cancelled" | CANCELLED
+    }
+
+    def "should create status for unknown value"()
+    {
+        expect:
+        TaskStatus.of("archived").value == "archived"
+        !TaskStatus.of("archived").isReady()
+    }
+
+    def "should compare statuses created outside of constants by value"()
+    {
+        expect:
+        new TaskStatus("started").isStarted()
+        new TaskStatus("started") == STARTED
+        new TaskStatus("started").hashCode() == STARTED.hashCode()
+        new TaskStatus("started") != READY
+    }
+}
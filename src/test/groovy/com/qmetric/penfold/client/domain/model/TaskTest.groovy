@@ -0,0 +1,45 @@
+package com.qmetric.penfold.client.domain.model
+
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+import static com.qmetric.penfold.client.domain.model.TaskStatus.READY
+
+class TaskTest extends Specification {
+
+    static final created = LocalDateTime.of(2014, 3, 15, 10, 35, 5)
+
+    static final task = new Task(new TaskId("1"), 2, new QueueId("q1"), READY, created, created, 0, new Payload([secret: "value"]))
+
+    def "should be equal to task with same state regardless of command links"()
+    {
+        given:
+        final sameTask = task.builder().withCommandLinks([(CommandType.StartTask): "http://localhost/tasks/1/2"]).build()
+
+        expect:
+        task == sameTask
+        task.hashCode() == sameTask.hashCode()
+    }
+
+    def "should not be equal to task with different state"()
+    {
+        expect:
+        task != task.builder().withVersion(3).build()
+        task != task.builder().withStatus(TaskStatus.STARTED).build()
+        task != task.builder().withPayload(new Payload([secret: "other"])).build()
+    }
+
+    def "should not be equal to id of other type with same value"()
+    {
+        expect:
+        new TaskId("q1") != new QueueId("q1")
+        new TaskId("q1") == new TaskId("q1")
+    }
+
+    def "should describe task without payload"()
+    {
+        expect:
+        task.toString() == "Task[id=1,version=2,queue=q1,status=ready,attempts=0,triggerDate=2014-03-15T10:35:05]"
+    }
+}
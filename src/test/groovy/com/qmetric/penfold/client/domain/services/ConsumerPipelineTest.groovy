@@ -0,0 +1,129 @@
+package com.qmetric.penfold.client.domain.services
+
+import com.codahale.metrics.MetricRegistry
+import com.qmetric.penfold.client.domain.model.Payload
+import com.qmetric.penfold.client.domain.model.QueueId
+import com.qmetric.penfold.client.domain.model.Reply
+import com.qmetric.penfold.client.domain.model.Task
+import com.qmetric.penfold.client.domain.model.TaskId
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+import java.util.concurrent.Callable
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.function.BiConsumer
+import java.util.function.Function
+
+import static com.qmetric.penfold.client.domain.model.TaskStatus.READY
+import static com.qmetric.penfold.client.domain.model.TaskStatus.STARTED
+
+class ConsumerPipelineTest extends Specification {
+
+    static final queue = new QueueId("q1")
+
+    static final tasks = (1..10).collect { new Task(new TaskId("t${it}"), 1, queue, READY, LocalDateTime.now(), LocalDateTime.now(), 0, new Payload([:])) }
+
+    final executionWorkers = Executors.newFixedThreadPool(2)
+
+    final requestWorkers = Executors.newFixedThreadPool(1)
+
+    final metricRegistry = new MetricRegistry()
+
+    final pipeline = new ConsumerPipeline(queue, executionWorkers, 2, requestWorkers, 1, 3, metricRegistry)
+
+    final replied = new CopyOnWriteArrayList()
+
+    final reply = { task, reply -> replied << task.id } as BiConsumer
+
+    def cleanup()
+    {
+        executionWorkers.shutdownNow()
+        requestWorkers.shutdownNow()
+    }
+
+    def "should claim, execute and reply to every task"()
+    {
+        when:
+        final tasksFound = pipeline.consume(tasks.iterator(), { Optional.of(started(it)) } as Function, { Reply.success() } as Function, reply)
+
+        then:
+        tasksFound == 10
+        replied as Set == tasks.collect { it.id } as Set
+    }
+
+    def "should not execute tasks that could not be claimed"()
+    {
+        given:
+        final executed = new CopyOnWriteArrayList()
+
+        when:
+        final tasksFound = pipeline.consume(tasks.iterator(), { it.id.value == "t1" ? Optional.empty() : Optional.of(started(it)) } as Function,
+                                            { executed << it.id; Reply.success() } as Function, reply)
+
+        then:
+        tasksFound == 10
+        executed.size() == 9
+        replied.size() == 9
+    }
+
+    def "should claim ahead of execution no further than the queue capacity"()
+    {
+        given:
+        final executing = new CountDownLatch(1)
+        final claimed = new CopyOnWriteArrayList()
+        final consuming = Executors.newSingleThreadExecutor()
+
+        when:
+        final tasksFound = consuming.submit({
+            pipeline.consume(tasks.iterator(), { claimed << it.id; Optional.of(started(it)) } as Function, { executing.await(); Reply.success() } as Function, reply)
+        } as Callable)
+        Thread.sleep(200)
+
+        then:
+        claimed.size() == 5
+        metricRegistry.gauges["penfold.consumer.q1.awaiting-execution"].value == 3
+
+        when:
+        executing.countDown()
+
+        then:
+        tasksFound.get(1, TimeUnit.SECONDS) == 10
+        replied.size() == 10
+
+        cleanup:
+        consuming.shutdownNow()
+    }
+
+    def "should stop claiming and rethrow when a reply cannot be applied"()
+    {
+        given:
+        final claimed = new CopyOnWriteArrayList()
+
+        when:
+        pipeline.consume(tasks.iterator(), { claimed << it.id; Thread.sleep(50); Optional.of(started(it)) } as Function, { Reply.success() } as Function,
+                         { task, reply -> throw new IllegalStateException("cannot close") } as BiConsumer)
+
+        then:
+        thrown(IllegalStateException)
+        claimed.size() < 10
+    }
+
+    def "should record tasks awaiting each stage of every pipeline of same queue in same registry"()
+    {
+        when:
+        final other = new ConsumerPipeline(queue, executionWorkers, 2, requestWorkers, 1, 3, metricRegistry)
+
+        then:
+        other != null
+        metricRegistry.gauges["penfold.consumer.q1.awaiting-execution"].value == 0
+        metricRegistry.gauges["penfold.consumer.q1.awaiting-reply"].value == 0
+    }
+
+    private static Task started(final Task task)
+    {
+        task.builder().withStatus(STARTED).build()
+    }
+}
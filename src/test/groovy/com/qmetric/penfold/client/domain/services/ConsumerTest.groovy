@@ -1,5 +1,6 @@
 package com.qmetric.penfold.client.domain.services
 
+import com.codahale.metrics.MetricRegistry
 import com.github.rholder.retry.RetryerBuilder
 import com.qmetric.penfold.client.app.support.LocalDateTimeSource
 import com.qmetric.penfold.client.domain.exceptions.ConflictException
@@ -9,6 +10,8 @@ import spock.lang.Specification
 
 import java.time.Duration
 import java.time.LocalDateTime
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
 
 import static com.github.rholder.retry.StopStrategies.stopAfterAttempt
 import static com.qmetric.penfold.client.domain.model.TaskStatus.*
@@ -68,12 +71,13 @@ class ConsumerTest extends Specification {
         taskQueryService.find(startedTask2.id) >> Optional.of(startedTask2)
 
         when:
-        consumer.consume()
+        final tasksStarted = consumer.consume()
 
         then:
         1 * taskStoreService.close(startedTask1, Optional.of(CloseResultType.success), empty())
         1 * taskStoreService.close(startedTask2, Optional.of(CloseResultType.success), empty())
         listener.receivedEvents == [new TaskConsumedEvent(readyTask1.id), new TaskConsumedEvent(readyTask2.id), new QueueConsumedEvent(queueId)]
+        tasksStarted == 2
     }
 
     def "should close task on consume failure"()
@@ -123,12 +127,45 @@ class ConsumerTest extends Specification {
         consumer.consume()
 
         then:
+        1 * taskStoreService.close(startedTask1, Optional.of(CloseResultType.success), empty()) >> { throw new ConflictException("") }
         0 * taskStoreService.close(_ as Task, _ as Optional<CloseResultType>, _ as Optional<String>)
         0 * taskStoreService.reschedule(_ as Task, _ as LocalDateTime, _ as Optional<String>)
         0 * taskStoreService.requeue(_ as Task, _ as Optional<String>)
         listener.receivedEvents == [new TaskConsumedEvent(readyTask1.id), new QueueConsumedEvent(queueId)]
     }
 
+    def "should apply reply to started task without re-reading it"()
+    {
+        given:
+        final taskQueryService = Mock(TaskQueryService)
+        final consumer = new Consumer(queueId, consumerFunction, Optional.of(retryDelay), taskQueryService, taskStoreService, dateTimeSource, notifier)
+        taskQueryService.find(queueId, READY, []) >> [readyTask1].iterator()
+        consumerFunction.execute(startedTask1) >> Reply.success()
+
+        when:
+        consumer.consume()
+
+        then:
+        1 * taskStoreService.close(startedTask1, Optional.of(CloseResultType.success), empty())
+        0 * taskQueryService.find(_ as TaskId)
+    }
+
+    def "should re-read task and apply reply to latest version when started task conflicts"()
+    {
+        given:
+        final latestVersionOfTask = startedTask1.builder().withVersion(2).build()
+        taskQueryService.find(queueId, READY, []) >> [readyTask1].iterator()
+        consumerFunction.execute(startedTask1) >> Reply.success()
+        taskQueryService.find(startedTask1.id) >> Optional.of(latestVersionOfTask)
+
+        when:
+        consumer.consume()
+
+        then:
+        1 * taskStoreService.close(startedTask1, Optional.of(CloseResultType.success), empty()) >> { throw new ConflictException("") }
+        1 * taskStoreService.close(latestVersionOfTask, Optional.of(CloseResultType.success), empty())
+    }
+
     def "should requeue task on consume failure when delayed retry applicable"()
     {
         given:
@@ -157,12 +194,13 @@ class ConsumerTest extends Specification {
         taskQueryService.find(startedTask2.id) >> Optional.of(startedTask2)
 
         when:
-        consumer.consume()
+        final tasksStarted = consumer.consume()
 
         then:
         1 * taskStoreService.close(startedTask1, Optional.of(CloseResultType.success), empty())
         1 * taskStoreService.close(startedTask2, Optional.of(CloseResultType.success), empty())
         listener.receivedEvents == [new TaskConsumedEvent(readyTask1.id), new TaskConsumedEvent(readyTaskAlreadyStarted.id), new TaskConsumedEvent(readyTask2.id), new QueueConsumedEvent(queueId)]
+        tasksStarted == 2
     }
 
     def "should retry when attempt to close a started task fails - after max retries we quit attempt to consume from queue"()
@@ -183,6 +221,117 @@ class ConsumerTest extends Specification {
         thrown(RuntimeException)
     }
 
+    def "should move on to next task whilst reply that cannot be applied is retried in background"()
+    {
+        given:
+        final replyRetryScheduler = Mock(ReplyRetryScheduler)
+        final consumer = consumerBuilder().withReplyRetryScheduler(Optional.of(replyRetryScheduler)).build()
+        taskQueryService.find(queueId, READY, []) >> [readyTask1, readyTask2].iterator()
+        consumerFunction.execute(_) >> Reply.success()
+        taskQueryService.find(startedTask1.id) >> Optional.of(startedTask1)
+
+        when:
+        consumer.consume()
+
+        then:
+        1 * taskStoreService.close(startedTask1, Optional.of(CloseResultType.success), empty()) >> { throw new RuntimeException() }
+        1 * replyRetryScheduler.schedule(startedTask1.id, _) >> { taskId, reply -> reply.call(); true }
+        1 * taskStoreService.close(startedTask1, Optional.of(CloseResultType.success), empty())
+
+        then:
+        1 * taskStoreService.close(startedTask2, Optional.of(CloseResultType.success), empty())
+        listener.receivedEvents == [new TaskConsumedEvent(readyTask1.id), new TaskConsumedEvent(readyTask2.id), new QueueConsumedEvent(queueId)]
+    }
+
+    def "should retry reply whilst holding up consumer when too many replies are pending retry in background"()
+    {
+        given:
+        final replyRetryScheduler = Mock(ReplyRetryScheduler)
+        final retryBuilder = RetryerBuilder.<Void> newBuilder().retryIfException().withStopStrategy(stopAfterAttempt(2))
+        final consumer = consumerBuilder().withReplyRetryScheduler(Optional.of(replyRetryScheduler)).withRetryBuilder(retryBuilder).build()
+        taskQueryService.find(queueId, READY, []) >> [readyTask1].iterator()
+        consumerFunction.execute(startedTask1) >> Reply.success()
+        taskQueryService.find(startedTask1.id) >> Optional.of(startedTask1)
+
+        when:
+        consumer.consume()
+
+        then:
+        1 * replyRetryScheduler.schedule(startedTask1.id, _) >> false
+        2 * taskStoreService.close(startedTask1, Optional.of(CloseResultType.success), empty()) >>> [{ throw new RuntimeException() }, startedTask1]
+        listener.receivedEvents == [new TaskConsumedEvent(readyTask1.id), new QueueConsumedEvent(queueId)]
+    }
+
+    def "should consume tasks concurrently with worker pool"()
+    {
+        given:
+        final workers = Executors.newFixedThreadPool(2)
+        final concurrentConsumer = consumerBuilder().withWorkers(workers, 2).build()
+        taskQueryService.find(queueId, READY, []) >> [readyTask1, readyTask2].iterator()
+        consumerFunction.execute(startedTask1) >> Reply.success()
+        consumerFunction.execute(startedTask2) >> Reply.success()
+        taskQueryService.find(startedTask1.id) >> Optional.of(startedTask1)
+        taskQueryService.find(startedTask2.id) >> Optional.of(startedTask2)
+
+        when:
+        concurrentConsumer.consume()
+
+        then:
+        1 * taskStoreService.close(startedTask1, Optional.of(CloseResultType.success), empty())
+        1 * taskStoreService.close(startedTask2, Optional.of(CloseResultType.success), empty())
+        listener.receivedEvents.toSet() == [new TaskConsumedEvent(readyTask1.id), new TaskConsumedEvent(readyTask2.id), new QueueConsumedEvent(queueId)].toSet()
+        listener.receivedEvents.last() == new QueueConsumedEvent(queueId)
+
+        cleanup:
+        workers.shutdownNow()
+    }
+
+    def "should stop feeding workers and rethrow when a concurrently consumed task cannot be closed"()
+    {
+        given:
+        final workers = Executors.newFixedThreadPool(2)
+        final retryBuilder = RetryerBuilder.<Void> newBuilder().retryIfException().withStopStrategy(stopAfterAttempt(1))
+        final concurrentConsumer = consumerBuilder().withWorkers(workers, 2).withRetryBuilder(retryBuilder).build()
+        taskQueryService.find(queueId, READY, []) >> [readyTask1].iterator()
+        consumerFunction.execute(startedTask1) >> Reply.success()
+        taskQueryService.find(startedTask1.id) >> Optional.of(startedTask1)
+        taskStoreService.close(startedTask1, Optional.of(CloseResultType.success), empty()) >> { throw new RuntimeException() }
+
+        when:
+        concurrentConsumer.consume()
+
+        then:
+        thrown(RuntimeException)
+        listener.receivedEvents == []
+
+        cleanup:
+        workers.shutdownNow()
+    }
+
+    def "should wait for tasks in flight before rethrowing when the next task cannot be found"()
+    {
+        given:
+        final workers = Executors.newFixedThreadPool(2)
+        final concurrentConsumer = consumerBuilder().withWorkers(workers, 2).build()
+        final executed = new AtomicBoolean()
+        final tasks = [readyTask1].iterator()
+        final failingTasks = [hasNext: { tasks.hasNext() ? true : { throw new IllegalStateException("page unavailable") }() },
+                              next: { tasks.next() }] as Iterator
+        taskQueryService.find(queueId, READY, []) >> failingTasks
+        consumerFunction.execute(startedTask1) >> { Thread.sleep(100); executed.set(true); Reply.success() }
+        taskQueryService.find(startedTask1.id) >> Optional.of(startedTask1)
+
+        when:
+        concurrentConsumer.consume()
+
+        then:
+        thrown(IllegalStateException)
+        executed.get()
+
+        cleanup:
+        workers.shutdownNow()
+    }
+
     def "should not notify anything when no listeners configured"()
     {
         given:
@@ -218,6 +367,86 @@ class ConsumerTest extends Specification {
         listener2.receivedEvents == [new TaskConsumedEvent(readyTask1.id), new QueueConsumedEvent(queueId)]
     }
 
+    def "should record metrics of consumed tasks for queue"()
+    {
+        given:
+        final metricRegistry = new MetricRegistry()
+        final consumer = consumerBuilder().withMetrics(metricRegistry).build()
+        taskQueryService.find(queueId, READY, []) >> [readyTask1, readyTask2].iterator()
+        consumerFunction.execute(startedTask1) >> Reply.success()
+        consumerFunction.execute(startedTask2) >> Reply.fail(failureReason)
+
+        when:
+        consumer.consume()
+
+        then:
+        metricRegistry.timer("penfold.consumer.q1.execute").count == 2
+        metricRegistry.timer("penfold.consumer.q1.reply").count == 2
+        metricRegistry.histogram("penfold.consumer.q1.reply-attempts").snapshot.values == [1, 1] as long[]
+        metricRegistry.meter("penfold.consumer.q1.successes").count == 1
+        metricRegistry.meter("penfold.consumer.q1.failures").count == 1
+        metricRegistry.meter("penfold.consumer.q1.retries").count == 0
+        metricRegistry.meter("penfold.consumer.q1.conflicts").count == 0
+    }
+
+    def "should record conflict when task taken by another consumer"()
+    {
+        given:
+        final metricRegistry = new MetricRegistry()
+        final taskStoreService = Stub(TaskStoreService)
+        final consumer = new Consumer.Builder(queueId, consumerFunction, Optional.of(retryDelay), taskQueryService, taskStoreService, dateTimeSource, notifier) //
+                .withMetrics(metricRegistry) //
+                .build()
+        taskQueryService.find(queueId, READY, []) >> [readyTask1].iterator()
+        taskStoreService.start(readyTask1) >> { throw new ConflictException("") }
+
+        when:
+        consumer.consume()
+
+        then:
+        metricRegistry.meter("penfold.consumer.q1.conflicts").count == 1
+        metricRegistry.meter("penfold.consumer.q1.claims").count == 1
+        metricRegistry.timer("penfold.consumer.q1.execute").count == 0
+        metricRegistry.gauges.containsKey("penfold.consumer.q1.conflict-ratio")
+    }
+
+    def "should share conflict ratio between consumers of same queue recording in same registry"()
+    {
+        given:
+        final metricRegistry = new MetricRegistry()
+        final consumers = (1..2).collect {
+            consumerBuilder().withMetrics(metricRegistry).build()
+        }
+
+        expect:
+        consumers.size() == 2
+        metricRegistry.gauges.keySet().findAll { it.endsWith("conflict-ratio") } == ["penfold.consumer.q1.conflict-ratio"] as Set
+    }
+
+    def "should attempt tasks in claim order and report whether each conflicted"()
+    {
+        given:
+        final claimStrategy = Mock(ClaimStrategy)
+        final consumer = consumerBuilder().withClaimStrategy(claimStrategy).build()
+        final readyTasks = [readyTask1, readyTask2].iterator()
+        taskQueryService.find(queueId, READY, []) >> readyTasks
+        consumerFunction.execute(startedTask1) >> Reply.success()
+
+        when:
+        consumer.consume()
+
+        then:
+        1 * claimStrategy.claimOrder(readyTasks) >> [readyTask2, readyTask1].iterator()
+        1 * taskStoreService.start(readyTask2) >> { throw new ConflictException("") }
+        1 * claimStrategy.claimed(readyTask2, true)
+        1 * claimStrategy.claimed(readyTask1, false)
+    }
+
+    private Consumer.Builder consumerBuilder()
+    {
+        new Consumer.Builder(queueId, consumerFunction, Optional.of(retryDelay), taskQueryService, taskStoreService, dateTimeSource, notifier)
+    }
+
     private class EventListenerStub implements EventListener
     {
         final List<Event> receivedEvents = new ArrayList<>();
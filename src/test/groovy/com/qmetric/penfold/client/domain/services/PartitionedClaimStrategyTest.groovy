@@ -0,0 +1,100 @@
+package com.qmetric.penfold.client.domain.services
+
+import com.qmetric.penfold.client.app.support.LocalDateTimeSource
+import com.qmetric.penfold.client.domain.model.Payload
+import com.qmetric.penfold.client.domain.model.QueueId
+import com.qmetric.penfold.client.domain.model.Task
+import com.qmetric.penfold.client.domain.model.TaskId
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.LocalDateTime
+
+import static com.qmetric.penfold.client.domain.model.TaskStatus.READY
+
+class PartitionedClaimStrategyTest extends Specification {
+
+    static final now = LocalDateTime.of(2014, 2, 14, 12, 0, 0)
+
+    static final stealAfter = Duration.ofMinutes(5)
+
+    final dateTimeSource = Stub(LocalDateTimeSource)
+
+    final groupOfThree = (0..2).collect { new PartitionedClaimStrategy(it, 3, stealAfter, dateTimeSource) }
+
+    def setup()
+    {
+        dateTimeSource.now() >> now
+    }
+
+    def "should give each task to exactly one member"()
+    {
+        given:
+        final tasks = (1..300).collect { task("t${it}", now) }
+
+        when:
+        final claimed = groupOfThree.collect { it.claimOrder(tasks.iterator()).collect() }
+
+        then:
+        claimed.flatten() as Set == tasks as Set
+        claimed.sum { it.size() } == tasks.size()
+        claimed.every { it.size() > 70 }
+    }
+
+    def "should attempt own tasks before tasks of other members ready for longer than steal threshold"()
+    {
+        given:
+        final strategy = groupOfThree[0]
+        final ids = (1..100).collect { "t${it}".toString() }
+        final ownTask = task(ids.find { strategy.isOwned(new TaskId(it)) }, now)
+        final othersTasks = ids.findAll { !strategy.isOwned(new TaskId(it)) }
+        final stalledTask = task(othersTasks[0], now.minus(stealAfter).minusSeconds(1))
+        final recentTask = task(othersTasks[1], now.minusSeconds(1))
+
+        expect:
+        strategy.claimOrder([stalledTask, recentTask, ownTask].iterator()).collect() == [ownTask, stalledTask]
+    }
+
+    def "should attempt tasks of other members before ready tasks run out once too many are held to steal"()
+    {
+        given:
+        final strategy = groupOfThree[0]
+        final othersTasks = (1..1000).collect { "t${it}".toString() }.findAll { !strategy.isOwned(new TaskId(it)) }
+        final stalledTasks = othersTasks.collect { task(it, now.minus(stealAfter).minusSeconds(1)) }
+        final readyTasks = stalledTasks.iterator()
+
+        when:
+        final claimOrder = strategy.claimOrder(readyTasks)
+        final first = claimOrder.next()
+
+        then:
+        first == stalledTasks[0]
+        readyTasks.hasNext()
+        claimOrder.collect() == stalledTasks.tail()
+    }
+
+    def "should move only the tasks of a member leaving the group"()
+    {
+        given:
+        final members = ["a", "b", "c", "d"]
+        final ids = (1..200).collect { new TaskId("t${it}") }
+        final owner = { group, id -> group.find { new PartitionedClaimStrategy(it, group, stealAfter, dateTimeSource).isOwned(id) } }
+
+        expect:
+        ids.findAll { owner(members, it) != "d" }.every { owner(members, it) == owner(members - "d", it) }
+    }
+
+    def "should not accept member outside group"()
+    {
+        when:
+        new PartitionedClaimStrategy("e", ["a", "b"], stealAfter, dateTimeSource)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    private static Task task(final String id, final LocalDateTime triggerDate)
+    {
+        new Task(new TaskId(id), 1, new QueueId("q1"), READY, triggerDate, triggerDate, 0, new Payload([:]))
+    }
+}
@@ -1,11 +1,14 @@
 package com.qmetric.penfold.client.domain.services
 
+import com.codahale.metrics.MetricRegistry
 import com.google.common.collect.ImmutableList
 import com.qmetric.penfold.client.app.TaskQueryServiceImpl
 import com.qmetric.penfold.client.domain.model.*
 import spock.lang.Specification
 
 import java.time.LocalDateTime
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
 
 import static com.qmetric.penfold.client.domain.model.TaskStatus.READY
 import static java.util.Optional.empty
@@ -38,6 +41,60 @@ class QueueIteratorTest extends Specification {
         ImmutableList.copyOf(readyTaskIterator) == [task1, task2, task3, task4, task5, task6]
     }
 
+    def "should record size of each page loaded"()
+    {
+        given:
+        final metricRegistry = new MetricRegistry()
+        setupTasksPage(empty(), [createTask("1"), createTask("2")], Optional.of(new PageReference("2")))
+        setupTasksPage(Optional.of(new PageReference("2")), [createTask("3")], empty())
+
+        when:
+        ImmutableList.copyOf(new QueueIterator(queue, status, [], taskQueryService, 0, { it.run() } as Executor, metricRegistry))
+
+        then:
+        metricRegistry.histogram("penfold.query.page-size").snapshot.values == [1, 2] as long[]
+        metricRegistry.timer("penfold.query.page-wait").count == 2
+    }
+
+    def "should paginate through all pages of stored tasks when prefetching pages"()
+    {
+        given:
+        final prefetchExecutor = Executors.newFixedThreadPool(2)
+        final task1 = createTask("1")
+        final task2 = createTask("2")
+        final task3 = createTask("3")
+        final task4 = createTask("4")
+        setupTasksPage(empty(), [task1, task2], Optional.of(new PageReference("2")))
+        setupTasksPage(Optional.of(new PageReference("2")), [task3], Optional.of(new PageReference("3")))
+        setupTasksPage(Optional.of(new PageReference("3")), [task4], empty())
+
+        when:
+        final readyTaskIterator = new QueueIterator(queue, status, [], taskQueryService, 2, prefetchExecutor)
+
+        then:
+        ImmutableList.copyOf(readyTaskIterator) == [task1, task2, task3, task4]
+
+        cleanup:
+        prefetchExecutor.shutdownNow()
+    }
+
+    def "should load following pages ahead of iteration up to prefetch depth"()
+    {
+        given:
+        final task1 = createTask("1")
+        final readyTaskIterator = new QueueIterator(queue, status, [], taskQueryService, 2, { it.run() } as Executor)
+
+        when:
+        final firstTask = readyTaskIterator.next()
+
+        then:
+        firstTask == task1
+        1 * taskQueryService.retrieve(queue, status, [], empty()) >> new TasksPage([task1], empty(), Optional.of(new PageReference("2")))
+        1 * taskQueryService.retrieve(queue, status, [], Optional.of(new PageReference("2"))) >> new TasksPage([createTask("2")], empty(), Optional.of(new PageReference("3")))
+        1 * taskQueryService.retrieve(queue, status, [], Optional.of(new PageReference("3"))) >> new TasksPage([createTask("3")], empty(), Optional.of(new PageReference("4")))
+        0 * taskQueryService.retrieve(queue, status, [], Optional.of(new PageReference("4")))
+    }
+
     private static def Task createTask(final String id)
     {
         return new Task(new TaskId(id), 1, queue, status, LocalDateTime.of(2014, 2, 25, 12, 0, 0), LocalDateTime.of(2014, 2, 25, 12, 0, 0), 1, new Payload([type: "type1"]))
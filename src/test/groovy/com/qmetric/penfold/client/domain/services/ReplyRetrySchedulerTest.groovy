@@ -0,0 +1,137 @@
+package com.qmetric.penfold.client.domain.services
+
+import com.codahale.metrics.MetricRegistry
+import com.qmetric.penfold.client.app.support.ExecutorFactory
+import com.qmetric.penfold.client.domain.model.QueueId
+import com.qmetric.penfold.client.domain.model.TaskId
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ReplyRetrySchedulerTest extends Specification {
+
+    static final queue = new QueueId("q1")
+
+    static final taskId = new TaskId("t1")
+
+    final executor = ExecutorFactory.createScheduler("test-reply-retries", 1)
+
+    final metricRegistry = new MetricRegistry()
+
+    final scheduler = new ReplyRetryScheduler(queue, executor, 2, Duration.ofMillis(1), Duration.ofMillis(5), 10, new Random(), metricRegistry)
+
+    def cleanup()
+    {
+        executor.shutdownNow()
+    }
+
+    def "should retry reply in background until applied"()
+    {
+        given:
+        final attempts = new AtomicInteger()
+        final applied = new CountDownLatch(1)
+        final reply = {
+            if (attempts.incrementAndGet() < 3)
+            {
+                throw new RuntimeException("unavailable")
+            }
+            applied.countDown()
+            null
+        } as Callable
+
+        when:
+        final scheduled = scheduler.schedule(taskId, reply)
+
+        then:
+        scheduled
+        applied.await(1, TimeUnit.SECONDS)
+        attempts.get() == 3
+        awaitBacklog(0)
+    }
+
+    def "should give up on reply after max attempts"()
+    {
+        given:
+        final attempts = new AtomicInteger()
+
+        when:
+        scheduler.schedule(taskId, { attempts.incrementAndGet(); throw new RuntimeException("unavailable") } as Callable)
+
+        then:
+        awaitBacklog(0)
+        attempts.get() == 10
+    }
+
+    def "should not take more replies than max pending"()
+    {
+        given:
+        final neverApplied = { throw new RuntimeException("unavailable") } as Callable
+        final slowMetricRegistry = new MetricRegistry()
+        final slowScheduler = new ReplyRetryScheduler(queue, executor, 2, Duration.ofMinutes(1), Duration.ofMinutes(1), slowMetricRegistry)
+
+        expect:
+        slowScheduler.schedule(taskId, neverApplied)
+        slowScheduler.schedule(new TaskId("t2"), neverApplied)
+        !slowScheduler.schedule(new TaskId("t3"), neverApplied)
+        slowMetricRegistry.gauges["penfold.consumer.q1.reply-retry-backlog"].value == 2
+    }
+
+    def "should report backlog of every scheduler of same queue recording in same registry"()
+    {
+        given:
+        final neverApplied = { throw new RuntimeException("unavailable") } as Callable
+        final sharedMetricRegistry = new MetricRegistry()
+        final schedulers = (1..2).collect {
+            new ReplyRetryScheduler(queue, executor, 2, Duration.ofMinutes(1), Duration.ofMinutes(1), sharedMetricRegistry)
+        }
+
+        when:
+        schedulers[0].schedule(taskId, neverApplied)
+        schedulers[1].schedule(new TaskId("t2"), neverApplied)
+        schedulers[1].schedule(new TaskId("t3"), neverApplied)
+
+        then:
+        sharedMetricRegistry.gauges["penfold.consumer.q1.reply-retry-backlog"].value == 3
+    }
+
+    def "should attempt pending replies once more on flush"()
+    {
+        given:
+        final attempts = new AtomicInteger()
+        final slowScheduler = new ReplyRetryScheduler(queue, executor, 2, Duration.ofMinutes(1), Duration.ofMinutes(1), new MetricRegistry())
+        slowScheduler.schedule(taskId, { attempts.incrementAndGet(); null } as Callable)
+
+        when:
+        slowScheduler.flush()
+
+        then:
+        attempts.get() == 1
+        slowScheduler.backlog() == 0
+        executor.isTerminated()
+    }
+
+    def "should back off exponentially up to max backoff less up to half at random"()
+    {
+        given:
+        final random = Stub(Random)
+        random.nextDouble() >>> [0.0, 0.0, 0.0, 0.0, 0.999]
+        final backoffScheduler = new ReplyRetryScheduler(queue, executor, 2, Duration.ofSeconds(1), Duration.ofSeconds(10), 10, random, new MetricRegistry())
+
+        expect:
+        (1..5).collect { backoffScheduler.backoff(it) } == [1000, 2000, 4000, 8000, 5005]
+    }
+
+    private boolean awaitBacklog(final int expected)
+    {
+        final deadline = System.currentTimeMillis() + 1000
+        while (scheduler.backlog() != expected && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(5)
+        }
+        scheduler.backlog() == expected
+    }
+}
@@ -0,0 +1,71 @@
+package com.qmetric.penfold.client.domain.services
+
+import com.qmetric.penfold.client.domain.model.Payload
+import com.qmetric.penfold.client.domain.model.QueueId
+import com.qmetric.penfold.client.domain.model.Task
+import com.qmetric.penfold.client.domain.model.TaskId
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+import static com.qmetric.penfold.client.domain.model.TaskStatus.READY
+
+class ShuffledClaimStrategyTest extends Specification {
+
+    static final tasks = (1..50).collect { new Task(new TaskId("t${it}"), 1, new QueueId("q1"), READY, LocalDateTime.now(), LocalDateTime.now(), 0, new Payload([:])) }
+
+    def "should attempt every task once"()
+    {
+        given:
+        final strategy = new ShuffledClaimStrategy(ClaimStrategy.PAGE_ORDER, 5, 20)
+
+        when:
+        final claimed = strategy.claimOrder(tasks.iterator()).collect()
+
+        then:
+        claimed.size() == tasks.size()
+        claimed as Set == tasks as Set
+        claimed != tasks
+    }
+
+    def "should only shuffle tasks within window"()
+    {
+        given:
+        final strategy = new ShuffledClaimStrategy(ClaimStrategy.PAGE_ORDER, 3, 20)
+
+        when:
+        final claimed = strategy.claimOrder(tasks.iterator()).collect()
+
+        then:
+        (0..<claimed.size()).every { position -> tasks.indexOf(claimed[position]) <= position + 2 }
+    }
+
+    def "should keep order of queue with window of one task"()
+    {
+        given:
+        final strategy = new ShuffledClaimStrategy(ClaimStrategy.PAGE_ORDER, 1, 1)
+
+        expect:
+        strategy.claimOrder(tasks.iterator()).collect() == tasks
+    }
+
+    def "should widen window as conflicts rise and narrow it as they subside"()
+    {
+        given:
+        final claimStrategy = Mock(ClaimStrategy)
+        final strategy = new ShuffledClaimStrategy(claimStrategy, 2, 32)
+
+        when:
+        100.times { strategy.claimed(tasks[0], true) }
+
+        then:
+        strategy.currentWindow() > 30
+        100 * claimStrategy.claimed(tasks[0], true)
+
+        when:
+        100.times { strategy.claimed(tasks[0], false) }
+
+        then:
+        strategy.currentWindow() < 4
+    }
+}
@@ -6,6 +6,7 @@ import com.qmetric.penfold.client.domain.model.*
 import spock.lang.Specification
 
 import java.time.LocalDateTime
+import java.util.concurrent.Executors
 
 import static com.qmetric.penfold.client.domain.model.TaskStatus.READY
 import static java.util.Optional.empty
@@ -34,6 +35,27 @@ class TaskIteratorTest extends Specification {
         ImmutableList.copyOf(readyTaskIterator) == [task1, task2, task3, task4, task5, task6]
     }
 
+    def "should paginate through all pages of stored tasks when prefetching pages"()
+    {
+        given:
+        final prefetchExecutor = Executors.newSingleThreadExecutor()
+        final task1 = createTask("1")
+        final task2 = createTask("2")
+        final task3 = createTask("3")
+        setupTasksPage(empty(), [task1], Optional.of(new PageReference("2")))
+        setupTasksPage(Optional.of(new PageReference("2")), [task2], Optional.of(new PageReference("3")))
+        setupTasksPage(Optional.of(new PageReference("3")), [task3], empty())
+
+        when:
+        final taskIterator = new TaskIterator([], taskQueryService, 4, prefetchExecutor)
+
+        then:
+        ImmutableList.copyOf(taskIterator) == [task1, task2, task3]
+
+        cleanup:
+        prefetchExecutor.shutdownNow()
+    }
+
     private static def Task createTask(final String id)
     {
         return new Task(new TaskId(id), 1, new QueueId("q1"), READY, LocalDateTime.of(2014, 2, 25, 12, 0, 0), LocalDateTime.of(2014, 2, 25, 12, 0, 0), 1, new Payload([type: "type1"]))
@@ -0,0 +1,78 @@
+package com.qmetric.penfold.client.domain.services
+
+import com.qmetric.penfold.client.domain.exceptions.ConflictException
+import com.qmetric.penfold.client.domain.model.*
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+import static java.util.Optional.empty
+
+class TaskStoreServiceTest extends Specification {
+
+    static final queueId = new QueueId("q1")
+
+    static final created = LocalDateTime.of(2014, 3, 15, 10, 35, 5)
+
+    def "should create each task in turn and carry on past failures"()
+    {
+        given:
+        final failure = new IllegalStateException("rejected")
+        final store = new CreateOnlyTaskStoreService(failure)
+        final tasks = (1..3).collect { new NewTask(queueId, new Payload([index: it]), empty()) }
+
+        when:
+        final result = store.createAll(tasks)
+
+        then:
+        result.created*.payload == [new Payload([index: 1]), new Payload([index: 3])]
+        result.failures == [new CreateFailure(1, tasks[1], failure)]
+    }
+
+    static class CreateOnlyTaskStoreService implements TaskStoreService
+    {
+        final RuntimeException failure
+
+        int createdCount
+
+        CreateOnlyTaskStoreService(final RuntimeException failure)
+        {
+            this.failure = failure
+        }
+
+        @Override Task create(final NewTask task)
+        {
+            if (task.payload == new Payload([index: 2]))
+            {
+                throw failure
+            }
+
+            new Task(new TaskId("${++createdCount}"), 1, task.queue, TaskStatus.READY, created, created, 0, task.payload)
+        }
+
+        @Override Task start(final Task task) throws ConflictException
+        {
+            throw new UnsupportedOperationException()
+        }
+
+        @Override Task requeue(final Task task, final Optional<String> reason) throws ConflictException
+        {
+            throw new UnsupportedOperationException()
+        }
+
+        @Override Task reschedule(final Task task, final LocalDateTime triggerDate, final Optional<String> reason) throws ConflictException
+        {
+            throw new UnsupportedOperationException()
+        }
+
+        @Override Task cancel(final Task task, final Optional<String> reason) throws ConflictException
+        {
+            throw new UnsupportedOperationException()
+        }
+
+        @Override Task close(final Task task, final Optional<CloseResultType> resultType, final Optional<String> reason) throws ConflictException
+        {
+            throw new UnsupportedOperationException()
+        }
+    }
+}
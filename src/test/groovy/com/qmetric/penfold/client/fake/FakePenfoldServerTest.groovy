@@ -0,0 +1,155 @@
+package com.qmetric.penfold.client.fake
+
+import com.qmetric.penfold.client.app.TaskConsumerBuilder
+import com.qmetric.penfold.client.app.TaskQueryServiceBuilder
+import com.qmetric.penfold.client.app.TaskStoreServiceBuilder
+import com.qmetric.penfold.client.app.commands.filter.EqualsFilter
+import com.qmetric.penfold.client.domain.exceptions.ConflictException
+import com.qmetric.penfold.client.domain.model.*
+import com.qmetric.penfold.client.domain.services.ConsumerFunction
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.LocalDateTime
+
+import static java.util.Optional.empty
+
+class FakePenfoldServerTest extends Specification {
+
+    static final queue = new QueueId("q1")
+
+    final server = new FakePenfoldServerBuilder().withPageSize(2).start()
+
+    final store = new TaskStoreServiceBuilder().forServer(server.url()).build()
+
+    final query = new TaskQueryServiceBuilder().forServer(server.url()).build()
+
+    def cleanup()
+    {
+        server.close()
+    }
+
+    def "should create, start and close task"()
+    {
+        given:
+        final created = store.create(new NewTask(queue, new Payload([type: "type1"]), empty()))
+
+        when:
+        final started = store.start(created)
+        final closed = store.close(started, Optional.of(CloseResultType.success), empty())
+
+        then:
+        created.status == TaskStatus.READY
+        started.status == TaskStatus.STARTED
+        started.attempts == 1
+        closed.status == TaskStatus.CLOSED
+        query.find(created.id).get().version == closed.version
+    }
+
+    def "should reject command against stale version of task"()
+    {
+        given:
+        final created = store.create(new NewTask(queue, new Payload([type: "type1"]), empty()))
+        store.start(created)
+
+        when:
+        store.start(created)
+
+        then:
+        thrown(ConflictException)
+        server.metrics().meter("penfold.fake-server.conflicts").count == 1
+    }
+
+    def "should page through tasks of queue by status"()
+    {
+        given:
+        (1..5).each { store.create(new NewTask(queue, new Payload([index: it]), empty())) }
+        store.create(new NewTask(queue, new Payload([index: 6]), Optional.of(LocalDateTime.now().plusDays(1))))
+
+        expect:
+        query.find(queue, TaskStatus.READY, []).collect { it.payload.getAsMap().index } == [1, 2, 3, 4, 5]
+        query.find(queue, TaskStatus.WAITING, []).collect { it.payload.getAsMap().index } == [6]
+        query.find([EqualsFilter.of("index", "3")]).collect { it.payload.getAsMap().index } == [3]
+    }
+
+    def "should fail requests at configured error rate"()
+    {
+        given:
+        final failingServer = new FakePenfoldServerBuilder().withErrorRate(1).start()
+
+        when:
+        new TaskStoreServiceBuilder().forServer(failingServer.url()).build().create(new NewTask(queue, new Payload([:]), empty()))
+
+        then:
+        thrown(IllegalStateException)
+
+        cleanup:
+        failingServer.close()
+    }
+
+    def "should answer polls of unchanged page with not modified"()
+    {
+        given:
+        store.create(new NewTask(queue, new Payload([type: "type1"]), empty()))
+        final firstPoll = query.find(queue, TaskStatus.READY, []).toList()
+
+        when:
+        final secondPoll = query.find(queue, TaskStatus.READY, []).toList()
+
+        then:
+        secondPoll == firstPoll
+        server.metrics().meter("penfold.fake-server.not-modified").count == 1
+    }
+
+    def "should serve store and query through in-memory transport"()
+    {
+        given:
+        final inMemoryServer = new FakePenfoldServerBuilder().withPageSize(2).startInMemory()
+        final inMemoryStore = new TaskStoreServiceBuilder().forServer(inMemoryServer.url()).withTransport(inMemoryServer.inMemoryTransport()).build()
+        final inMemoryQuery = new TaskQueryServiceBuilder().forServer(inMemoryServer.url()).withTransport(inMemoryServer.inMemoryTransport()).build()
+
+        when:
+        (1..3).each { inMemoryStore.create(new NewTask(queue, new Payload([index: it]), empty())) }
+        inMemoryStore.start(inMemoryQuery.find(queue, TaskStatus.READY, []).next())
+
+        then:
+        inMemoryQuery.find(queue, TaskStatus.READY, []).collect { it.payload.getAsMap().index } == [2, 3]
+        inMemoryServer.count(queue.value, "started") == 1
+
+        cleanup:
+        inMemoryServer.close()
+    }
+
+    def "should serve consumer end to end"()
+    {
+        given:
+        store.createAll((1..5).collect { new NewTask(queue, new Payload([index: it]), empty()) })
+        final consumer = new TaskConsumerBuilder()
+                .fromServer(server.url())
+                .fromQueue(queue.value)
+                .withPollingFrequency(Duration.ofMillis(100))
+                .withAdaptivePolling(Duration.ofMillis(10))
+                .withConcurrency(2)
+                .consumeWith({ task -> Reply.success() } as ConsumerFunction)
+                .build()
+
+        when:
+        consumer.start()
+
+        then:
+        waitUntil { server.count(queue.value, "closed") == 5 }
+
+        cleanup:
+        consumer.stop()
+    }
+
+    private static boolean waitUntil(final Closure<Boolean> condition)
+    {
+        final deadline = System.currentTimeMillis() + 5000
+        while (!condition() && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10)
+        }
+        return condition()
+    }
+}
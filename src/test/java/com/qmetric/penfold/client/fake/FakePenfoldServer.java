@@ -0,0 +1,504 @@
+package com.qmetric.penfold.client.fake;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.qmetric.penfold.client.app.support.TaskDateTimeFormatter;
+import com.qmetric.penfold.client.app.transport.BufferedTransportResponse;
+import com.qmetric.penfold.client.app.transport.RequestBody;
+import com.qmetric.penfold.client.app.transport.Transport;
+import com.qmetric.penfold.client.app.transport.TransportRequest;
+import com.qmetric.penfold.client.app.transport.TransportResponse;
+import com.qmetric.penfold.client.domain.model.CommandType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.lang.String.format;
+
+/**
+ * In-process stand-in for a penfold server, serving the HAL endpoints used by the client with configurable latency, error rate and page size.
+ * Pages are cursor based, so tasks changing status do not shift later pages. Per operation timings and conflicts are recorded in its metric
+ * registry. Served over http, or through its in-memory transport without any sockets.
+ */
+public class FakePenfoldServer implements Closeable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(FakePenfoldServer.class);
+
+    private static final String HAL_JSON = "application/hal+json";
+
+    private static final String IN_MEMORY_URL = "http://penfold.in-memory";
+
+    private static final byte[] NO_CONTENT = new byte[0];
+
+    private static final Pattern TASK_PATH = Pattern.compile("/tasks/([^/]+)");
+
+    private static final Pattern COMMAND_PATH = Pattern.compile("/tasks/([^/]+)/(\\d+)");
+
+    private static final Pattern QUEUE_PATH = Pattern.compile("/queues/([^/]+)/([^/]+)");
+
+    private static final Pattern COMMAND_CONTENT_TYPE = Pattern.compile(".*domain-command=(\\w+).*");
+
+    private static final TypeReference<Map<String, Object>> JSON_OBJECT = new TypeReference<Map<String, Object>>() {};
+
+    private static final TypeReference<List<Map<String, String>>> FILTERS = new TypeReference<List<Map<String, String>>>() {};
+
+    static
+    {
+        // headers and body are written separately, which without this stalls every response on delayed acks
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+        {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final Optional<HttpServer> server;
+
+    private final Optional<ExecutorService> requestExecutor;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final int pageSize;
+
+    private final Duration latency;
+
+    private final double errorRate;
+
+    private final MetricRegistry metricRegistry;
+
+    private final Meter conflicts;
+
+    private final Meter injectedErrors;
+
+    private final Meter notModified;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ConcurrentMap<String, StoredTask> tasks = new ConcurrentHashMap<>();
+
+    private final ConcurrentNavigableMap<Long, StoredTask> tasksInCreationOrder = new ConcurrentSkipListMap<>();
+
+    FakePenfoldServer(final Optional<Integer> port, final int pageSize, final Duration latency, final double errorRate, final MetricRegistry metricRegistry)
+            throws IOException
+    {
+        this.pageSize = pageSize;
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.metricRegistry = metricRegistry;
+        this.conflicts = metricRegistry.meter(name("penfold", "fake-server", "conflicts"));
+        this.injectedErrors = metricRegistry.meter(name("penfold", "fake-server", "injected-errors"));
+        this.notModified = metricRegistry.meter(name("penfold", "fake-server", "not-modified"));
+
+        if (port.isPresent())
+        {
+            final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("penfold-fake-server-%d").setDaemon(true).build());
+
+            final HttpServer httpServer = HttpServer.create(new InetSocketAddress("localhost", port.get()), 0);
+            httpServer.createContext("/", this::serve);
+            httpServer.setExecutor(executor);
+            httpServer.start();
+
+            server = Optional.of(httpServer);
+            requestExecutor = Optional.of(executor);
+        }
+        else
+        {
+            server = Optional.empty();
+            requestExecutor = Optional.empty();
+        }
+    }
+
+    public String url()
+    {
+        return server.isPresent() ? format("http://localhost:%s", server.get().getAddress().getPort()) : IN_MEMORY_URL;
+    }
+
+    /**
+     * Transport routing requests straight to this server on the calling thread, without any sockets. Request bodies are still serialized and
+     * responses still decoded by the client.
+     *
+     * @return In-memory transport
+     */
+    public Transport inMemoryTransport()
+    {
+        return this::handle;
+    }
+
+    public MetricRegistry metrics()
+    {
+        return metricRegistry;
+    }
+
+    public long count(final String queue, final String status)
+    {
+        return tasks.values().stream().filter(task -> task.queue.equals(queue) && task.status().equals(status)).count();
+    }
+
+    @Override public void close()
+    {
+        if (server.isPresent())
+        {
+            server.get().stop(0);
+            requestExecutor.get().shutdownNow();
+        }
+    }
+
+    private void serve(final HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            final String method = exchange.getRequestMethod();
+
+            if ("GET".equals(method) || "POST".equals(method))
+            {
+                write(handle(requestOf(exchange)), exchange);
+            }
+            else
+            {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    private TransportResponse handle(final TransportRequest request)
+    {
+        try
+        {
+            simulateLatency();
+
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate)
+            {
+                injectedErrors.mark();
+                return respond(500, Optional.empty());
+            }
+            else
+            {
+                return route(request);
+            }
+        }
+        catch (final Exception e)
+        {
+            LOG.error(format("failed to handle %s", request), e);
+            return new BufferedTransportResponse(500, ImmutableMap.of(), NO_CONTENT);
+        }
+    }
+
+    private TransportResponse route(final TransportRequest request) throws IOException
+    {
+        final String method = request.method;
+        final String path = request.uri.getPath();
+        final Map<String, String> query = queryParams(request.uri.getRawQuery());
+
+        final Matcher command = COMMAND_PATH.matcher(path);
+        final Matcher task = TASK_PATH.matcher(path);
+        final Matcher queue = QUEUE_PATH.matcher(path);
+
+        if ("POST".equals(method) && "/tasks".equals(path))
+        {
+            return timed("create", () -> create(request));
+        }
+        else if ("GET".equals(method) && "/tasks".equals(path))
+        {
+            return timed("retrieve-page", () -> page(request, storedTask -> true, query));
+        }
+        else if ("GET".equals(method) && task.matches())
+        {
+            return timed("retrieve-task", () -> retrieve(task.group(1)));
+        }
+        else if ("POST".equals(method) && command.matches())
+        {
+            final CommandType commandType = commandTypeOf(request);
+            return timed(commandType.name(), () -> command(request, command.group(1), Integer.parseInt(command.group(2)), commandType));
+        }
+        else if ("GET".equals(method) && queue.matches())
+        {
+            final String queueId = queue.group(1);
+            final String status = queue.group(2);
+            return timed("retrieve-page", () -> page(request, storedTask -> storedTask.queue.equals(queueId) && storedTask.status().equals(status), query));
+        }
+        else
+        {
+            return respond(404, Optional.empty());
+        }
+    }
+
+    private TransportResponse create(final TransportRequest request) throws IOException
+    {
+        final Map<String, Object> body = readBody(request);
+
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> payload = (Map<String, Object>) body.get("payload");
+        final Optional<LocalDateTime> triggerDate = Optional.ofNullable((String) body.get("triggerDate")).map(TaskDateTimeFormatter::parse);
+
+        final long position = sequence.incrementAndGet();
+        final StoredTask task = new StoredTask(UUID.randomUUID().toString(), position, (String) body.get("queue"), payload, triggerDate);
+        tasks.put(task.id, task);
+        tasksInCreationOrder.put(position, task);
+
+        return respond(201, Optional.of(task.toResource(url())));
+    }
+
+    private TransportResponse retrieve(final String id) throws IOException
+    {
+        final StoredTask task = tasks.get(id);
+
+        return respond(task != null ? 200 : 404, Optional.ofNullable(task).map(stored -> stored.toResource(url())));
+    }
+
+    private TransportResponse command(final TransportRequest request, final String id, final int version, final CommandType commandType) throws IOException
+    {
+        final StoredTask task = tasks.get(id);
+
+        if (task == null)
+        {
+            return respond(404, Optional.empty());
+        }
+        else if (task.apply(version, commandType, readBody(request)))
+        {
+            return respond(200, Optional.of(task.toResource(url())));
+        }
+        else
+        {
+            conflicts.mark();
+            return respond(409, Optional.empty());
+        }
+    }
+
+    private TransportResponse page(final TransportRequest request, final Predicate<StoredTask> selection, final Map<String, String> query) throws IOException
+    {
+        final Predicate<StoredTask> filtered = selection.and(filtersFrom(query));
+        final long cursor = query.containsKey("page") ? Long.parseLong(query.get("page")) : 0;
+
+        final List<Map<String, Object>> pageOfTasks = new ArrayList<>();
+        long lastSequence = cursor;
+        boolean hasNextPage = false;
+
+        for (final StoredTask task : tasksInCreationOrder.tailMap(cursor, false).values())
+        {
+            if (filtered.test(task))
+            {
+                if (pageOfTasks.size() == pageSize)
+                {
+                    hasNextPage = true;
+                    break;
+                }
+
+                pageOfTasks.add(task.toResource(url()));
+                lastSequence = task.sequence;
+            }
+        }
+
+        final String self = url() + request.uri.getPath();
+
+        final Map<String, Object> links = new LinkedHashMap<>();
+        links.put("self", ImmutableMap.of("href", self));
+        if (hasNextPage)
+        {
+            links.put("next", ImmutableMap.of("href", format("%s?page=%s", self, lastSequence), "name", String.valueOf(lastSequence)));
+        }
+
+        final Map<String, Object> page = new LinkedHashMap<>();
+        page.put("_links", links);
+        page.put("_embedded", ImmutableMap.of("tasks", pageOfTasks));
+
+        // pages carry an entity tag of their content, answering requests for an unchanged page with not modified
+        final byte[] body = objectMapper.writeValueAsBytes(page);
+        final String entityTag = format("\"%s\"", Hashing.murmur3_128().hashBytes(body));
+
+        if (header(request, "If-None-Match").equals(Optional.of(entityTag)))
+        {
+            notModified.mark();
+            return new BufferedTransportResponse(304, ImmutableMap.of("ETag", entityTag), NO_CONTENT);
+        }
+
+        return new BufferedTransportResponse(200, ImmutableMap.of("Content-Type", HAL_JSON, "ETag", entityTag), body);
+    }
+
+    private Predicate<StoredTask> filtersFrom(final Map<String, String> query) throws IOException
+    {
+        if (!query.containsKey("q"))
+        {
+            return task -> true;
+        }
+
+        final List<Map<String, String>> filters = objectMapper.readValue(query.get("q"), FILTERS);
+
+        return task -> filters.stream().allMatch(filter -> {
+            final Object value = task.payloadValue(filter.get("key"));
+            return value != null && value.toString().equals(filter.get("value"));
+        });
+    }
+
+    private CommandType commandTypeOf(final TransportRequest request)
+    {
+        final Matcher contentType = COMMAND_CONTENT_TYPE.matcher(header(request, "Content-Type").orElse(""));
+
+        if (!contentType.matches())
+        {
+            throw new IllegalArgumentException("missing domain command");
+        }
+
+        return CommandType.valueOf(contentType.group(1));
+    }
+
+    private Optional<String> header(final TransportRequest request, final String name)
+    {
+        return request.headers.entrySet().stream().filter(header -> header.getKey().equalsIgnoreCase(name)).map(Map.Entry::getValue).findFirst();
+    }
+
+    private Map<String, Object> readBody(final TransportRequest request) throws IOException
+    {
+        if (!request.body.isPresent())
+        {
+            throw new IllegalArgumentException("missing body");
+        }
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        request.body.get().writeTo(body);
+
+        return objectMapper.readValue(body.toByteArray(), JSON_OBJECT);
+    }
+
+    private TransportResponse respond(final int status, final Optional<Object> resource) throws IOException
+    {
+        return resource.isPresent() ?
+                new BufferedTransportResponse(status, ImmutableMap.of("Content-Type", HAL_JSON), objectMapper.writeValueAsBytes(resource.get())) :
+                new BufferedTransportResponse(status, ImmutableMap.of(), NO_CONTENT);
+    }
+
+    private TransportRequest requestOf(final HttpExchange exchange) throws IOException
+    {
+        final Map<String, String> headers = new HashMap<>();
+        exchange.getRequestHeaders().forEach((header, values) -> headers.put(header, values.get(0)));
+
+        if ("POST".equals(exchange.getRequestMethod()))
+        {
+            try (final InputStream body = exchange.getRequestBody())
+            {
+                return TransportRequest.post(exchange.getRequestURI(), headers, RequestBody.of(ByteStreams.toByteArray(body)));
+            }
+        }
+
+        return TransportRequest.get(exchange.getRequestURI(), headers);
+    }
+
+    private void write(final TransportResponse response, final HttpExchange exchange) throws IOException
+    {
+        final byte[] body = response.bodyAsBytes();
+
+        for (final String header : new String[] {"Content-Type", "ETag"})
+        {
+            final Optional<String> value = response.header(header);
+            if (value.isPresent())
+            {
+                exchange.getResponseHeaders().set(header, value.get());
+            }
+        }
+
+        if (body.length > 0)
+        {
+            exchange.sendResponseHeaders(response.status(), body.length);
+
+            try (final OutputStream responseBody = exchange.getResponseBody())
+            {
+                responseBody.write(body);
+            }
+        }
+        else
+        {
+            exchange.sendResponseHeaders(response.status(), -1);
+        }
+    }
+
+    private TransportResponse timed(final String operation, final Operation handler) throws IOException
+    {
+        final Timer.Context timer = metricRegistry.timer(name("penfold", "fake-server", operation)).time();
+        try
+        {
+            return handler.run();
+        }
+        finally
+        {
+            timer.stop();
+        }
+    }
+
+    private void simulateLatency() throws InterruptedException
+    {
+        if (!latency.isZero())
+        {
+            Thread.sleep(latency.toMillis());
+        }
+    }
+
+    private static Map<String, String> queryParams(final String rawQuery) throws UnsupportedEncodingException
+    {
+        if (rawQuery == null || rawQuery.isEmpty())
+        {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, String> params = new HashMap<>();
+
+        for (final String param : Splitter.on('&').omitEmptyStrings().split(rawQuery))
+        {
+            final int separator = param.indexOf('=');
+            if (separator > 0)
+            {
+                params.put(URLDecoder.decode(param.substring(0, separator), Charsets.UTF_8.name()),
+                           URLDecoder.decode(param.substring(separator + 1), Charsets.UTF_8.name()));
+            }
+        }
+
+        return params;
+    }
+
+    private interface Operation
+    {
+        TransportResponse run() throws IOException;
+    }
+}
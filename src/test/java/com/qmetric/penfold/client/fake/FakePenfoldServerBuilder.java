@@ -0,0 +1,118 @@
+package com.qmetric.penfold.client.fake;
+
+import com.codahale.metrics.MetricRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+public class FakePenfoldServerBuilder
+{
+    private int port = 0;
+
+    private int pageSize = 10;
+
+    private Duration latency = Duration.ZERO;
+
+    private double errorRate = 0;
+
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
+    /**
+     * Port to listen on (default any free port).
+     *
+     * @param port Port
+     * @return Updated builder
+     */
+    public FakePenfoldServerBuilder onPort(final int port)
+    {
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * Number of tasks per page (default 10).
+     *
+     * @param pageSize Page size
+     * @return Updated builder
+     */
+    public FakePenfoldServerBuilder withPageSize(final int pageSize)
+    {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Delay added to every request (default none).
+     *
+     * @param latency Latency
+     * @return Updated builder
+     */
+    public FakePenfoldServerBuilder withLatency(final Duration latency)
+    {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Proportion of requests failed with a server error (default none).
+     *
+     * @param errorRate Error rate between 0 and 1
+     * @return Updated builder
+     */
+    public FakePenfoldServerBuilder withErrorRate(final double errorRate)
+    {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * Registry receiving per operation timings, conflicts and injected errors (default a new registry).
+     *
+     * @param metricRegistry Metric registry
+     * @return Updated builder
+     */
+    public FakePenfoldServerBuilder withMetricRegistry(final MetricRegistry metricRegistry)
+    {
+        this.metricRegistry = metricRegistry;
+        return this;
+    }
+
+    /**
+     * @return Started server
+     */
+    public FakePenfoldServer start()
+    {
+        checkArgument(port >= 0, "negative port");
+
+        return create(Optional.of(port));
+    }
+
+    /**
+     * @return Server reachable only through its in-memory transport, without listening on a port
+     */
+    public FakePenfoldServer startInMemory()
+    {
+        return create(Optional.empty());
+    }
+
+    private FakePenfoldServer create(final Optional<Integer> port)
+    {
+        checkArgument(pageSize > 0, "page size must be positive");
+        checkArgument(latency != null && !latency.isNegative(), "latency must not be negative");
+        checkArgument(errorRate >= 0 && errorRate <= 1, "error rate must be between 0 and 1");
+        checkArgument(metricRegistry != null, "missing metric registry");
+
+        try
+        {
+            return new FakePenfoldServer(port, pageSize, latency, errorRate, metricRegistry);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.qmetric.penfold.client.fake;
+
+import com.google.common.collect.ImmutableMap;
+import com.qmetric.penfold.client.app.support.TaskDateTimeFormatter;
+import com.qmetric.penfold.client.domain.model.CommandType;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.qmetric.penfold.client.domain.model.CommandType.CancelTask;
+import static com.qmetric.penfold.client.domain.model.CommandType.CloseTask;
+import static com.qmetric.penfold.client.domain.model.CommandType.RequeueTask;
+import static com.qmetric.penfold.client.domain.model.CommandType.RescheduleTask;
+import static com.qmetric.penfold.client.domain.model.CommandType.StartTask;
+import static java.lang.String.format;
+
+/**
+ * Task held by the fake server, moving between statuses as penfold would.
+ */
+class StoredTask
+{
+    private static final Map<String, Set<CommandType>> PERMITTED_COMMANDS = ImmutableMap.<String, Set<CommandType>>builder()
+            .put("waiting", EnumSet.of(RequeueTask, RescheduleTask, CancelTask))
+            .put("ready", EnumSet.of(StartTask, RescheduleTask, CancelTask, CloseTask))
+            .put("started", EnumSet.of(RequeueTask, RescheduleTask, CancelTask, CloseTask))
+            .put("closed", EnumSet.of(RequeueTask))
+            .put("cancelled", EnumSet.noneOf(CommandType.class))
+            .build();
+
+    final String id;
+
+    final long sequence;
+
+    final String queue;
+
+    private final Map<String, Object> payload;
+
+    private final LocalDateTime created;
+
+    private int version = 1;
+
+    private String status;
+
+    private LocalDateTime triggerDate;
+
+    private LocalDateTime statusLastModified;
+
+    private int attempts;
+
+    StoredTask(final String id, final long sequence, final String queue, final Map<String, Object> payload, final Optional<LocalDateTime> triggerDate)
+    {
+        final LocalDateTime now = LocalDateTime.now();
+
+        this.id = id;
+        this.sequence = sequence;
+        this.queue = queue;
+        this.payload = payload;
+        this.created = now;
+        this.triggerDate = triggerDate.orElse(now);
+        this.status = this.triggerDate.isAfter(now) ? "waiting" : "ready";
+        this.statusLastModified = now;
+    }
+
+    synchronized String status()
+    {
+        // waiting tasks become ready once triggered
+        if ("waiting".equals(status) && !triggerDate.isAfter(LocalDateTime.now()))
+        {
+            changeStatus("ready");
+        }
+
+        return status;
+    }
+
+    synchronized Object payloadValue(final String key)
+    {
+        return payload.get(key);
+    }
+
+    /**
+     * @return false when the command conflicts with the task's current version or status.
+     */
+    synchronized boolean apply(final int expectedVersion, final CommandType command, final Map<String, Object> body)
+    {
+        if (expectedVersion != version || !PERMITTED_COMMANDS.get(status()).contains(command))
+        {
+            return false;
+        }
+
+        switch (command)
+        {
+            case StartTask:
+                attempts++;
+                changeStatus("started");
+                break;
+            case RequeueTask:
+                triggerDate = LocalDateTime.now();
+                changeStatus("ready");
+                break;
+            case RescheduleTask:
+                triggerDate = TaskDateTimeFormatter.parse((String) body.get("triggerDate"));
+                changeStatus("waiting");
+                break;
+            case CancelTask:
+                changeStatus("cancelled");
+                break;
+            case CloseTask:
+                changeStatus("closed");
+                break;
+            default:
+                return false;
+        }
+
+        return true;
+    }
+
+    synchronized Map<String, Object> toResource(final String baseUrl)
+    {
+        final Map<String, Object> links = new LinkedHashMap<>();
+        links.put("self", link(format("%s/tasks/%s", baseUrl, id)));
+
+        for (final CommandType command : PERMITTED_COMMANDS.get(status()))
+        {
+            links.put(command.name(), link(format("%s/tasks/%s/%s", baseUrl, id, version)));
+        }
+
+        final Map<String, Object> resource = new LinkedHashMap<>();
+        resource.put("_links", links);
+        resource.put("id", id);
+        resource.put("version", version);
+        resource.put("payload", payload);
+        resource.put("queue", queue);
+        resource.put("status", status);
+        resource.put("statusLastModified", TaskDateTimeFormatter.print(statusLastModified));
+        resource.put("triggerDate", TaskDateTimeFormatter.print(triggerDate));
+        resource.put("created", TaskDateTimeFormatter.print(created));
+        resource.put("attempts", attempts);
+        return resource;
+    }
+
+    private void changeStatus(final String newStatus)
+    {
+        status = newStatus;
+        statusLastModified = LocalDateTime.now();
+        version++;
+    }
+
+    private static Map<String, Object> link(final String href)
+    {
+        return ImmutableMap.of("href", href);
+    }
+}
@@ -0,0 +1,171 @@
+package com.qmetric.penfold.client.load;
+
+import com.codahale.metrics.ConsoleReporter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableMap;
+import com.qmetric.penfold.client.app.TaskConsumerBuilder;
+import com.qmetric.penfold.client.app.TaskStoreServiceBuilder;
+import com.qmetric.penfold.client.app.support.ClientFactory;
+import com.qmetric.penfold.client.app.transport.ApacheHttpTransport;
+import com.qmetric.penfold.client.app.transport.Transport;
+import com.qmetric.penfold.client.app.transport.UrlConnectionTransport;
+import com.qmetric.penfold.client.domain.model.BulkCreateResult;
+import com.qmetric.penfold.client.domain.model.NewTask;
+import com.qmetric.penfold.client.domain.model.Payload;
+import com.qmetric.penfold.client.domain.model.QueueId;
+import com.qmetric.penfold.client.domain.model.Reply;
+import com.qmetric.penfold.client.domain.services.TaskConsumer;
+import com.qmetric.penfold.client.domain.services.TaskStoreService;
+import com.qmetric.penfold.client.fake.FakePenfoldServer;
+import com.qmetric.penfold.client.fake.FakePenfoldServerBuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.lang.String.format;
+
+/**
+ * Creates tasks with a bulk creating store and consumes them with one or more consumers, all against an in-process fake penfold server.
+ * Reports throughput, end-to-end latency (created to consumed), the server's per operation latencies and the number of conflicts.
+ * <p>
+ * Configured with system properties, e.g. {@code -Dtasks=20000 -Dconsumers=2 -Dconcurrency=8 -DlatencyMillis=2 -DexecutionMillis=5}, pipelined
+ * with {@code -DpipelineRequestConcurrency=4}, and creating under an adaptive concurrency limit with {@code -DmaxCreateConcurrencyLimit=32}.
+ * Requests are sent with the Apache client by default, or with {@code -Dtransport=urlconnection} or {@code -Dtransport=memory}, the latter
+ * leaving out networking altogether.
+ */
+public class LoadHarness
+{
+    private static final String QUEUE = "load";
+
+    private static final String CREATED_AT = "createdAtNanos";
+
+    public static void main(final String[] args) throws InterruptedException
+    {
+        final int taskCount = Integer.getInteger("tasks", 10000);
+        final int consumerCount = Integer.getInteger("consumers", 1);
+        final int concurrency = Integer.getInteger("concurrency", 4);
+        final int bulkCreateConcurrency = Integer.getInteger("bulkCreateConcurrency", 10);
+        final int maxCreateConcurrencyLimit = Integer.getInteger("maxCreateConcurrencyLimit", 0);
+        final int pageSize = Integer.getInteger("pageSize", 10);
+        final int pagePrefetching = Integer.getInteger("pagePrefetching", 0);
+        final int pipelineRequestConcurrency = Integer.getInteger("pipelineRequestConcurrency", 0);
+        final long executionMillis = Long.getLong("executionMillis", 0);
+        final Duration latency = Duration.ofMillis(Long.getLong("latencyMillis", 1));
+        final double errorRate = Double.parseDouble(System.getProperty("errorRate", "0"));
+        final Duration timeout = Duration.ofSeconds(Long.getLong("timeoutSeconds", 300));
+        final String transport = System.getProperty("transport", "apache");
+
+        final MetricRegistry metrics = new MetricRegistry();
+        final Timer endToEnd = metrics.timer(name("penfold", "load", "end-to-end"));
+
+        final FakePenfoldServerBuilder serverBuilder = new FakePenfoldServerBuilder()
+                .withPageSize(pageSize)
+                .withLatency(latency)
+                .withErrorRate(errorRate)
+                .withMetricRegistry(metrics);
+
+        try (final FakePenfoldServer server = "memory".equals(transport) ? serverBuilder.startInMemory() : serverBuilder.start())
+        {
+            final List<TaskConsumer> consumers = new ArrayList<>();
+            for (int i = 0; i < consumerCount; i++)
+            {
+                consumers.add(new TaskConsumerBuilder()
+                                      .fromServer(server.url())
+                                      .fromQueue(QUEUE)
+                                      .withTransport(transport(transport, server))
+                                      .withPollingFrequency(Duration.ofSeconds(1))
+                                      .withAdaptivePolling(Duration.ofMillis(10))
+                                      .withConcurrency(concurrency)
+                                      .withPagePrefetching(pagePrefetching)
+                                      .withPipelining(pipelineRequestConcurrency, concurrency)
+                                      .withMetrics(metrics)
+                                      .consumeWith(task -> {
+                                          work(executionMillis);
+                                          final long createdAt = ((Number) task.payload.getAsMap().get(CREATED_AT)).longValue();
+                                          endToEnd.update(System.nanoTime() - createdAt, TimeUnit.NANOSECONDS);
+                                          return Reply.success();
+                                      })
+                                      .build());
+            }
+            consumers.forEach(TaskConsumer::start);
+
+            final TaskStoreService store = new TaskStoreServiceBuilder()
+                    .forServer(server.url())
+                    .withBulkCreateConcurrency(bulkCreateConcurrency)
+                    .withAdaptiveConcurrencyLimit(maxCreateConcurrencyLimit > 0 ? 1 : 0, maxCreateConcurrencyLimit)
+                    .withTransport(transport(transport, server))
+                    .withMetrics(metrics)
+                    .build();
+
+            final long started = System.nanoTime();
+            final BulkCreateResult created = store.createAll(newTasks(taskCount));
+            final long creationNanos = System.nanoTime() - started;
+
+            while (server.count(QUEUE, "closed") < created.created.size() && System.nanoTime() - started < timeout.toNanos())
+            {
+                Thread.sleep(10);
+            }
+            final long totalNanos = System.nanoTime() - started;
+
+            consumers.forEach(TaskConsumer::stop);
+
+            ConsoleReporter.forRegistry(metrics).convertDurationsTo(TimeUnit.MILLISECONDS).build().report();
+
+            System.out.println(format("created %d tasks (%d failed) at %.0f tasks/s", created.created.size(), created.failures.size(),
+                                      perSecond(created.created.size(), creationNanos)));
+            System.out.println(format("consumed %d tasks at %.0f tasks/s", endToEnd.getCount(), perSecond(endToEnd.getCount(), totalNanos)));
+            System.out.println(format("%d conflicts", metrics.meter(name("penfold", "fake-server", "conflicts")).getCount()));
+        }
+    }
+
+    private static void work(final long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Transport transport(final String name, final FakePenfoldServer server)
+    {
+        switch (name)
+        {
+            case "memory":
+                return server.inMemoryTransport();
+            case "urlconnection":
+                return new UrlConnectionTransport();
+            default:
+                return new ApacheHttpTransport(ClientFactory.createHttpClient(null));
+        }
+    }
+
+    private static AbstractIterator<NewTask> newTasks(final int count)
+    {
+        return new AbstractIterator<NewTask>()
+        {
+            private int remaining = count;
+
+            @Override protected NewTask computeNext()
+            {
+                return remaining-- > 0 ?
+                        new NewTask(new QueueId(QUEUE), new Payload(ImmutableMap.<String, Object>of(CREATED_AT, System.nanoTime())), Optional.empty()) :
+                        endOfData();
+            }
+        };
+    }
+
+    private static double perSecond(final long count, final long nanos)
+    {
+        return count / (nanos / 1e9);
+    }
+}